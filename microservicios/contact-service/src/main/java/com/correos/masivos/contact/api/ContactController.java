@@ -3,22 +3,38 @@ package com.correos.masivos.contact.api;
 import com.correos.masivos.contact.api.dto.ContactDTO;
 import com.correos.masivos.contact.api.dto.ContactImportDTO;
 import com.correos.masivos.contact.api.dto.ContactListDTO;
+import com.correos.masivos.contact.api.dto.ImportErrorDTO;
+import com.correos.masivos.contact.domain.model.BulkMembershipResult;
 import com.correos.masivos.contact.domain.model.Contact;
 import com.correos.masivos.contact.domain.model.ContactImport;
 import com.correos.masivos.contact.domain.model.ContactList;
+import com.correos.masivos.contact.domain.model.ContactSelection;
+import com.correos.masivos.contact.domain.model.ImportError;
+import com.correos.masivos.contact.domain.service.ContactDeletionService;
 import com.correos.masivos.contact.domain.service.ContactImportService;
 import com.correos.masivos.contact.domain.service.ContactListService;
 import com.correos.masivos.contact.domain.service.ContactService;
+import com.correos.masivos.contact.domain.service.DuplicateContactException;
+import com.opencsv.CSVWriter;
 import javax.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -28,6 +44,8 @@ import java.util.stream.Collectors;
 @RequestMapping("/contacts")
 public class ContactController {
 
+    private static final int MAX_IMPORT_ERRORS_PAGE_SIZE = 1000;
+
     @Autowired
     private ContactService contactService;
 
@@ -37,6 +55,9 @@ public class ContactController {
     @Autowired
     private ContactImportService contactImportService;
 
+    @Autowired
+    private ContactDeletionService contactDeletionService;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of(
@@ -50,8 +71,14 @@ public class ContactController {
     @PostMapping
     public ResponseEntity<ContactDTO> createContact(@Valid @RequestBody ContactDTO contactDTO) {
         Contact contact = mapToEntity(contactDTO);
-        Contact savedContact = contactService.createContact(contact);
-        return ResponseEntity.ok(mapToDTO(savedContact));
+        try {
+            Contact savedContact = contactService.createContact(contact);
+            return ResponseEntity.ok(mapToDTO(savedContact));
+        } catch (DuplicateContactException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/{id}")
@@ -98,8 +125,14 @@ public class ContactController {
         
         Contact contact = mapToEntity(contactDTO);
         contact.setId(id);
-        Contact updatedContact = contactService.updateContact(contact);
-        return ResponseEntity.ok(mapToDTO(updatedContact));
+        try {
+            Contact updatedContact = contactService.updateContact(contact);
+            return ResponseEntity.ok(mapToDTO(updatedContact));
+        } catch (DuplicateContactException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @DeleteMapping("/{id}")
@@ -108,6 +141,41 @@ public class ContactController {
         return ResponseEntity.noContent().build();
     }
 
+    // Borrado de muchos contactos del usuario en una transacción, con DELETE ... = ANY(?) por lotes
+    @DeleteMapping("/batch")
+    public ResponseEntity<Map<String, Object>> deleteContactsBatch(
+            @RequestParam Long userId,
+            @RequestBody List<Long> contactIds) {
+        int deleted = contactService.deleteContactsBatch(userId, contactIds);
+        return ResponseEntity.ok(Map.of(
+            "totalRequested", contactIds.size(),
+            "deletedCount", deleted
+        ));
+    }
+
+    @PostMapping("/users/{userId}/delete")
+    public ResponseEntity<Map<String, Object>> deleteUserContacts(@PathVariable Long userId) {
+        // Se procesa en segundo plano: el progreso se consulta con el jobId devuelto
+        String jobId;
+        try {
+            jobId = contactDeletionService.submit(userId);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", jobId);
+        response.put("userId", userId);
+        response.put("statusUrl", "/contacts/users/" + userId + "/delete/" + jobId);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/users/{userId}/delete/{jobId}")
+    public ResponseEntity<Map<String, Object>> getUserContactsDeletion(@PathVariable Long userId, @PathVariable String jobId) {
+        return contactDeletionService.getProgress(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
     @PostMapping("/{id}/unsubscribe")
     public ResponseEntity<Void> unsubscribeContact(@PathVariable Long id) {
         contactService.unsubscribeContact(id);
@@ -196,52 +264,52 @@ public class ContactController {
         return ResponseEntity.ok(contacts.map(this::mapToDTO));
     }
 
+    // Una sentencia por lote de ids en lugar de varias consultas por contacto
     @PostMapping("/list/{listId}/contacts/bulk")
     public ResponseEntity<Map<String, Object>> addContactsToListBulk(
             @PathVariable Long listId,
             @RequestBody List<Long> contactIds) {
-        
-        int addedCount = 0;
-        int errorCount = 0;
-        
-        for (Long contactId : contactIds) {
-            try {
-                contactService.addContactToList(contactId, listId);
-                addedCount++;
-            } catch (Exception e) {
-                errorCount++;
-            }
-        }
-        
-        return ResponseEntity.ok(Map.of(
-            "totalRequested", contactIds.size(),
-            "addedCount", addedCount,
-            "errorCount", errorCount
-        ));
+        return addContactsToListBySelection(listId, ContactSelection.ofIds(contactIds));
     }
 
     @DeleteMapping("/list/{listId}/contacts/bulk")
     public ResponseEntity<Map<String, Object>> removeContactsFromListBulk(
             @PathVariable Long listId,
             @RequestBody List<Long> contactIds) {
-        
-        int removedCount = 0;
-        int errorCount = 0;
-        
-        for (Long contactId : contactIds) {
-            try {
-                contactService.removeContactFromList(contactId, listId);
-                removedCount++;
-            } catch (Exception e) {
-                errorCount++;
-            }
+        return removeContactsFromListBySelection(listId, ContactSelection.ofIds(contactIds));
+    }
+
+    // Selección por ids, rango de ids (fromId/toId) o filtros (search, subscribed, active, sourceListId)
+    @PostMapping("/list/{listId}/contacts/bulk/select")
+    public ResponseEntity<Map<String, Object>> addContactsToListBySelection(
+            @PathVariable Long listId,
+            @RequestBody ContactSelection selection) {
+        try {
+            BulkMembershipResult result = contactService.addContactsToList(listId, selection);
+            return ResponseEntity.ok(Map.of(
+                "totalRequested", result.getRequested(),
+                "addedCount", result.getChanged(),
+                "skippedCount", result.getSkipped()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @DeleteMapping("/list/{listId}/contacts/bulk/select")
+    public ResponseEntity<Map<String, Object>> removeContactsFromListBySelection(
+            @PathVariable Long listId,
+            @RequestBody ContactSelection selection) {
+        try {
+            BulkMembershipResult result = contactService.removeContactsFromList(listId, selection);
+            return ResponseEntity.ok(Map.of(
+                "totalRequested", result.getRequested(),
+                "removedCount", result.getChanged(),
+                "skippedCount", result.getSkipped()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        return ResponseEntity.ok(Map.of(
-            "totalRequested", contactIds.size(),
-            "removedCount", removedCount,
-            "errorCount", errorCount
-        ));
     }
 
     // === IMPORTACIÓN MASIVA ===
@@ -287,7 +355,7 @@ public class ContactController {
         }
         
         ContactImport importResult = contactImportService.processCSVFile(file, userId, contactListId, fieldMapping);
-        return ResponseEntity.ok(mapToDTO(importResult));
+        return ResponseEntity.accepted().body(mapToDTO(importResult));
     }
 
     @PostMapping("/import/excel")
@@ -302,7 +370,7 @@ public class ContactController {
         }
         
         ContactImport importResult = contactImportService.processExcelFile(file, userId, contactListId, fieldMapping);
-        return ResponseEntity.ok(mapToDTO(importResult));
+        return ResponseEntity.accepted().body(mapToDTO(importResult));
     }
 
     @PostMapping("/import/csv/create-list")
@@ -326,10 +394,10 @@ public class ContactController {
         
         ContactList savedList = contactListService.createContactList(newList);
         
-        // Importar contactos a la nueva lista
+        // Importar contactos a la nueva lista (en segundo plano)
         ContactImport importResult = contactImportService.processCSVFile(file, userId, savedList.getId(), fieldMapping);
         
-        return ResponseEntity.ok(Map.of(
+        return ResponseEntity.accepted().body(Map.of(
             "contactList", mapToDTO(savedList),
             "importResult", mapToDTO(importResult)
         ));
@@ -352,7 +420,7 @@ public class ContactController {
             return ResponseEntity.badRequest().build();
         }
         
-        return ResponseEntity.ok(mapToDTO(importResult));
+        return ResponseEntity.accepted().body(mapToDTO(importResult));
     }
 
     // Endpoint de compatibilidad para preview genérico
@@ -383,6 +451,59 @@ public class ContactController {
                           .orElse(ResponseEntity.notFound().build());
     }
 
+    // Errores por fila de una importación, por keyset: nextAfterId es el afterId de la siguiente página
+    @GetMapping("/import/{id}/errors")
+    public ResponseEntity<Map<String, Object>> getImportErrors(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "0") long afterId,
+            @RequestParam(defaultValue = "100") int size) {
+        if (contactImportService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        int limit = Math.min(Math.max(size, 1), MAX_IMPORT_ERRORS_PAGE_SIZE);
+        List<ImportError> errors = contactImportService.findImportErrors(id, afterId, limit);
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("content", errors.stream().map(this::mapToDTO).collect(Collectors.toList()));
+        response.put("size", errors.size());
+        response.put("hasNext", errors.size() == limit);
+        response.put("nextAfterId", errors.size() == limit ? errors.get(errors.size() - 1).getId() : null);
+        return ResponseEntity.ok(response);
+    }
+
+    // Todos los errores en CSV, escritos según se leen por páginas: la memoria no depende del total
+    @GetMapping(value = "/import/{id}/errors/download", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> downloadImportErrors(@PathVariable Long id) {
+        if (contactImportService.findById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+            CSVWriter csv = new CSVWriter(writer);
+            csv.writeNext(new String[] { "row_number", "error_type", "error_message", "row_data" }, false);
+            long afterId = 0;
+            while (true) {
+                List<ImportError> page = contactImportService.findImportErrors(id, afterId, MAX_IMPORT_ERRORS_PAGE_SIZE);
+                for (ImportError error : page) {
+                    csv.writeNext(new String[] {
+                        String.valueOf(error.getRowNumber()), error.getErrorType(),
+                        error.getErrorMessage(), error.getRowData()
+                    });
+                }
+                csv.flush();
+                if (page.size() < MAX_IMPORT_ERRORS_PAGE_SIZE) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+        };
+        return ResponseEntity.ok()
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"import-" + id + "-errors.csv\"")
+            .contentType(MediaType.parseMediaType("text/csv; charset=UTF-8"))
+            .body(body);
+    }
+
     @GetMapping("/import")
     public ResponseEntity<Page<ContactImportDTO>> getImportHistory(
             @RequestParam Long userId,
@@ -511,4 +632,15 @@ public class ContactController {
         dto.setCreatedAt(importRecord.getCreatedAt());
         return dto;
     }
+
+    private ImportErrorDTO mapToDTO(ImportError error) {
+        ImportErrorDTO dto = new ImportErrorDTO();
+        dto.setId(error.getId());
+        dto.setRowNumber(error.getRowNumber());
+        dto.setErrorType(error.getErrorType());
+        dto.setErrorMessage(error.getErrorMessage());
+        dto.setRowData(error.getRowData());
+        dto.setCreatedAt(error.getCreatedAt());
+        return dto;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.correos.masivos.contact.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import java.time.LocalDateTime;
+
+public class ImportErrorDTO {
+
+    private Long id;
+    private Integer rowNumber;
+    private String errorType;
+    private String errorMessage;
+    // Ya es JSON en la base de datos: se emite tal cual, sin volver a parsearlo
+    @JsonRawValue
+    private String rowData;
+    private LocalDateTime createdAt;
+
+    public ImportErrorDTO() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Integer getRowNumber() { return rowNumber; }
+    public void setRowNumber(Integer rowNumber) { this.rowNumber = rowNumber; }
+
+    public String getErrorType() { return errorType; }
+    public void setErrorType(String errorType) { this.errorType = errorType; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public String getRowData() { return rowData; }
+    public void setRowData(String rowData) { this.rowData = rowData; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
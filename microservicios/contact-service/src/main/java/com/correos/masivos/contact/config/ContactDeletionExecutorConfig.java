@@ -0,0 +1,25 @@
+package com.correos.masivos.contact.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ContactDeletionExecutorConfig {
+
+    @Value("${contacts.delete.max-concurrent-jobs:1}")
+    private int maxConcurrentJobs;
+
+    // Borrados completos de usuario: pocos a la vez, cada uno ocupa una conexión mientras borra
+    @Bean("contactDeletionExecutor")
+    public ThreadPoolTaskExecutor contactDeletionExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("contact-delete-");
+        executor.initialize();
+        return executor;
+    }
+}
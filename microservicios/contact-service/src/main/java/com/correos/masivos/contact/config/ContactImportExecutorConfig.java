@@ -0,0 +1,42 @@
+package com.correos.masivos.contact.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ContactImportExecutorConfig {
+
+    @Value("${contacts.import.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${contacts.import.writers-per-job:4}")
+    private int writersPerJob;
+
+    // Importaciones en segundo plano: cada hilo procesa un archivo completo por bloques.
+    // Al apagar no se esperan: lo confirmado queda en last_row_number y se reanuda al arrancar.
+    @Bean("contactImportExecutor")
+    public ThreadPoolTaskExecutor contactImportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs);
+        executor.setMaxPoolSize(maxConcurrentJobs);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("contact-import-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Escritores de bloques: writers-per-job por cada importación en curso. Cada uno ocupa una
+    // conexión mientras escribe, el total debe caber en el pool de Hikari.
+    @Bean("contactImportWriterExecutor")
+    public ThreadPoolTaskExecutor contactImportWriterExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrentJobs * writersPerJob);
+        executor.setMaxPoolSize(maxConcurrentJobs * writersPerJob);
+        executor.setQueueCapacity(maxConcurrentJobs * writersPerJob);
+        executor.setThreadNamePrefix("contact-import-writer-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,20 @@
+package com.correos.masivos.contact.domain.model;
+
+// requested: ids recibidos (con repetidos) o contactos seleccionados por los filtros;
+// changed: altas o bajas efectivas; skipped: el resto (repetidos, ya estaban o no estaban en
+// la lista, no existen o son de otro usuario)
+public class BulkMembershipResult {
+
+    private long requested;
+    private long changed;
+
+    public void add(long requested, long changed) {
+        this.requested += requested;
+        this.changed += changed;
+    }
+
+    public void setRequested(long requested) { this.requested = requested; }
+    public long getRequested() { return requested; }
+    public long getChanged() { return changed; }
+    public long getSkipped() { return requested - changed; }
+}
@@ -53,10 +53,35 @@ public class ContactImport {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // Archivo guardado en disco mientras la importación está pendiente o en curso
+    @Column(name = "file_path")
+    private String filePath;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "file_type")
+    private FileType fileType;
+
+    // Mapeo campo -> columna en JSON
+    @Column(name = "field_mapping", columnDefinition = "TEXT")
+    private String fieldMapping;
+
+    @Column(name = "last_row_number")
+    private Long lastRowNumber = 0L;
+
+    @Column(name = "locked_by")
+    private String lockedBy;
+
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt;
+
     public enum ImportStatus {
         PENDING, PROCESSING, COMPLETED, FAILED, CANCELLED
     }
 
+    public enum FileType {
+        CSV, XLSX
+    }
+
     public ContactImport() {
         this.createdAt = LocalDateTime.now();
     }
@@ -146,4 +171,22 @@ public class ContactImport {
 
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
-}
\ No newline at end of file
+
+    public String getFilePath() { return filePath; }
+    public void setFilePath(String filePath) { this.filePath = filePath; }
+
+    public FileType getFileType() { return fileType; }
+    public void setFileType(FileType fileType) { this.fileType = fileType; }
+
+    public String getFieldMapping() { return fieldMapping; }
+    public void setFieldMapping(String fieldMapping) { this.fieldMapping = fieldMapping; }
+
+    public Long getLastRowNumber() { return lastRowNumber; }
+    public void setLastRowNumber(Long lastRowNumber) { this.lastRowNumber = lastRowNumber; }
+
+    public String getLockedBy() { return lockedBy; }
+    public void setLockedBy(String lockedBy) { this.lockedBy = lockedBy; }
+
+    public LocalDateTime getHeartbeatAt() { return heartbeatAt; }
+    public void setHeartbeatAt(LocalDateTime heartbeatAt) { this.heartbeatAt = heartbeatAt; }
+}
@@ -0,0 +1,56 @@
+package com.correos.masivos.contact.domain.model;
+
+import java.util.List;
+
+// Contactos sobre los que actúa una operación masiva: ids explícitos, o bien un rango de ids y
+// filtros (búsqueda, estado, otra lista), nunca ambos. Los filtros se combinan con AND y siempre
+// se limitan a los contactos del propietario de la lista de destino.
+public class ContactSelection {
+
+    private List<Long> contactIds;
+    private Long fromId;
+    private Long toId;
+    private String search;
+    private Boolean subscribed;
+    private Boolean active;
+    private Long sourceListId;
+
+    public ContactSelection() {}
+
+    public static ContactSelection ofIds(List<Long> contactIds) {
+        ContactSelection selection = new ContactSelection();
+        selection.setContactIds(contactIds);
+        return selection;
+    }
+
+    // Una lista de ids vacía es una selección explícita de ningún contacto
+    public boolean hasExplicitIds() {
+        return contactIds != null;
+    }
+
+    public boolean hasFilters() {
+        return fromId != null || toId != null || (search != null && !search.isBlank())
+            || subscribed != null || active != null || sourceListId != null;
+    }
+
+    public List<Long> getContactIds() { return contactIds; }
+    public void setContactIds(List<Long> contactIds) { this.contactIds = contactIds; }
+
+    public Long getFromId() { return fromId; }
+    public void setFromId(Long fromId) { this.fromId = fromId; }
+
+    public Long getToId() { return toId; }
+    public void setToId(Long toId) { this.toId = toId; }
+
+    public String getSearch() { return search; }
+    public void setSearch(String search) { this.search = search; }
+
+    public Boolean getSubscribed() { return subscribed; }
+    public void setSubscribed(Boolean subscribed) { this.subscribed = subscribed; }
+
+    public Boolean getActive() { return active; }
+    public void setActive(Boolean active) { this.active = active; }
+
+    public Long getSourceListId() { return sourceListId; }
+    public void setSourceListId(Long sourceListId) { this.sourceListId = sourceListId; }
+}
@@ -0,0 +1,37 @@
+package com.correos.masivos.contact.domain.model;
+
+import java.time.LocalDateTime;
+
+// Fila de import_errors; se escribe y se lee con JdbcTemplate (por lotes y por keyset), sin JPA
+public class ImportError {
+
+    private Long id;
+    private Long importId;
+    private Integer rowNumber;
+    private String errorType;
+    private String errorMessage;
+    // Valores originales de la fila en JSON (cabecera -> valor)
+    private String rowData;
+    private LocalDateTime createdAt;
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Long getImportId() { return importId; }
+    public void setImportId(Long importId) { this.importId = importId; }
+
+    public Integer getRowNumber() { return rowNumber; }
+    public void setRowNumber(Integer rowNumber) { this.rowNumber = rowNumber; }
+
+    public String getErrorType() { return errorType; }
+    public void setErrorType(String errorType) { this.errorType = errorType; }
+
+    public String getErrorMessage() { return errorMessage; }
+    public void setErrorMessage(String errorMessage) { this.errorMessage = errorMessage; }
+
+    public String getRowData() { return rowData; }
+    public void setRowData(String rowData) { this.rowData = rowData; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
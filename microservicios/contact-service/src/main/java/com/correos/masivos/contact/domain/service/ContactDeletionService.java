@@ -0,0 +1,15 @@
+package com.correos.masivos.contact.domain.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface ContactDeletionService {
+
+    // Borrado en segundo plano de todos los contactos de un usuario; IllegalStateException si
+    // tiene importaciones en curso
+    String submit(Long userId);
+
+    // true mientras haya un borrado del usuario en curso (las importaciones no deben escribir)
+    boolean isDeleting(Long userId);
+    Optional<Map<String, Object>> getProgress(String jobId);
+}
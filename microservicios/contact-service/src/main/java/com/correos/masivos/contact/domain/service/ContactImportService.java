@@ -1,6 +1,7 @@
 package com.correos.masivos.contact.domain.service;
 
 import com.correos.masivos.contact.domain.model.ContactImport;
+import com.correos.masivos.contact.domain.model.ImportError;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.web.multipart.MultipartFile;
@@ -33,6 +34,9 @@ public interface ContactImportService {
     // Estado de importaciones
     void updateImportStatus(Long importId, ContactImport.ImportStatus status);
     void updateImportProgress(Long importId, int processed, int successful, int failed);
+
+    // Errores por fila (keyset: los de id mayor que afterId)
+    List<ImportError> findImportErrors(Long importId, long afterId, int limit);
     
     // Estadísticas
     long countByUserIdAndStatus(Long userId, ContactImport.ImportStatus status);
@@ -1,7 +1,9 @@
 package com.correos.masivos.contact.domain.service;
 
+import com.correos.masivos.contact.domain.model.BulkMembershipResult;
 import com.correos.masivos.contact.domain.model.Contact;
 import com.correos.masivos.contact.domain.model.ContactList;
+import com.correos.masivos.contact.domain.model.ContactSelection;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -31,10 +33,12 @@ public interface ContactService {
     void addContactToList(Long contactId, Long listId);
     void removeContactFromList(Long contactId, Long listId);
     List<Contact> findContactsByListId(Long listId);
+    BulkMembershipResult addContactsToList(Long listId, ContactSelection selection);
+    BulkMembershipResult removeContactsFromList(Long listId, ContactSelection selection);
     
     // Operaciones masivas
     List<Contact> createContactsBatch(List<Contact> contacts);
-    void deleteContactsBatch(List<Long> contactIds);
+    int deleteContactsBatch(Long userId, List<Long> contactIds);
     
     // Validaciones
     boolean existsByEmailAndUserId(String email, Long userId);
@@ -0,0 +1,9 @@
+package com.correos.masivos.contact.domain.service;
+
+// Ya existe un contacto del usuario con ese email (comparado normalizado)
+public class DuplicateContactException extends RuntimeException {
+
+    public DuplicateContactException(String email) {
+        super("Ya existe un contacto con el email " + email);
+    }
+}
@@ -0,0 +1,562 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.domain.model.Contact;
+import com.correos.masivos.contact.domain.model.ContactImport;
+import com.correos.masivos.contact.domain.service.ContactDeletionService;
+import com.correos.masivos.contact.infrastructure.repository.ContactBulkRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactBulkRepository.UpsertResult;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportJobRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportJobRepository.ChunkRecord;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportRepository;
+import com.correos.masivos.contact.infrastructure.repository.ImportErrorRepository;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Procesa en segundo plano las importaciones guardadas en disco. Un hilo lee el archivo y reparte
+// bloques de filas por una cola acotada a varios escritores, que validan y escriben en paralelo. Los
+// duplicados se descartan al leer, en orden de fila, y no al escribir. Cada bloque se
+// escribe y se registra (rango de filas + contadores) en una sola transacción; si la instancia se
+// detiene, la importación se retoma saltando los rangos ya confirmados.
+@Component
+public class ContactImportWorker {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactImportWorker.class);
+
+    @Autowired
+    private ContactImportRepository importRepository;
+
+    @Autowired
+    private ContactImportJobRepository importJobRepository;
+
+    @Autowired
+    private ContactBulkRepository contactBulkRepository;
+
+    @Autowired
+    private CsvRowReader csvRowReader;
+
+    @Autowired
+    private XlsxRowReader xlsxRowReader;
+
+    @Autowired
+    private ContactValidator contactValidator;
+
+    @Autowired
+    private ImportErrorRepository importErrorRepository;
+
+    @Autowired
+    private ContactDeletionService contactDeletionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("contactImportExecutor")
+    private Executor contactImportExecutor;
+
+    @Autowired
+    @Qualifier("contactImportWriterExecutor")
+    private Executor contactImportWriterExecutor;
+
+    @Value("${contacts.import.chunk-size:5000}")
+    private int chunkSize;
+
+    // true: los contactos ya existentes se actualizan con las columnas no vacías del archivo
+    @Value("${contacts.import.update-existing:false}")
+    private boolean updateExisting;
+
+    @Value("${contacts.import.writers-per-job:4}")
+    private int writersPerJob;
+
+    // Bloques leídos en espera de escritor (por importación); acota la memoria del pipeline
+    @Value("${contacts.import.queue-capacity:8}")
+    private int queueCapacity;
+
+    // Los contadores de contact_imports se actualizan como mucho con esta frecuencia
+    @Value("${contacts.import.progress-interval-ms:2000}")
+    private long progressIntervalMs;
+
+    @Value("${contacts.import.stale-after-seconds:300}")
+    private long staleAfterSeconds;
+
+    @Value("${contacts.import.missing-file-grace-seconds:3600}")
+    private long missingFileGraceSeconds;
+
+    // Importaciones encoladas o en curso en esta instancia
+    private final Set<Long> running = ConcurrentHashMap.newKeySet();
+
+    private final String workerId = resolveWorkerId();
+
+    public void submit(Long importId) {
+        if (!running.add(importId)) {
+            return;
+        }
+        try {
+            contactImportExecutor.execute(() -> run(importId));
+        } catch (RejectedExecutionException e) {
+            // Sigue pendiente en la base de datos: la recoge la próxima pasada de resumeStalled
+            running.remove(importId);
+            logger.warn("Cola de importaciones llena, la importación {} queda pendiente", importId);
+        }
+    }
+
+    // Al arrancar y periódicamente: pendientes sin encolar e importaciones abandonadas
+    @Scheduled(initialDelayString = "${contacts.import.resume-initial-delay-ms:10000}",
+               fixedDelayString = "${contacts.import.resume-interval-ms:60000}")
+    public void resumeStalled() {
+        try {
+            for (Long importId : importJobRepository.findResumable(workerId, staleBefore())) {
+                if (running.contains(importId)) {
+                    continue;
+                }
+                ContactImport importRecord = importRepository.findById(importId).orElse(null);
+                if (importRecord == null) {
+                    continue;
+                }
+                if (Files.exists(Paths.get(importRecord.getFilePath()))) {
+                    logger.info("Reanudando importación {}", importId);
+                    submit(importId);
+                } else if (isOrphaned(importRecord)) {
+                    failMissingFile(importId);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error buscando importaciones a reanudar: {}", e.getMessage());
+        }
+    }
+
+    // Sin archivo en esta instancia. En curso (con el latido caducado o de esta misma instancia)
+    // ya no la va a terminar nadie; pendiente puede estar aún en el disco local de quien la
+    // recibió, así que se espera el margen configurado
+    private boolean isOrphaned(ContactImport importRecord) {
+        if (importRecord.getStatus() == ContactImport.ImportStatus.PROCESSING) {
+            return true;
+        }
+        return importRecord.getCreatedAt() != null
+            && importRecord.getCreatedAt().isBefore(LocalDateTime.now().minusSeconds(missingFileGraceSeconds));
+    }
+
+    // Se reserva y se cierra como fallida: si no, quedaría pendiente para siempre y bloquearía
+    // el borrado de los contactos del usuario
+    private void failMissingFile(Long importId) {
+        if (importJobRepository.claim(importId, workerId, staleBefore())
+                && importJobRepository.fail(importId, workerId, "El archivo de la importación ya no está disponible")) {
+            logger.warn("Importación {} marcada como fallida: su archivo ya no existe", importId);
+        }
+    }
+
+    private void run(Long importId) {
+        Path file = null;
+        ImportRun importRun = null;
+        try {
+            if (!importJobRepository.claim(importId, workerId, staleBefore())) {
+                logger.info("Importación {} ya procesada o en curso en otra instancia", importId);
+                return;
+            }
+            ContactImport importRecord = importRepository.findById(importId).orElse(null);
+            if (importRecord == null) {
+                return;
+            }
+            file = Paths.get(importRecord.getFilePath());
+            // Se comprueba tras reservarla (ver ContactDeletionServiceImpl.submit): no se escriben
+            // contactos mientras se borran los del usuario
+            if (contactDeletionService.isDeleting(importRecord.getUserId())) {
+                throw new IllegalStateException("Hay un borrado de contactos del usuario en curso");
+            }
+
+            Map<String, String> fieldMapping = objectMapper.readValue(importRecord.getFieldMapping(),
+                new TypeReference<Map<String, String>>() {});
+            RowReader rowReader = importRecord.getFileType() == ContactImport.FileType.XLSX ? xlsxRowReader : csvRowReader;
+
+            List<ChunkRecord> committed = importJobRepository.findChunks(importId);
+            if (!committed.isEmpty()) {
+                logger.info("Importación {} se reanuda con {} bloques ya confirmados", importId, committed.size());
+            }
+            importRun = new ImportRun(importRecord, fieldMapping, committed);
+            importRun.startWriters();
+            rowReader.read(file, importRun);
+            importRun.finish();
+
+            if (importJobRepository.complete(importId, workerId)) {
+                logger.info("Importación {} completada: procesados={}, correctos={}, fallidos={}", importId,
+                           importRun.processed.get(), importRun.successful.get(), importRun.failed.get());
+                deleteFile(file);
+            }
+        } catch (ImportOwnershipLostException e) {
+            // Otra instancia la retomó, se canceló o se borró el registro
+            logger.warn("Importación {} abandonada: {}", importId, e.getMessage());
+            if (file != null && !importRepository.existsById(importId)) {
+                deleteFile(file);
+            }
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Error en la importación {}: {}", importId, e.getMessage());
+            if (importRun != null) {
+                // Que ningún escritor siga confirmando bloques tras marcarla como fallida
+                importRun.abortAndWait();
+            }
+            if (importJobRepository.fail(importId, workerId, "Error procesando archivo: " + e.getMessage()) && file != null) {
+                deleteFile(file);
+            }
+        } finally {
+            if (importRun != null) {
+                importRun.abort();
+            }
+            running.remove(importId);
+        }
+    }
+
+    private LocalDateTime staleBefore() {
+        return LocalDateTime.now().minusSeconds(staleAfterSeconds);
+    }
+
+    private void deleteFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("No se pudo borrar el archivo de importación {}: {}", file, e.getMessage());
+        }
+    }
+
+    private static String resolveWorkerId() {
+        // Estable entre reinicios del pod (mismo hostname) para retomar sin esperar al latido caducado
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (IOException e) {
+            return "contact-service-" + UUID.randomUUID();
+        }
+    }
+
+    // Bloque de filas consecutivas del archivo: [firstRow, lastRow] incluye las filas vacías y
+    // las rechazadas, así los rangos registrados cubren el archivo sin huecos
+    private static final class Chunk {
+        private final long firstRow;
+        private long lastRow;
+        private final List<ImportRowError> errors = new ArrayList<>();
+        private final List<Contact> contacts = new ArrayList<>();
+        private final List<Long> rowNumbers = new ArrayList<>();
+        // Valores originales de cada contacto, para import_errors.row_data si se rechaza
+        private final List<String[]> values = new ArrayList<>();
+
+        private Chunk(long firstRow) {
+            this.firstRow = firstRow;
+            this.lastRow = firstRow - 1;
+        }
+    }
+
+    private static final Chunk END_OF_FILE = new Chunk(0);
+
+    // Una ejecución de importación: el hilo del trabajo lee y mapea (RowHandler) y los
+    // escritores consumen la cola. El primer error detiene a todos.
+    private final class ImportRun implements RowHandler {
+
+        private final Long importId;
+        private final Long userId;
+        private final Long contactListId;
+        private final Map<String, String> fieldMapping;
+        private final List<ChunkRecord> committed;
+        private final BlockingQueue<Chunk> queue;
+        // Emails ya vistos en el archivo; solo lo toca el hilo lector
+        private final LongHashSet seenEmails = new LongHashSet(chunkSize * 16);
+        private final AtomicReference<Exception> failure = new AtomicReference<>();
+        private final CountDownLatch writersDone;
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger successful = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final AtomicLong lastProgressFlush = new AtomicLong();
+        private final ImportWatermark watermark = new ImportWatermark();
+
+        private String[] headers;
+        private ImportColumns columns;
+        private Chunk current;
+        private long boundary;
+        private int committedIndex;
+
+        private ImportRun(ContactImport importRecord, Map<String, String> fieldMapping, List<ChunkRecord> committed) {
+            this.importId = importRecord.getId();
+            this.userId = importRecord.getUserId();
+            this.contactListId = importRecord.getContactListId();
+            this.fieldMapping = fieldMapping;
+            this.committed = committed;
+            this.queue = new ArrayBlockingQueue<>(Math.max(queueCapacity, writersPerJob));
+            this.writersDone = new CountDownLatch(writersPerJob);
+            // Al reanudar, los contadores parten de lo confirmado en los bloques registrados
+            for (ChunkRecord chunk : committed) {
+                processed.addAndGet(chunk.getProcessed());
+                successful.addAndGet(chunk.getSuccessful());
+                failed.addAndGet(chunk.getFailed());
+            }
+        }
+
+        private void startWriters() {
+            for (int i = 0; i < writersPerJob; i++) {
+                try {
+                    contactImportWriterExecutor.execute(this::writeLoop);
+                } catch (RejectedExecutionException e) {
+                    writersDone.countDown();
+                    failure.compareAndSet(null, e);
+                }
+            }
+            checkFailure();
+        }
+
+        @Override
+        public boolean onRow(long rowNumber, String[] values) {
+            checkFailure();
+            if (columns == null) {
+                // Primera fila: cabecera. Los índices se resuelven una vez para todo el archivo
+                headers = values;
+                columns = ImportColumns.resolve(values, fieldMapping);
+                if (!columns.hasEmail()) {
+                    throw new IllegalArgumentException("El mapeo no indica una columna de email presente en la cabecera");
+                }
+                boundary = rowNumber;
+                watermark.start(rowNumber, committed);
+                return true;
+            }
+            if (isCommitted(rowNumber)) {
+                // Fila de un bloque ya confirmado en una ejecución anterior: no se reescribe, pero su
+                // email cuenta como visto para que una fila posterior repetida siga siendo DUPLICATE_IN_FILE
+                if (current != null) {
+                    dispatch();
+                }
+                boundary = rowNumber;
+                rememberEmail(values);
+                return true;
+            }
+
+            if (current == null) {
+                current = new Chunk(boundary + 1);
+            }
+            current.lastRow = rowNumber;
+            boundary = rowNumber;
+            if (ImportColumns.isBlankRow(values)) {
+                return true;
+            }
+
+            Contact contact = columns.toContact(values, userId);
+            if (contact == null) {
+                current.errors.add(new ImportRowError(rowNumber, ImportErrorType.MISSING_EMAIL, values));
+                return true;
+            }
+            // Normalización barata aquí, en orden de fila, para que ante un email repetido se quede
+            // la primera fila del archivo; el resto de la validación se hace en los escritores
+            String email = ContactValidator.normalizeEmail(contact.getEmail());
+            if (email == null) {
+                current.errors.add(new ImportRowError(rowNumber, ImportErrorType.INVALID_EMAIL, values));
+                return true;
+            }
+            if (!seenEmails.add(LongHashSet.hash(email))) {
+                current.errors.add(new ImportRowError(rowNumber, ImportErrorType.DUPLICATE_IN_FILE, values));
+                return true;
+            }
+            contact.setEmail(email);
+
+            current.contacts.add(contact);
+            current.rowNumbers.add(rowNumber);
+            current.values.add(values);
+            if (current.contacts.size() >= chunkSize) {
+                dispatch();
+            }
+            return true;
+        }
+
+        // Fin del archivo: último bloque, aviso de fin a cada escritor y espera
+        private void finish() throws InterruptedException {
+            if (current != null) {
+                dispatch();
+            }
+            for (int i = 0; i < writersPerJob; i++) {
+                enqueue(END_OF_FILE);
+            }
+            writersDone.await();
+            checkFailure();
+            flushProgress(true);
+        }
+
+        private void abort() {
+            failure.compareAndSet(null, new IllegalStateException("Importación detenida"));
+            queue.clear();
+            for (int i = 0; i < writersPerJob; i++) {
+                queue.offer(END_OF_FILE);
+            }
+        }
+
+        private void abortAndWait() {
+            abort();
+            try {
+                writersDone.await(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void dispatch() {
+            Chunk chunk = current;
+            current = null;
+            enqueue(chunk);
+        }
+
+        private void enqueue(Chunk chunk) {
+            try {
+                // Cola llena: el lector espera a los escritores (contrapresión), sin dejar de
+                // comprobar si alguno ha fallado
+                while (!queue.offer(chunk, 1, TimeUnit.SECONDS)) {
+                    checkFailure();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Importación interrumpida", e);
+            }
+        }
+
+        private void writeLoop() {
+            try {
+                while (true) {
+                    Chunk chunk = queue.take();
+                    if (chunk == END_OF_FILE) {
+                        return;
+                    }
+                    if (failure.get() == null) {
+                        write(chunk);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            } catch (Exception e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                writersDone.countDown();
+            }
+        }
+
+        private void write(Chunk chunk) {
+            List<Contact> contacts = new ArrayList<>(chunk.contacts.size());
+            List<Long> rowNumbers = new ArrayList<>(chunk.contacts.size());
+            List<String[]> values = new ArrayList<>(chunk.contacts.size());
+            // Los errores del bloque empiezan con los detectados al leer (sin email, email ilegible, repetidos)
+            List<ImportRowError> errors = chunk.errors;
+            int rows = errors.size() + chunk.contacts.size();
+            for (int i = 0; i < chunk.contacts.size(); i++) {
+                Contact contact = chunk.contacts.get(i);
+                ImportErrorType rejection = contactValidator.validate(contact);
+                if (rejection != null) {
+                    errors.add(new ImportRowError(chunk.rowNumbers.get(i), rejection, chunk.values.get(i)));
+                } else {
+                    contacts.add(contact);
+                    rowNumbers.add(chunk.rowNumbers.get(i));
+                    values.add(chunk.values.get(i));
+                }
+            }
+
+            ChunkRecord record = transactionTemplate.execute(status -> {
+                // Un COPY y un INSERT ... ON CONFLICT por bloque en lugar de dos consultas por contacto;
+                // las altas en la lista de destino van en la misma transacción
+                UpsertResult result = contactBulkRepository.upsert(userId, contacts, rowNumbers, updateExisting, contactListId);
+                List<ImportRowError> chunkErrors = new ArrayList<>(errors.size() + result.getSkipped());
+                chunkErrors.addAll(errors);
+                for (int index : result.getSkippedIndexes()) {
+                    chunkErrors.add(new ImportRowError(rowNumbers.get(index), ImportErrorType.ALREADY_EXISTS, values.get(index)));
+                }
+                importErrorRepository.insertBatch(importId, headers, chunkErrors);
+                ChunkRecord chunkRecord = new ChunkRecord(chunk.firstRow, chunk.lastRow,
+                    rows,
+                    result.getInserted() + result.getUpdated(),
+                    chunkErrors.size());
+                if (!importJobRepository.recordChunk(importId, workerId, chunkRecord)) {
+                    // Se revierte el bloque: lo escribirá quien tenga ahora la importación
+                    throw new ImportOwnershipLostException("la importación ya no pertenece a " + workerId);
+                }
+                return chunkRecord;
+            });
+
+            processed.addAndGet(record.getProcessed());
+            successful.addAndGet(record.getSuccessful());
+            failed.addAndGet(record.getFailed());
+            watermark.advance(record.getFirstRow(), record.getLastRow());
+            flushProgress(false);
+        }
+
+        // Progreso agregado de todos los escritores: una sola actualización cada progressIntervalMs
+        private void flushProgress(boolean force) {
+            long now = System.currentTimeMillis();
+            long last = lastProgressFlush.get();
+            if (!force && (now - last < progressIntervalMs || !lastProgressFlush.compareAndSet(last, now))) {
+                return;
+            }
+            if (!importJobRepository.updateProgress(importId, workerId, watermark.current(),
+                    processed.get(), successful.get(), failed.get())) {
+                throw new ImportOwnershipLostException("la importación ya no pertenece a " + workerId);
+            }
+        }
+
+        private void rememberEmail(String[] values) {
+            if (ImportColumns.isBlankRow(values)) {
+                return;
+            }
+            Contact contact = columns.toContact(values, userId);
+            String email = contact != null ? ContactValidator.normalizeEmail(contact.getEmail()) : null;
+            if (email != null) {
+                seenEmails.add(LongHashSet.hash(email));
+            }
+        }
+
+        private boolean isCommitted(long rowNumber) {
+            while (committedIndex < committed.size() && committed.get(committedIndex).getLastRow() < rowNumber) {
+                committedIndex++;
+            }
+            return committedIndex < committed.size() && committed.get(committedIndex).getFirstRow() <= rowNumber;
+        }
+
+        private void checkFailure() {
+            Exception error = failure.get();
+            if (error instanceof RuntimeException) {
+                throw (RuntimeException) error;
+            }
+            if (error != null) {
+                throw new IllegalStateException(error.getMessage(), error);
+            }
+        }
+    }
+
+    private static final class ImportOwnershipLostException extends RuntimeException {
+        private ImportOwnershipLostException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.domain.model.Contact;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.IDN;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Validación y normalización de cada contacto importado, pensada para ejecutarse millones de
+// veces: patrón precompilado con un Matcher reutilizado por hilo, minúsculas e IDN solo cuando
+// hacen falta, y la lista de dominios desechables como tabla de hashes de 64 bits.
+@Component
+public class ContactValidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactValidator.class);
+
+    // Subconjunto práctico de RFC 5321 tras normalizar (minúsculas, dominio en ASCII)
+    private static final Pattern EMAIL = Pattern.compile(
+        "[a-z0-9!#$%&'*+/=?^_`{|}~-]+(?:\\.[a-z0-9!#$%&'*+/=?^_`{|}~-]+)*" +
+        "@(?:[a-z0-9](?:[a-z0-9-]{0,61}[a-z0-9])?\\.)+(?:[a-z]{2,63}|xn--[a-z0-9-]{1,59})");
+
+    private static final ThreadLocal<Matcher> MATCHER = ThreadLocal.withInitial(() -> EMAIL.matcher(""));
+
+    @Autowired
+    private MxRecordCache mxRecordCache;
+
+    // Lista adicional a la incluida en el servicio (un dominio por línea)
+    @Value("${contacts.validation.disposable-domains-file:}")
+    private String disposableDomainsFile;
+
+    private DomainSet disposableDomains;
+
+    @PostConstruct
+    public void loadDisposableDomains() {
+        DomainSet.Builder builder = new DomainSet.Builder();
+        try (InputStream in = getClass().getResourceAsStream("/disposable-domains.txt")) {
+            if (in != null) {
+                readDomains(in, builder);
+            }
+            if (disposableDomainsFile != null && !disposableDomainsFile.isBlank()) {
+                try (InputStream extra = Files.newInputStream(Paths.get(disposableDomainsFile))) {
+                    readDomains(extra, builder);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("No se pudo cargar la lista de dominios desechables: {}", e.getMessage());
+        }
+        disposableDomains = builder.build();
+        logger.info("Dominios desechables cargados: {}", disposableDomains.size());
+    }
+
+    // Normaliza el email del contacto y devuelve el motivo de rechazo, o null si es válido
+    public ImportErrorType validate(Contact contact) {
+        String email = normalizeEmail(contact.getEmail());
+        if (email == null || email.length() > 255 || !MATCHER.get().reset(email).matches()) {
+            return ImportErrorType.INVALID_EMAIL;
+        }
+        contact.setEmail(email);
+
+        int at = email.lastIndexOf('@');
+        if (isDisposable(email, at + 1)) {
+            return ImportErrorType.DISPOSABLE_DOMAIN;
+        }
+        if (!fits(contact.getFirstName(), 100) || !fits(contact.getLastName(), 100)
+                || !fits(contact.getPhone(), 20) || !fits(contact.getCompany(), 255)
+                || !fits(contact.getPosition(), 255) || !fits(contact.getCountry(), 100)
+                || !fits(contact.getCity(), 100)) {
+            return ImportErrorType.FIELD_TOO_LONG;
+        }
+        if (mxRecordCache.isEnabled() && !mxRecordCache.acceptsMail(email.substring(at + 1))) {
+            return ImportErrorType.NO_MAIL_SERVER;
+        }
+        return null;
+    }
+
+    // trim + minúsculas; el dominio internacionalizado pasa a punycode. null si no se puede
+    public static String normalizeEmail(String raw) {
+        if (raw == null) {
+            return null;
+        }
+        String email = raw.trim().toLowerCase(Locale.ROOT);
+        int at = email.lastIndexOf('@');
+        if (at <= 0 || at == email.length() - 1) {
+            return null;
+        }
+        if (!isAscii(email, at + 1)) {
+            try {
+                email = email.substring(0, at + 1) + IDN.toASCII(email.substring(at + 1), IDN.ALLOW_UNASSIGNED);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+        return email;
+    }
+
+    // Comprueba el dominio y cada dominio padre (a.b.mailinator.com -> b.mailinator.com -> mailinator.com)
+    private boolean isDisposable(String email, int domainStart) {
+        int start = domainStart;
+        while (start >= 0 && start < email.length()) {
+            if (disposableDomains.contains(email, start)) {
+                return true;
+            }
+            int dot = email.indexOf('.', start);
+            start = dot < 0 ? -1 : dot + 1;
+            if (start > 0 && email.indexOf('.', start) < 0) {
+                // No se comprueba el TLD suelto
+                break;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAscii(String value, int from) {
+        for (int i = from; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean fits(String value, int maxLength) {
+        return value == null || value.length() <= maxLength;
+    }
+
+    private static void readDomains(InputStream in, DomainSet.Builder builder) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String domain = line.trim().toLowerCase(Locale.ROOT);
+            if (!domain.isEmpty() && !domain.startsWith("#")) {
+                builder.add(domain);
+            }
+        }
+    }
+
+    // Conjunto inmutable de dominios como hashes de 64 bits en direccionamiento abierto:
+    // 16 bytes por dominio y consultas sin crear substrings
+    static final class DomainSet {
+
+        private final long[] table;
+        private final int size;
+
+        private DomainSet(long[] table, int size) {
+            this.table = table;
+            this.size = size;
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean contains(String value, int from) {
+            long key = hash(value, from);
+            int mask = table.length - 1;
+            int index = (int) (key ^ (key >>> 32)) & mask;
+            while (table[index] != 0L) {
+                if (table[index] == key) {
+                    return true;
+                }
+                index = (index + 1) & mask;
+            }
+            return false;
+        }
+
+        private static long hash(String value, int from) {
+            long h = 0xcbf29ce484222325L;
+            for (int i = from; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001b3L;
+            }
+            return h == 0L ? 1L : h;
+        }
+
+        static final class Builder {
+            private final Set<Long> keys = new HashSet<>();
+
+            void add(String domain) {
+                keys.add(hash(domain, 0));
+            }
+
+            DomainSet build() {
+                int capacity = Integer.highestOneBit(Math.max(keys.size() * 2, 16) - 1) << 1;
+                long[] table = new long[capacity];
+                int mask = capacity - 1;
+                for (long key : keys) {
+                    int index = (int) (key ^ (key >>> 32)) & mask;
+                    while (table[index] != 0L) {
+                        index = (index + 1) & mask;
+                    }
+                    table[index] = key;
+                }
+                return new DomainSet(table, keys.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+@Component
+public class CsvRowReader implements RowReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Override
+    public void read(InputStream in, RowHandler handler) throws IOException {
+        try (CSVReader reader = new CSVReader(new BufferedReader(
+                new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE))) {
+            String[] row;
+            long rowNumber = 0;
+            while ((row = reader.readNext()) != null) {
+                rowNumber++;
+                if (rowNumber == 1 && row.length > 0) {
+                    // Los CSV exportados desde Excel suelen empezar con BOM
+                    row[0] = stripBom(row[0]);
+                }
+                if (!handler.onRow(rowNumber, row)) {
+                    return;
+                }
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("CSV inválido: " + e.getMessage(), e);
+        }
+    }
+
+    private String stripBom(String value) {
+        return value != null && !value.isEmpty() && value.charAt(0) == '\uFEFF' ? value.substring(1) : value;
+    }
+}
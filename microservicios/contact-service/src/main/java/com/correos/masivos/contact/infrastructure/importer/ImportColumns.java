@@ -0,0 +1,81 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.domain.model.Contact;
+
+import java.util.Map;
+
+// Posición de cada campo del contacto en la fila, resuelta una sola vez a partir de la cabecera
+// y del mapeo campo -> columna que envía el cliente. -1 si el campo no está mapeado.
+public final class ImportColumns {
+
+    private final int email;
+    private final int firstName;
+    private final int lastName;
+    private final int phone;
+    private final int company;
+    private final int position;
+    private final int country;
+    private final int city;
+
+    private ImportColumns(String[] headers, Map<String, String> fieldMapping) {
+        this.email = indexOf(headers, fieldMapping.get("email"));
+        this.firstName = indexOf(headers, fieldMapping.get("firstName"));
+        this.lastName = indexOf(headers, fieldMapping.get("lastName"));
+        this.phone = indexOf(headers, fieldMapping.get("phone"));
+        this.company = indexOf(headers, fieldMapping.get("company"));
+        this.position = indexOf(headers, fieldMapping.get("position"));
+        this.country = indexOf(headers, fieldMapping.get("country"));
+        this.city = indexOf(headers, fieldMapping.get("city"));
+    }
+
+    public static ImportColumns resolve(String[] headers, Map<String, String> fieldMapping) {
+        return new ImportColumns(headers, fieldMapping);
+    }
+
+    public boolean hasEmail() {
+        return email >= 0;
+    }
+
+    // null si la fila no trae email (es el único campo requerido)
+    public Contact toContact(String[] row, Long userId) {
+        String emailValue = value(row, email);
+        if (emailValue == null || emailValue.trim().isEmpty()) {
+            return null;
+        }
+
+        Contact contact = new Contact(emailValue.trim(), userId);
+        contact.setFirstName(value(row, firstName));
+        contact.setLastName(value(row, lastName));
+        contact.setPhone(value(row, phone));
+        contact.setCompany(value(row, company));
+        contact.setPosition(value(row, position));
+        contact.setCountry(value(row, country));
+        contact.setCity(value(row, city));
+        return contact;
+    }
+
+    public static boolean isBlankRow(String[] row) {
+        for (String value : row) {
+            if (value != null && !value.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String value(String[] row, int index) {
+        return index >= 0 && index < row.length ? row[index] : null;
+    }
+
+    private static int indexOf(String[] headers, String header) {
+        if (header == null) {
+            return -1;
+        }
+        for (int i = 0; i < headers.length; i++) {
+            if (headers[i] != null && headers[i].trim().equals(header.trim())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,23 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+// Motivo por el que una fila del archivo no se importó (import_errors.error_type)
+public enum ImportErrorType {
+
+    MISSING_EMAIL("La fila no tiene email"),
+    INVALID_EMAIL("Email con formato no válido"),
+    DISPOSABLE_DOMAIN("Dominio de email desechable"),
+    NO_MAIL_SERVER("El dominio del email no acepta correo"),
+    FIELD_TOO_LONG("Algún campo supera la longitud máxima"),
+    DUPLICATE_IN_FILE("Email repetido en una fila anterior del archivo"),
+    ALREADY_EXISTS("El contacto ya existía y no se actualiza");
+
+    private final String message;
+
+    ImportErrorType(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,19 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+// Fila rechazada con sus valores tal como venían en el archivo (import_errors.row_data)
+public final class ImportRowError {
+
+    private final long rowNumber;
+    private final ImportErrorType type;
+    private final String[] values;
+
+    public ImportRowError(long rowNumber, ImportErrorType type, String[] values) {
+        this.rowNumber = rowNumber;
+        this.type = type;
+        this.values = values;
+    }
+
+    public long getRowNumber() { return rowNumber; }
+    public ImportErrorType getType() { return type; }
+    public String[] getValues() { return values; }
+}
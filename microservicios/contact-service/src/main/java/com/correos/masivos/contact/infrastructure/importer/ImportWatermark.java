@@ -0,0 +1,40 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.infrastructure.repository.ContactImportJobRepository.ChunkRecord;
+
+import java.util.List;
+import java.util.TreeMap;
+
+// last_row_number de una importación: última fila con todo lo anterior ya confirmado. Los
+// escritores confirman bloques fuera de orden; los rangos que aún no empalman con la marca
+// esperan en pendingRanges hasta que llega el hueco que falta.
+final class ImportWatermark {
+
+    private final TreeMap<Long, Long> pendingRanges = new TreeMap<>();
+    private long watermark;
+
+    // Parte de la cabecera y de los bloques confirmados en ejecuciones anteriores
+    synchronized void start(long headerRow, List<ChunkRecord> committed) {
+        watermark = headerRow;
+        for (ChunkRecord chunk : committed) {
+            pendingRanges.put(chunk.getFirstRow(), chunk.getLastRow());
+        }
+        drainRanges();
+    }
+
+    synchronized void advance(long firstRow, long lastRow) {
+        pendingRanges.put(firstRow, lastRow);
+        drainRanges();
+    }
+
+    synchronized long current() {
+        return watermark;
+    }
+
+    private void drainRanges() {
+        Long next;
+        while ((next = pendingRanges.remove(watermark + 1)) != null) {
+            watermark = next;
+        }
+    }
+}
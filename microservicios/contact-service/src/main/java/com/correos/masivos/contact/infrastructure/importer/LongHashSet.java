@@ -0,0 +1,76 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+// Conjunto de claves long (hash de 64 bits del email normalizado) para descartar duplicados
+// dentro de una misma importación. Direccionamiento abierto sobre un long[]: ~16 bytes por
+// email frente a los >60 de un Set<String>. No es thread-safe: solo lo usa el hilo lector.
+public final class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] table;
+    private int size;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(expectedSize * 2 - 1, 16)) << 1;
+        table = new long[capacity];
+    }
+
+    // true si la clave no estaba (primera aparición)
+    public boolean add(long key) {
+        long k = key == EMPTY ? 1L : key;
+        if (insert(table, k)) {
+            // Carga máxima 0.5 para sondeos cortos
+            if (++size * 2 > table.length) {
+                resize();
+            }
+            return true;
+        }
+        return false;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // FNV-1a de 64 bits sobre los caracteres: suficiente para deduplicar (colisión despreciable
+    // para millones de emails) y sin reservar memoria por email
+    public static long hash(CharSequence value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    private static boolean insert(long[] table, long key) {
+        int mask = table.length - 1;
+        int index = (int) mix(key) & mask;
+        while (true) {
+            long current = table[index];
+            if (current == EMPTY) {
+                table[index] = key;
+                return true;
+            }
+            if (current == key) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        long[] larger = new long[table.length << 1];
+        for (long key : table) {
+            if (key != EMPTY) {
+                insert(larger, key);
+            }
+        }
+        table = larger;
+    }
+}
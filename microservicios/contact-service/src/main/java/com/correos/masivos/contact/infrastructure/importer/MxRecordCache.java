@@ -0,0 +1,101 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingException;
+import javax.naming.directory.Attribute;
+import javax.naming.directory.Attributes;
+import javax.naming.directory.DirContext;
+import javax.naming.directory.InitialDirContext;
+import java.util.Hashtable;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Comprobación opcional de que el dominio acepta correo (registro MX, o A como MX implícito).
+// Cada dominio se consulta una vez y el resultado se guarda en memoria: en una importación
+// se repiten unos pocos dominios millones de veces.
+@Component
+public class MxRecordCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MxRecordCache.class);
+
+    @Value("${contacts.validation.mx-check.enabled:false}")
+    private boolean enabled;
+
+    @Value("${contacts.validation.mx-check.cache-ttl-minutes:1440}")
+    private long cacheTtlMinutes;
+
+    @Value("${contacts.validation.mx-check.cache-max-entries:100000}")
+    private int cacheMaxEntries;
+
+    @Value("${contacts.validation.mx-check.timeout-ms:2000}")
+    private int timeoutMs;
+
+    private final ConcurrentHashMap<String, Entry> cache = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean acceptsMail(String domain) {
+        long now = System.currentTimeMillis();
+        Entry entry = cache.get(domain);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.acceptsMail;
+        }
+
+        Boolean acceptsMail = lookup(domain);
+        if (acceptsMail == null) {
+            // Fallo de DNS (timeout, servidor caído): no se rechaza el contacto ni se cachea
+            return true;
+        }
+        if (cache.size() >= cacheMaxEntries) {
+            cache.clear();
+        }
+        cache.put(domain, new Entry(acceptsMail, now + cacheTtlMinutes * 60_000L));
+        return acceptsMail;
+    }
+
+    private Boolean lookup(String domain) {
+        Hashtable<String, String> env = new Hashtable<>();
+        env.put("java.naming.factory.initial", "com.sun.jndi.dns.DnsContextFactory");
+        env.put("com.sun.jndi.dns.timeout.initial", String.valueOf(timeoutMs));
+        env.put("com.sun.jndi.dns.timeout.retries", "1");
+        DirContext context = null;
+        try {
+            context = new InitialDirContext(env);
+            Attributes attributes = context.getAttributes(domain, new String[] { "MX", "A", "AAAA" });
+            return hasValues(attributes.get("MX")) || hasValues(attributes.get("A")) || hasValues(attributes.get("AAAA"));
+        } catch (NameNotFoundException e) {
+            return false;
+        } catch (NamingException e) {
+            logger.debug("Consulta MX fallida para {}: {}", domain, e.getMessage());
+            return null;
+        } finally {
+            if (context != null) {
+                try {
+                    context.close();
+                } catch (NamingException e) {
+                    // Sin recursos que liberar
+                }
+            }
+        }
+    }
+
+    private boolean hasValues(Attribute attribute) {
+        return attribute != null && attribute.size() > 0;
+    }
+
+    private static final class Entry {
+        private final boolean acceptsMail;
+        private final long expiresAt;
+
+        private Entry(boolean acceptsMail, long expiresAt) {
+            this.acceptsMail = acceptsMail;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
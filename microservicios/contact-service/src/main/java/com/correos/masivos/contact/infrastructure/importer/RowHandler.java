@@ -0,0 +1,8 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+@FunctionalInterface
+public interface RowHandler {
+
+    // rowNumber empieza en 1 (la cabecera). Devolver false detiene la lectura.
+    boolean onRow(long rowNumber, String[] values);
+}
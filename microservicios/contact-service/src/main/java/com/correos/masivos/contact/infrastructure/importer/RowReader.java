@@ -0,0 +1,18 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Lector de filas en streaming: entrega cada fila al handler sin acumular el archivo en memoria
+public interface RowReader {
+
+    void read(InputStream in, RowHandler handler) throws IOException;
+
+    default void read(Path file, RowHandler handler) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            read(in, handler);
+        }
+    }
+}
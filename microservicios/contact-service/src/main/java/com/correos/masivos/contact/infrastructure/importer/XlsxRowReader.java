@@ -0,0 +1,110 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler.SheetContentsHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.springframework.stereotype.Component;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+// Lectura de XLSX con el modelo de eventos de POI (XSSFReader + SAX): la hoja se recorre fila a
+// fila sin construir el XSSFWorkbook, así la memoria depende de la fila y de la tabla de cadenas
+// compartidas, no del tamaño de la hoja. Solo se lee la primera hoja.
+@Component
+public class XlsxRowReader implements RowReader {
+
+    @Override
+    public void read(InputStream in, RowHandler handler) throws IOException {
+        // El paquete se abre desde archivo: abierto desde un stream POI descomprime todo en memoria
+        Path tempFile = Files.createTempFile("contact-import-", ".xlsx");
+        try {
+            Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+            read(tempFile, handler);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @Override
+    public void read(Path file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return;
+            }
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, sharedStrings,
+                    new RowCollector(handler), new DataFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            } catch (StopReading e) {
+                // El handler ya tiene las filas que necesitaba
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("XLSX inválido: " + e.getMessage(), e);
+        }
+    }
+
+    // Reúne las celdas de cada fila en un String[] posicional (celdas vacías como "")
+    private static final class RowCollector implements SheetContentsHandler {
+
+        private final RowHandler handler;
+        private final List<String> values = new ArrayList<>();
+
+        private RowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            values.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!handler.onRow(rowNum + 1L, values.toArray(new String[0]))) {
+                throw new StopReading();
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : values.size();
+            while (values.size() < column) {
+                values.add("");
+            }
+            values.add(formattedValue != null ? formattedValue : "");
+        }
+    }
+
+    // Corta el parseo SAX desde dentro del handler
+    private static final class StopReading extends RuntimeException {
+        private StopReading() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import com.correos.masivos.contact.domain.model.Contact;
+import org.postgresql.PGConnection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+// Escritura masiva de contactos importados: cada bloque se carga con COPY en una tabla temporal
+// y pasa a contacts con un único INSERT ... ON CONFLICT sobre el índice único de V3.
+// Debe llamarse dentro de una transacción: la tabla temporal vive en la conexión de esta.
+@Repository
+public class ContactBulkRepository {
+
+    private static final String CREATE_STAGING =
+        "CREATE TEMP TABLE IF NOT EXISTS contact_import_staging (" +
+        "row_number BIGINT NOT NULL, email VARCHAR(255) NOT NULL, first_name VARCHAR(100), " +
+        "last_name VARCHAR(100), phone VARCHAR(20), company VARCHAR(255), position VARCHAR(255), " +
+        "country VARCHAR(100), city VARCHAR(100)) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGING =
+        "COPY contact_import_staging (row_number, email, first_name, last_name, phone, company, " +
+        "position, country, city) FROM STDIN WITH (FORMAT csv)";
+
+    // DISTINCT ON: un mismo email repetido dentro del bloque se queda con su primera fila
+    // (ON CONFLICT no admite afectar dos veces a la misma fila en una sentencia)
+    private static final String INSERT_FROM_STAGING =
+        "INSERT INTO contacts (email, first_name, last_name, phone, company, position, country, city, " +
+        "user_id, is_active, is_subscribed, created_at, updated_at) " +
+        "SELECT DISTINCT ON (lower(email)) email, NULLIF(first_name, ''), NULLIF(last_name, ''), " +
+        "NULLIF(phone, ''), NULLIF(company, ''), NULLIF(position, ''), NULLIF(country, ''), NULLIF(city, ''), " +
+        "?, true, true, NOW(), NOW() " +
+        "FROM contact_import_staging ORDER BY lower(email), row_number ";
+
+    private static final String ON_CONFLICT_NOTHING =
+        "ON CONFLICT (user_id, lower(email)) DO NOTHING RETURNING id, true, lower(email)";
+
+    // Las columnas vacías del archivo no borran datos existentes
+    private static final String ON_CONFLICT_UPDATE =
+        "ON CONFLICT (user_id, lower(email)) DO UPDATE SET " +
+        "first_name = COALESCE(EXCLUDED.first_name, contacts.first_name), " +
+        "last_name = COALESCE(EXCLUDED.last_name, contacts.last_name), " +
+        "phone = COALESCE(EXCLUDED.phone, contacts.phone), " +
+        "company = COALESCE(EXCLUDED.company, contacts.company), " +
+        "position = COALESCE(EXCLUDED.position, contacts.position), " +
+        "country = COALESCE(EXCLUDED.country, contacts.country), " +
+        "city = COALESCE(EXCLUDED.city, contacts.city), " +
+        "updated_at = NOW() " +
+        "RETURNING id, (xmax = 0), lower(email)";
+
+    // Alta en la lista de todos los contactos del bloque, nuevos o ya existentes, en una sola
+    // sentencia: se localizan por el índice único (user_id, lower(email)) a partir de la tabla
+    // temporal. El JOIN con contact_lists limita a listas del mismo usuario y no falla si la
+    // lista se borró durante la importación.
+    private static final String ADD_STAGED_TO_LIST =
+        "INSERT INTO contact_list_memberships (contact_id, contact_list_id, added_at, added_by) " +
+        "SELECT DISTINCT c.id, l.id, NOW(), ? FROM contact_import_staging s " +
+        "JOIN contacts c ON c.user_id = ? AND lower(c.email) = lower(s.email) " +
+        "JOIN contact_lists l ON l.id = ? AND l.user_id = c.user_id " +
+        "ON CONFLICT (contact_id, contact_list_id) DO NOTHING";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // contactListId opcional: los contactos del bloque se añaden además a esa lista
+    public UpsertResult upsert(Long userId, List<Contact> contacts, List<Long> rowNumbers, boolean updateExisting,
+                               Long contactListId) {
+        UpsertResult result = new UpsertResult();
+        if (contacts.isEmpty()) {
+            return result;
+        }
+
+        jdbcTemplate.execute(CREATE_STAGING);
+        // ON COMMIT DELETE ROWS no basta: varios bloques pueden compartir transacción
+        jdbcTemplate.execute("TRUNCATE contact_import_staging");
+        copy(contacts, rowNumbers);
+
+        String sql = INSERT_FROM_STAGING + (updateExisting ? ON_CONFLICT_UPDATE : ON_CONFLICT_NOTHING);
+        Set<String> written = new HashSet<>(contacts.size() * 2);
+        jdbcTemplate.query(sql, rs -> {
+            result.contactIds.add(rs.getLong(1));
+            if (rs.getBoolean(2)) {
+                result.inserted++;
+            } else {
+                result.updated++;
+            }
+            written.add(rs.getString(3));
+        }, userId);
+        result.skipped = contacts.size() - result.inserted - result.updated;
+        if (result.skipped > 0) {
+            // Filas que no devolvió el INSERT: ya existían (DO NOTHING) o repetían email en el bloque
+            for (int i = 0; i < contacts.size(); i++) {
+                if (!written.remove(contacts.get(i).getEmail().toLowerCase(Locale.ROOT))) {
+                    result.skippedIndexes.add(i);
+                }
+            }
+        }
+        if (contactListId != null) {
+            result.addedToList = jdbcTemplate.update(ADD_STAGED_TO_LIST, userId, userId, contactListId);
+        }
+        return result;
+    }
+
+    private void copy(List<Contact> contacts, List<Long> rowNumbers) {
+        StringBuilder csv = new StringBuilder(contacts.size() * 96);
+        for (int i = 0; i < contacts.size(); i++) {
+            Contact contact = contacts.get(i);
+            csv.append(rowNumbers.get(i));
+            appendField(csv, contact.getEmail());
+            appendField(csv, contact.getFirstName());
+            appendField(csv, contact.getLastName());
+            appendField(csv, contact.getPhone());
+            appendField(csv, contact.getCompany());
+            appendField(csv, contact.getPosition());
+            appendField(csv, contact.getCountry());
+            appendField(csv, contact.getCity());
+            csv.append('\n');
+        }
+
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(COPY_STAGING, new StringReader(csv.toString()));
+            } catch (IOException e) {
+                throw new SQLException("Error en COPY de contactos: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // En formato csv de COPY un campo vacío sin comillas es NULL; el resto va siempre entre comillas
+    private void appendField(StringBuilder csv, String value) {
+        csv.append(',');
+        if (value == null) {
+            return;
+        }
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        csv.append('"');
+    }
+
+    public static class UpsertResult {
+        private int inserted;
+        private int updated;
+        private int skipped;
+        private int addedToList;
+        private final List<Long> contactIds = new ArrayList<>();
+        private final List<Integer> skippedIndexes = new ArrayList<>();
+
+        public int getInserted() { return inserted; }
+        public int getUpdated() { return updated; }
+        // Ya existían (sin actualizar) o estaban repetidos en el mismo bloque
+        public int getSkipped() { return skipped; }
+        public List<Long> getContactIds() { return contactIds; }
+        // Altas nuevas en la lista (las que ya estaban no cuentan)
+        public int getAddedToList() { return addedToList; }
+        // Posiciones en la lista recibida de los contactos que no se escribieron
+        public List<Integer> getSkippedIndexes() { return skippedIndexes; }
+    }
+}
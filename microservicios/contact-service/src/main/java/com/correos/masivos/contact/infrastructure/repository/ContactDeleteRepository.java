@@ -0,0 +1,47 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// Borrado masivo de contactos con una sentencia por lote: los métodos derivados de JPA
+// (deleteByContactId, deleteByIdIn) cargan cada entidad antes de borrarla
+@Repository
+public class ContactDeleteRepository {
+
+    // Las membresías se borran antes de forma explícita: así el ON DELETE CASCADE no tiene que
+    // buscarlas contacto a contacto. Ambas sentencias se limitan a los contactos del usuario
+    private static final String DELETE_MEMBERSHIPS =
+        "DELETE FROM contact_list_memberships m USING contacts c " +
+        "WHERE m.contact_id = c.id AND c.user_id = ? AND c.id = ANY(?)";
+
+    private static final String DELETE_CONTACTS =
+        "DELETE FROM contacts WHERE user_id = ? AND id = ANY(?)";
+
+    private static final String FIND_USER_IDS =
+        "SELECT id FROM contacts WHERE user_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int deleteMemberships(Long userId, Long[] contactIds) {
+        return jdbcTemplate.update(DELETE_MEMBERSHIPS, ps -> {
+            ps.setLong(1, userId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", contactIds));
+        });
+    }
+
+    public int deleteContacts(Long userId, Long[] contactIds) {
+        return jdbcTemplate.update(DELETE_CONTACTS, ps -> {
+            ps.setLong(1, userId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", contactIds));
+        });
+    }
+
+    // Siguiente lote de ids del usuario por keyset sobre la clave primaria
+    public List<Long> findUserContactIds(Long userId, long afterId, int limit) {
+        return jdbcTemplate.queryForList(FIND_USER_IDS, Long.class, userId, afterId, limit);
+    }
+}
@@ -0,0 +1,123 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Estado de las importaciones en segundo plano. Las escrituras van condicionadas a locked_by:
+// si otra instancia se quedó con la importación, la actualización no afecta a ninguna fila.
+@Repository
+public class ContactImportJobRepository {
+
+    private static final String OWNED =
+        "SELECT 1 FROM contact_imports WHERE id = ? AND locked_by = ? AND status = 'PROCESSING'";
+
+    // Pendiente, o en curso pero sin latido reciente (la instancia que la tenía se detuvo).
+    // La misma instancia puede retomarla en cuanto arranca.
+    private static final String CLAIM =
+        "UPDATE contact_imports SET status = 'PROCESSING', locked_by = ?, heartbeat_at = NOW(), " +
+        "started_at = COALESCE(started_at, NOW()) " +
+        "WHERE id = ? AND file_path IS NOT NULL AND (status = 'PENDING' OR (status = 'PROCESSING' " +
+        "AND (locked_by = ? OR heartbeat_at IS NULL OR heartbeat_at < ?)))";
+
+    private static final String FIND_RESUMABLE =
+        "SELECT id FROM contact_imports WHERE status IN ('PENDING', 'PROCESSING') AND file_path IS NOT NULL " +
+        "AND (status = 'PENDING' OR locked_by = ? OR heartbeat_at IS NULL OR heartbeat_at < ?) ORDER BY id";
+
+    private static final String FIND_CHUNKS =
+        "SELECT first_row, last_row, processed, successful, failed FROM contact_import_chunks " +
+        "WHERE import_id = ? ORDER BY first_row";
+
+    // Solo se registra si la importación sigue siendo nuestra; si no, el bloque se revierte
+    private static final String RECORD_CHUNK =
+        "INSERT INTO contact_import_chunks (import_id, first_row, last_row, processed, successful, failed) " +
+        "SELECT ?, ?, ?, ?, ?, ? WHERE EXISTS (" + OWNED + ")";
+
+    private static final String UPDATE_PROGRESS =
+        "UPDATE contact_imports SET last_row_number = ?, processed_records = ?, successful_records = ?, " +
+        "failed_records = ?, heartbeat_at = NOW() WHERE id = ? AND locked_by = ? AND status = 'PROCESSING'";
+
+    // Los totales finales salen de los bloques registrados, no de los contadores en memoria
+    private static final String FINISH =
+        "UPDATE contact_imports i SET status = ?, error_message = ?, " +
+        "processed_records = COALESCE(c.processed, i.processed_records), " +
+        "successful_records = COALESCE(c.successful, i.successful_records), " +
+        "failed_records = COALESCE(c.failed, i.failed_records), " +
+        "total_records = COALESCE(c.processed, i.processed_records), " +
+        "completed_at = NOW(), file_path = NULL, locked_by = NULL, heartbeat_at = NULL " +
+        "FROM (SELECT SUM(processed) AS processed, SUM(successful) AS successful, SUM(failed) AS failed " +
+        "      FROM contact_import_chunks WHERE import_id = ?) c " +
+        "WHERE i.id = ? AND i.locked_by = ? AND i.status = 'PROCESSING'";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public boolean claim(Long importId, String workerId, LocalDateTime staleBefore) {
+        return jdbcTemplate.update(CLAIM, workerId, importId, workerId, Timestamp.valueOf(staleBefore)) == 1;
+    }
+
+    public List<Long> findResumable(String workerId, LocalDateTime staleBefore) {
+        return jdbcTemplate.queryForList(FIND_RESUMABLE, Long.class, workerId, Timestamp.valueOf(staleBefore));
+    }
+
+    public List<ChunkRecord> findChunks(Long importId) {
+        return jdbcTemplate.query(FIND_CHUNKS, (rs, rowNum) -> new ChunkRecord(
+            rs.getLong("first_row"), rs.getLong("last_row"),
+            rs.getInt("processed"), rs.getInt("successful"), rs.getInt("failed")), importId);
+    }
+
+    // Se ejecuta en la misma transacción que la escritura del bloque: contactos y registro del
+    // rango se confirman juntos, así al reanudar no se pierde ni se repite ningún bloque
+    public boolean recordChunk(Long importId, String workerId, ChunkRecord chunk) {
+        return jdbcTemplate.update(RECORD_CHUNK, importId, chunk.getFirstRow(), chunk.getLastRow(),
+            chunk.getProcessed(), chunk.getSuccessful(), chunk.getFailed(), importId, workerId) == 1;
+    }
+
+    // Progreso visible y latido; false si la importación ya no es nuestra
+    public boolean updateProgress(Long importId, String workerId, long lastRowNumber,
+                                  int processed, int successful, int failed) {
+        return jdbcTemplate.update(UPDATE_PROGRESS, lastRowNumber, processed, successful, failed, importId, workerId) == 1;
+    }
+
+    public boolean complete(Long importId, String workerId) {
+        return finish(importId, workerId, "COMPLETED", null);
+    }
+
+    public boolean fail(Long importId, String workerId, String errorMessage) {
+        return finish(importId, workerId, "FAILED", errorMessage);
+    }
+
+    private boolean finish(Long importId, String workerId, String status, String errorMessage) {
+        boolean finished = jdbcTemplate.update(FINISH, status, errorMessage, importId, importId, workerId) == 1;
+        if (finished) {
+            jdbcTemplate.update("DELETE FROM contact_import_chunks WHERE import_id = ?", importId);
+        }
+        return finished;
+    }
+
+    public static class ChunkRecord {
+        private final long firstRow;
+        private final long lastRow;
+        private final int processed;
+        private final int successful;
+        private final int failed;
+
+        public ChunkRecord(long firstRow, long lastRow, int processed, int successful, int failed) {
+            this.firstRow = firstRow;
+            this.lastRow = lastRow;
+            this.processed = processed;
+            this.successful = successful;
+            this.failed = failed;
+        }
+
+        public long getFirstRow() { return firstRow; }
+        public long getLastRow() { return lastRow; }
+        public int getProcessed() { return processed; }
+        public int getSuccessful() { return successful; }
+        public int getFailed() { return failed; }
+    }
+}
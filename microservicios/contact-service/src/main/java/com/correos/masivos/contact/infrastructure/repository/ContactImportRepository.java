@@ -4,6 +4,7 @@ import com.correos.masivos.contact.domain.model.ContactImport;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -27,4 +28,11 @@ public interface ContactImportRepository extends JpaRepository<ContactImport, Lo
     
     // Búsqueda por estado
     List<ContactImport> findByStatus(ContactImport.ImportStatus status);
+    
+    // Progreso en una sola sentencia, sin cargar la entidad
+    @Modifying
+    @Query("UPDATE ContactImport ci SET ci.processedRecords = :processed, ci.successfulRecords = :successful, " +
+           "ci.failedRecords = :failed WHERE ci.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("processed") int processed,
+                       @Param("successful") int successful, @Param("failed") int failed);
 }
\ No newline at end of file
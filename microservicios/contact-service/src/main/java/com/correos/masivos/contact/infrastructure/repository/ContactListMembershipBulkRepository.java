@@ -0,0 +1,141 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import com.correos.masivos.contact.domain.model.ContactSelection;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Altas y bajas masivas en una lista con una sentencia por lote en lugar de varias consultas
+// por contacto. Cada llamada es un lote; el servicio decide el tamaño y lo recorre.
+@Repository
+public class ContactListMembershipBulkRepository {
+
+    // Solo contactos del propietario de la lista; los que ya estaban no cuentan como alta
+    private static final String ADD_IDS =
+        "INSERT INTO contact_list_memberships (contact_id, contact_list_id, added_at, added_by) " +
+        "SELECT c.id, ?, NOW(), ? FROM contacts c WHERE c.user_id = ? AND c.id = ANY(?) " +
+        "ON CONFLICT (contact_id, contact_list_id) DO NOTHING";
+
+    private static final String REMOVE_IDS =
+        "DELETE FROM contact_list_memberships WHERE contact_list_id = ? AND contact_id = ANY(?)";
+
+    private static final String INSERT_BATCH =
+        "INSERT INTO contact_list_memberships (contact_id, contact_list_id, added_at, added_by) " +
+        "SELECT id, ?, NOW(), ? FROM batch ON CONFLICT (contact_id, contact_list_id) DO NOTHING RETURNING 1";
+
+    private static final String DELETE_BATCH =
+        "DELETE FROM contact_list_memberships m USING batch " +
+        "WHERE m.contact_list_id = ? AND m.contact_id = batch.id RETURNING 1";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public int addByIds(Long listId, Long userId, Long[] contactIds) {
+        return jdbcTemplate.update(ADD_IDS, ps -> {
+            ps.setLong(1, listId);
+            ps.setLong(2, userId);
+            ps.setLong(3, userId);
+            ps.setArray(4, ps.getConnection().createArrayOf("bigint", contactIds));
+        });
+    }
+
+    public int removeByIds(Long listId, Long[] contactIds) {
+        return jdbcTemplate.update(REMOVE_IDS, ps -> {
+            ps.setLong(1, listId);
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", contactIds));
+        });
+    }
+
+    // Siguiente lote de la selección (id > afterId, por orden de id) añadido a la lista
+    public BatchResult addSelected(Long listId, Long userId, ContactSelection selection, long afterId, int limit) {
+        List<Object> params = new ArrayList<>();
+        String batch = selectBatch(userId, selection, afterId, limit, null, params);
+        params.add(listId);
+        params.add(userId);
+        return runBatch(batch, INSERT_BATCH, params);
+    }
+
+    // Igual que addSelected, pero recorriendo solo los miembros actuales de la lista
+    public BatchResult removeSelected(Long listId, Long userId, ContactSelection selection, long afterId, int limit) {
+        List<Object> params = new ArrayList<>();
+        String batch = selectBatch(userId, selection, afterId, limit, listId, params);
+        params.add(listId);
+        return runBatch(batch, DELETE_BATCH, params);
+    }
+
+    private BatchResult runBatch(String batch, String change, List<Object> params) {
+        String sql = "WITH batch AS (" + batch + "), changed AS (" + change + ") " +
+            "SELECT count(*), max(id), (SELECT count(*) FROM changed) FROM batch";
+        return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> {
+            BatchResult result = new BatchResult();
+            result.matched = rs.getInt(1);
+            result.lastId = rs.getLong(2);
+            result.changed = rs.getInt(3);
+            return result;
+        }, params.toArray());
+    }
+
+    // Keyset sobre contacts.id: cada lote es un rango de la clave primaria, sin OFFSET
+    private String selectBatch(Long userId, ContactSelection selection, long afterId, int limit,
+                               Long memberOfListId, List<Object> params) {
+        if (selection.hasExplicitIds()) {
+            throw new IllegalArgumentException("Una selección por filtros no admite contactIds");
+        }
+        StringBuilder sql = new StringBuilder("SELECT c.id FROM contacts c");
+        if (memberOfListId != null) {
+            sql.append(" JOIN contact_list_memberships t ON t.contact_id = c.id AND t.contact_list_id = ?");
+            params.add(memberOfListId);
+        }
+        sql.append(" WHERE c.user_id = ? AND c.id > ?");
+        params.add(userId);
+        params.add(afterId);
+        if (selection.getToId() != null) {
+            sql.append(" AND c.id <= ?");
+            params.add(selection.getToId());
+        }
+        if (selection.getSearch() != null && !selection.getSearch().isBlank()) {
+            String term = "%" + escapeLike(selection.getSearch().trim().toLowerCase(Locale.ROOT)) + "%";
+            sql.append(" AND (lower(c.email) LIKE ? ESCAPE '\\' OR lower(c.first_name) LIKE ? ESCAPE '\\' ")
+               .append("OR lower(c.last_name) LIKE ? ESCAPE '\\' OR lower(c.company) LIKE ? ESCAPE '\\')");
+            for (int i = 0; i < 4; i++) {
+                params.add(term);
+            }
+        }
+        if (selection.getSubscribed() != null) {
+            sql.append(" AND c.is_subscribed = ?");
+            params.add(selection.getSubscribed());
+        }
+        if (selection.getActive() != null) {
+            sql.append(" AND c.is_active = ?");
+            params.add(selection.getActive());
+        }
+        if (selection.getSourceListId() != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM contact_list_memberships s ")
+               .append("WHERE s.contact_id = c.id AND s.contact_list_id = ?)");
+            params.add(selection.getSourceListId());
+        }
+        sql.append(" ORDER BY c.id LIMIT ?");
+        params.add(limit);
+        return sql.toString();
+    }
+
+    // % y _ del término se buscan literalmente
+    private static String escapeLike(String term) {
+        return term.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public static class BatchResult {
+        private int matched;
+        private long lastId;
+        private int changed;
+
+        public int getMatched() { return matched; }
+        // Último id del lote: el afterId del siguiente
+        public long getLastId() { return lastId; }
+        public int getChanged() { return changed; }
+    }
+}
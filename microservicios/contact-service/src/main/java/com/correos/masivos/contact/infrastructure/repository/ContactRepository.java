@@ -42,6 +42,14 @@ public interface ContactRepository extends JpaRepository<Contact, Long> {
     // Validaciones
     boolean existsByEmailAndUserId(String email, Long userId);
     
+    // Misma expresión que ux_contacts_user_email (user_id, lower(email)); el email llega normalizado
+    @Query("SELECT COUNT(c) > 0 FROM Contact c WHERE c.userId = :userId AND LOWER(c.email) = :email")
+    boolean existsByUserIdAndNormalizedEmail(@Param("userId") Long userId, @Param("email") String email);
+    
+    @Query("SELECT COUNT(c) > 0 FROM Contact c WHERE c.userId = :userId AND LOWER(c.email) = :email AND c.id <> :id")
+    boolean existsOtherByUserIdAndNormalizedEmail(@Param("userId") Long userId, @Param("email") String email,
+                                                  @Param("id") Long id);
+    
     // Contadores
     long countByUserId(Long userId);
     long countByUserIdAndIsActive(Long userId, Boolean isActive);
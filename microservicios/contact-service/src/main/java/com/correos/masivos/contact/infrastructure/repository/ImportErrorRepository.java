@@ -0,0 +1,82 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import com.correos.masivos.contact.domain.model.ImportError;
+import com.correos.masivos.contact.infrastructure.importer.ImportRowError;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class ImportErrorRepository {
+
+    private static final String INSERT =
+        "INSERT INTO import_errors (import_id, row_number, error_type, error_message, row_data) " +
+        "VALUES (?, ?, ?, ?, ?::jsonb)";
+
+    // Keyset sobre (import_id, id) con el índice de V6
+    private static final String FIND_PAGE =
+        "SELECT id, import_id, row_number, error_type, error_message, row_data::text AS row_data, created_at " +
+        "FROM import_errors WHERE import_id = ? AND id > ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    // Errores de un bloque en un único batch JDBC, dentro de la transacción del bloque: si este
+    // se revierte (y se repite al reanudar) sus errores no quedan duplicados. El JSON de la fila
+    // solo se construye aquí, para las filas rechazadas.
+    public void insertBatch(Long importId, String[] headers, List<ImportRowError> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT, errors, errors.size(), (ps, error) -> {
+            ps.setLong(1, importId);
+            ps.setInt(2, (int) error.getRowNumber());
+            ps.setString(3, error.getType().name());
+            ps.setString(4, error.getType().getMessage());
+            ps.setString(5, toJson(headers, error.getValues()));
+        });
+    }
+
+    public List<ImportError> findPage(Long importId, long afterId, int limit) {
+        return jdbcTemplate.query(FIND_PAGE, (rs, rowNum) -> {
+            ImportError error = new ImportError();
+            error.setId(rs.getLong("id"));
+            error.setImportId(rs.getLong("import_id"));
+            error.setRowNumber(rs.getInt("row_number"));
+            error.setErrorType(rs.getString("error_type"));
+            error.setErrorMessage(rs.getString("error_message"));
+            error.setRowData(rs.getString("row_data"));
+            Timestamp createdAt = rs.getTimestamp("created_at");
+            error.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : null);
+            return error;
+        }, importId, afterId, limit);
+    }
+
+    // Cabecera -> valor; las columnas sin cabecera (o de más) se nombran por su posición
+    private String toJson(String[] headers, String[] values) {
+        if (values == null) {
+            return null;
+        }
+        Map<String, String> row = new LinkedHashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            String header = headers != null && i < headers.length && headers[i] != null && !headers[i].isBlank()
+                ? headers[i].trim() : "column" + (i + 1);
+            row.putIfAbsent(header, values[i]);
+        }
+        try {
+            return objectMapper.writeValueAsString(row);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package com.correos.masivos.contact.infrastructure.service;
+
+import com.correos.masivos.contact.domain.model.ContactImport;
+import com.correos.masivos.contact.domain.service.ContactDeletionService;
+import com.correos.masivos.contact.infrastructure.repository.ContactDeleteRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Borra todos los contactos de un usuario por lotes de ids, cada lote en su propia transacción:
+// ni una transacción gigante ni bloqueos sobre millones de filas, y el progreso es visible
+// mientras avanza. El bloqueo por usuario tiene un TTL corto que se renueva en cada lote (como
+// el latido de las importaciones): si la instancia muere, caduca enseguida y volver a lanzarlo
+// continúa con lo que quede.
+@Service
+public class ContactDeletionServiceImpl implements ContactDeletionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ContactDeletionServiceImpl.class);
+    private static final String DELETE_JOB_KEY = "contacts:delete:";
+    private static final String USER_LOCK_KEY = "contacts:delete:user:";
+    private static final int LOCK_ATTEMPTS = 3;
+
+    @Autowired
+    private ContactDeleteRepository contactDeleteRepository;
+
+    @Autowired
+    private ContactRepository contactRepository;
+
+    @Autowired
+    private ContactImportRepository importRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    @Qualifier("contactDeletionExecutor")
+    private Executor contactDeletionExecutor;
+
+    @Value("${contacts.delete.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${contacts.delete.job-ttl-hours:24}")
+    private long jobTtlHours;
+
+    @Value("${contacts.delete.lock-ttl-seconds:120}")
+    private long lockTtlSeconds;
+
+    @Override
+    public String submit(Long userId) {
+        String jobId = UUID.randomUUID().toString();
+        // Un solo borrado por usuario: si ya hay uno en curso se devuelve ese
+        String lockKey = USER_LOCK_KEY + userId;
+        boolean acquired = false;
+        for (int attempt = 0; attempt < LOCK_ATTEMPTS && !acquired; attempt++) {
+            acquired = Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, jobId, lockTtl()));
+            if (!acquired) {
+                String running = redisTemplate.opsForValue().get(lockKey);
+                if (running != null) {
+                    logger.info("Borrado ya en curso para el usuario {}: jobId={}", userId, running);
+                    return running;
+                }
+                // El bloqueo caducó entre las dos llamadas: se vuelve a intentar
+            }
+        }
+        if (!acquired) {
+            throw new IllegalStateException("No se pudo reservar el borrado de contactos del usuario");
+        }
+
+        // El bloqueo se toma antes de mirar las importaciones y el worker lo comprueba después de
+        // reservar la suya (ContactImportWorker): al menos uno de los dos ve al otro
+        if (hasImportsInProgress(userId)) {
+            releaseLock(jobId, userId);
+            throw new IllegalStateException("El usuario tiene importaciones en curso");
+        }
+
+        createJob(jobId, userId);
+        try {
+            contactDeletionExecutor.execute(() -> run(jobId, userId));
+        } catch (RejectedExecutionException e) {
+            finishJob(jobId, userId, "FAILED", "Demasiados borrados en curso");
+            throw e;
+        }
+        logger.info("Borrado de contactos encolado: userId={}, jobId={}", userId, jobId);
+        return jobId;
+    }
+
+    @Override
+    public boolean isDeleting(Long userId) {
+        return Boolean.TRUE.equals(redisTemplate.hasKey(USER_LOCK_KEY + userId));
+    }
+
+    @Override
+    public Optional<Map<String, Object>> getProgress(String jobId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(DELETE_JOB_KEY + jobId);
+        if (entries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Object status = entries.get("status");
+        long userId = parseLong(entries.get("userId"));
+        if (("QUEUED".equals(status) || "RUNNING".equals(status))
+                && !jobId.equals(redisTemplate.opsForValue().get(USER_LOCK_KEY + userId))) {
+            // Sin bloqueo la instancia que lo ejecutaba se detuvo: se puede volver a lanzar
+            status = "ABANDONED";
+        }
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", jobId);
+        progress.put("userId", userId);
+        progress.put("status", status);
+        progress.put("totalContacts", parseLong(entries.get("total")));
+        progress.put("deletedContacts", parseLong(entries.get("deletedContacts")));
+        progress.put("deletedMemberships", parseLong(entries.get("deletedMemberships")));
+        progress.put("error", entries.get("error"));
+        progress.put("createdAt", entries.get("createdAt"));
+        progress.put("finishedAt", entries.get("finishedAt"));
+        return Optional.of(progress);
+    }
+
+    private void run(String jobId, Long userId) {
+        long deletedContacts = 0;
+        long deletedMemberships = 0;
+        long afterId = 0;
+
+        try {
+            // En la cola del executor el bloqueo ha podido caducar: se recupera y, si entretanto
+            // empezó una importación, no se borra nada
+            renewLock(jobId, userId);
+            if (hasImportsInProgress(userId)) {
+                throw new IllegalStateException("El usuario tiene importaciones en curso");
+            }
+            updateJob(jobId, "status", "RUNNING");
+            // Total aproximado para el porcentaje: puede cambiar mientras se borra
+            updateJob(jobId, "total", String.valueOf(contactRepository.countByUserId(userId)));
+            while (true) {
+                List<Long> ids = contactDeleteRepository.findUserContactIds(userId, afterId, batchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                afterId = ids.get(ids.size() - 1);
+
+                Long[] batch = ids.toArray(new Long[0]);
+                int[] deleted = transactionTemplate.execute(status -> new int[] {
+                    contactDeleteRepository.deleteMemberships(userId, batch),
+                    contactDeleteRepository.deleteContacts(userId, batch)
+                });
+                deletedMemberships += deleted[0];
+                deletedContacts += deleted[1];
+                saveProgress(jobId, deletedContacts, deletedMemberships);
+                renewLock(jobId, userId);
+            }
+            finishJob(jobId, userId, "COMPLETED", null);
+            logger.info("Borrado de contactos completado: userId={}, contactos={}, membresías={}",
+                       userId, deletedContacts, deletedMemberships);
+        } catch (Exception e) {
+            saveProgress(jobId, deletedContacts, deletedMemberships);
+            finishJob(jobId, userId, "FAILED", e.getMessage());
+            logger.error("Error borrando los contactos del usuario {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private void createJob(String jobId, Long userId) {
+        String key = DELETE_JOB_KEY + jobId;
+        Map<String, String> job = new HashMap<>();
+        job.put("userId", String.valueOf(userId));
+        job.put("status", "QUEUED");
+        job.put("total", "0");
+        job.put("deletedContacts", "0");
+        job.put("deletedMemberships", "0");
+        job.put("createdAt", LocalDateTime.now().toString());
+        redisTemplate.opsForHash().putAll(key, job);
+        redisTemplate.expire(key, Duration.ofHours(jobTtlHours));
+    }
+
+    private void saveProgress(String jobId, long deletedContacts, long deletedMemberships) {
+        try {
+            Map<String, String> progress = new HashMap<>();
+            progress.put("deletedContacts", String.valueOf(deletedContacts));
+            progress.put("deletedMemberships", String.valueOf(deletedMemberships));
+            redisTemplate.opsForHash().putAll(DELETE_JOB_KEY + jobId, progress);
+        } catch (Exception e) {
+            // El progreso es informativo: no debe detener el borrado
+            logger.warn("No se pudo registrar el progreso del borrado {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void updateJob(String jobId, String field, String value) {
+        try {
+            redisTemplate.opsForHash().put(DELETE_JOB_KEY + jobId, field, value);
+        } catch (Exception e) {
+            logger.warn("No se pudo actualizar el borrado {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void finishJob(String jobId, Long userId, String status, String error) {
+        updateJob(jobId, "status", status);
+        updateJob(jobId, "finishedAt", LocalDateTime.now().toString());
+        if (error != null) {
+            updateJob(jobId, "error", error);
+        }
+        releaseLock(jobId, userId);
+    }
+
+    private boolean hasImportsInProgress(Long userId) {
+        return importRepository.countByUserIdAndStatus(userId, ContactImport.ImportStatus.PROCESSING) > 0;
+    }
+
+    // Latido del bloqueo: se alarga el TTL si sigue siendo nuestro, se recupera si caducó y se
+    // aborta si otro trabajo se quedó con él
+    private void renewLock(String jobId, Long userId) {
+        String lockKey = USER_LOCK_KEY + userId;
+        String holder = redisTemplate.opsForValue().get(lockKey);
+        if (jobId.equals(holder)) {
+            redisTemplate.expire(lockKey, lockTtl());
+            return;
+        }
+        if (holder == null && Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(lockKey, jobId, lockTtl()))) {
+            return;
+        }
+        throw new IllegalStateException("El bloqueo de borrado del usuario ya no pertenece a este trabajo");
+    }
+
+    private Duration lockTtl() {
+        return Duration.ofSeconds(lockTtlSeconds);
+    }
+
+    private void releaseLock(String jobId, Long userId) {
+        try {
+            String lockKey = USER_LOCK_KEY + userId;
+            if (jobId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        } catch (Exception e) {
+            // El bloqueo caduca solo en lockTtlSeconds
+            logger.warn("No se pudo liberar el bloqueo de borrado del usuario {}: {}", userId, e.getMessage());
+        }
+    }
+
+    private long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+}
@@ -1,40 +1,76 @@
 package com.correos.masivos.contact.infrastructure.service;
 
-import com.correos.masivos.contact.domain.model.Contact;
 import com.correos.masivos.contact.domain.model.ContactImport;
+import com.correos.masivos.contact.domain.model.ImportError;
 import com.correos.masivos.contact.domain.service.ContactImportService;
-import com.correos.masivos.contact.domain.service.ContactService;
+import com.correos.masivos.contact.infrastructure.importer.ContactImportWorker;
+import com.correos.masivos.contact.infrastructure.importer.CsvRowReader;
+import com.correos.masivos.contact.infrastructure.importer.RowReader;
+import com.correos.masivos.contact.infrastructure.importer.XlsxRowReader;
 import com.correos.masivos.contact.infrastructure.repository.ContactImportRepository;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import com.correos.masivos.contact.infrastructure.repository.ContactListRepository;
+import com.correos.masivos.contact.infrastructure.repository.ImportErrorRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 @Service
 @Transactional
 public class ContactImportServiceImpl implements ContactImportService {
 
+    private static final Logger logger = LoggerFactory.getLogger(ContactImportServiceImpl.class);
+
     @Autowired
     private ContactImportRepository importRepository;
 
     @Autowired
-    private ContactService contactService;
+    private ImportErrorRepository importErrorRepository;
+
+    @Autowired
+    private ContactListRepository contactListRepository;
+
+    @Autowired
+    private CsvRowReader csvRowReader;
+
+    @Autowired
+    private XlsxRowReader xlsxRowReader;
+
+    @Autowired
+    private ContactImportWorker contactImportWorker;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${contacts.import.storage-dir:./data/imports}")
+    private String storageDir;
 
     @Override
     public ContactImport createImport(String originalFilename, Long userId, Long contactListId) {
+        // La lista de destino debe ser del mismo usuario: el worker añade a ella cada bloque importado
+        if (contactListId != null && contactListRepository.findById(contactListId)
+                .filter(list -> userId.equals(list.getUserId())).isEmpty()) {
+            throw new RuntimeException("Contact list not found");
+        }
         String filename = UUID.randomUUID().toString() + "_" + originalFilename;
-        return importRepository.save(new ContactImport(filename, originalFilename, userId));
+        ContactImport importRecord = new ContactImport(filename, originalFilename, userId);
+        importRecord.setContactListId(contactListId);
+        return importRepository.save(importRecord);
     }
 
     @Override
@@ -49,50 +85,17 @@ public class ContactImportServiceImpl implements ContactImportService {
         return importRepository.findByUserId(userId, pageable);
     }
 
+    // Fuera de transacción: el registro debe estar confirmado antes de que lo recoja el worker
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ContactImport processCSVFile(MultipartFile file, Long userId, Long contactListId, Map<String, String> fieldMapping) {
-        ContactImport importRecord = createImport(file.getOriginalFilename(), userId, contactListId);
-        importRecord.setFileSize(file.getSize());
-        
-        try {
-            importRecord.startProcessing();
-            importRepository.save(importRecord);
-
-            List<Contact> contacts = parseCSVFile(file, userId, fieldMapping);
-            importRecord.setTotalRecords(contacts.size());
-            
-            processContacts(contacts, importRecord);
-            
-            importRecord.complete();
-            return importRepository.save(importRecord);
-            
-        } catch (Exception e) {
-            importRecord.fail("Error procesando archivo CSV: " + e.getMessage());
-            return importRepository.save(importRecord);
-        }
+        return submitImport(file, userId, contactListId, fieldMapping, ContactImport.FileType.CSV);
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public ContactImport processExcelFile(MultipartFile file, Long userId, Long contactListId, Map<String, String> fieldMapping) {
-        ContactImport importRecord = createImport(file.getOriginalFilename(), userId, contactListId);
-        importRecord.setFileSize(file.getSize());
-        
-        try {
-            importRecord.startProcessing();
-            importRepository.save(importRecord);
-
-            List<Contact> contacts = parseExcelFile(file, userId, fieldMapping);
-            importRecord.setTotalRecords(contacts.size());
-            
-            processContacts(contacts, importRecord);
-            
-            importRecord.complete();
-            return importRepository.save(importRecord);
-            
-        } catch (Exception e) {
-            importRecord.fail("Error procesando archivo Excel: " + e.getMessage());
-            return importRepository.save(importRecord);
-        }
+        return submitImport(file, userId, contactListId, fieldMapping, ContactImport.FileType.XLSX);
     }
 
     @Override
@@ -115,88 +118,25 @@ public class ContactImportServiceImpl implements ContactImportService {
     @Override
     @Transactional(readOnly = true)
     public List<String> getCSVHeaders(MultipartFile file) {
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            String[] headers = reader.readNext();
-            return headers != null ? Arrays.asList(headers) : Collections.emptyList();
-        } catch (IOException | CsvException e) {
-            return Collections.emptyList();
-        }
+        return readHeaders(csvRowReader, file);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<String> getExcelHeaders(MultipartFile file) {
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
-            
-            if (headerRow == null) return Collections.emptyList();
-            
-            List<String> headers = new ArrayList<>();
-            for (Cell cell : headerRow) {
-                headers.add(cell.getStringCellValue());
-            }
-            return headers;
-        } catch (IOException e) {
-            return Collections.emptyList();
-        }
+        return readHeaders(xlsxRowReader, file);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Map<String, Object>> previewCSVData(MultipartFile file, int maxRows) {
-        List<Map<String, Object>> preview = new ArrayList<>();
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            String[] headers = reader.readNext();
-            if (headers == null) return preview;
-            
-            String[] row;
-            int count = 0;
-            while ((row = reader.readNext()) != null && count < maxRows) {
-                Map<String, Object> rowData = new HashMap<>();
-                for (int i = 0; i < Math.min(headers.length, row.length); i++) {
-                    rowData.put(headers[i], row[i]);
-                }
-                preview.add(rowData);
-                count++;
-            }
-        } catch (IOException | CsvException e) {
-            // Log error
-        }
-        return preview;
+        return preview(csvRowReader, file, maxRows);
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<Map<String, Object>> previewExcelData(MultipartFile file, int maxRows) {
-        List<Map<String, Object>> preview = new ArrayList<>();
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
-            
-            if (headerRow == null) return preview;
-            
-            List<String> headers = new ArrayList<>();
-            for (Cell cell : headerRow) {
-                headers.add(cell.getStringCellValue());
-            }
-            
-            for (int i = 1; i <= Math.min(maxRows, sheet.getLastRowNum()); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-                
-                Map<String, Object> rowData = new HashMap<>();
-                for (int j = 0; j < headers.size(); j++) {
-                    Cell cell = row.getCell(j);
-                    String value = cell != null ? cell.toString() : "";
-                    rowData.put(headers.get(j), value);
-                }
-                preview.add(rowData);
-            }
-        } catch (IOException e) {
-            // Log error
-        }
-        return preview;
+        return preview(xlsxRowReader, file, maxRows);
     }
 
     @Override
@@ -209,12 +149,12 @@ public class ContactImportServiceImpl implements ContactImportService {
 
     @Override
     public void updateImportProgress(Long importId, int processed, int successful, int failed) {
-        importRepository.findById(importId).ifPresent(importRecord -> {
-            importRecord.setProcessedRecords(processed);
-            importRecord.setSuccessfulRecords(successful);
-            importRecord.setFailedRecords(failed);
-            importRepository.save(importRecord);
-        });
+        importRepository.updateProgress(importId, processed, successful, failed);
+    }
+
+    @Override
+    public List<ImportError> findImportErrors(Long importId, long afterId, int limit) {
+        return importErrorRepository.findPage(importId, afterId, limit);
     }
 
     @Override
@@ -241,113 +181,69 @@ public class ContactImportServiceImpl implements ContactImportService {
     }
 
     // Métodos privados auxiliares
-    private List<Contact> parseCSVFile(MultipartFile file, Long userId, Map<String, String> fieldMapping) 
-            throws IOException, CsvException {
-        List<Contact> contacts = new ArrayList<>();
-        
-        try (CSVReader reader = new CSVReader(new InputStreamReader(file.getInputStream()))) {
-            String[] headers = reader.readNext();
-            if (headers == null) return contacts;
-            
-            String[] row;
-            while ((row = reader.readNext()) != null) {
-                Contact contact = mapRowToContact(headers, row, userId, fieldMapping);
-                if (contact != null) {
-                    contacts.add(contact);
-                }
-            }
-        }
-        return contacts;
-    }
 
-    private List<Contact> parseExcelFile(MultipartFile file, Long userId, Map<String, String> fieldMapping) 
-            throws IOException {
-        List<Contact> contacts = new ArrayList<>();
-        
-        try (Workbook workbook = new XSSFWorkbook(file.getInputStream())) {
-            Sheet sheet = workbook.getSheetAt(0);
-            Row headerRow = sheet.getRow(0);
-            
-            if (headerRow == null) return contacts;
-            
-            List<String> headers = new ArrayList<>();
-            for (Cell cell : headerRow) {
-                headers.add(cell.getStringCellValue());
-            }
-            
-            for (int i = 1; i <= sheet.getLastRowNum(); i++) {
-                Row row = sheet.getRow(i);
-                if (row == null) continue;
-                
-                String[] rowData = new String[headers.size()];
-                for (int j = 0; j < headers.size(); j++) {
-                    Cell cell = row.getCell(j);
-                    rowData[j] = cell != null ? cell.toString() : "";
-                }
-                
-                Contact contact = mapRowToContact(headers.toArray(new String[0]), rowData, userId, fieldMapping);
-                if (contact != null) {
-                    contacts.add(contact);
-                }
-            }
-        }
-        return contacts;
-    }
-
-    private Contact mapRowToContact(String[] headers, String[] row, Long userId, Map<String, String> fieldMapping) {
-        Map<String, String> rowMap = new HashMap<>();
-        for (int i = 0; i < Math.min(headers.length, row.length); i++) {
-            rowMap.put(headers[i], row[i]);
-        }
+    // Guarda el archivo en disco y deja la importación PENDING para el worker; la petición
+    // termina sin esperar al procesamiento (el progreso se consulta en GET /contacts/import/{id})
+    private ContactImport submitImport(MultipartFile file, Long userId, Long contactListId,
+                                       Map<String, String> fieldMapping, ContactImport.FileType fileType) {
+        ContactImport importRecord = createImport(file.getOriginalFilename(), userId, contactListId);
+        importRecord.setFileSize(file.getSize());
 
-        String email = getFieldValue(rowMap, fieldMapping, "email");
-        if (email == null || email.trim().isEmpty()) {
-            return null; // Email es requerido
+        try {
+            Path directory = Paths.get(storageDir);
+            Files.createDirectories(directory);
+            Path target = directory.resolve(importRecord.getFilename().replaceAll("[^A-Za-z0-9._-]", "_"));
+            file.transferTo(target);
+
+            importRecord.setFilePath(target.toAbsolutePath().toString());
+            importRecord.setFileType(fileType);
+            importRecord.setFieldMapping(objectMapper.writeValueAsString(fieldMapping));
+            importRecord = importRepository.save(importRecord);
+        } catch (IOException e) {
+            logger.error("No se pudo guardar el archivo de la importación {}: {}", importRecord.getId(), e.getMessage());
+            importRecord.fail("Error guardando el archivo: " + e.getMessage());
+            return importRepository.save(importRecord);
         }
 
-        Contact contact = new Contact(email.trim(), userId);
-        contact.setFirstName(getFieldValue(rowMap, fieldMapping, "firstName"));
-        contact.setLastName(getFieldValue(rowMap, fieldMapping, "lastName"));
-        contact.setPhone(getFieldValue(rowMap, fieldMapping, "phone"));
-        contact.setCompany(getFieldValue(rowMap, fieldMapping, "company"));
-        contact.setPosition(getFieldValue(rowMap, fieldMapping, "position"));
-        contact.setCountry(getFieldValue(rowMap, fieldMapping, "country"));
-        contact.setCity(getFieldValue(rowMap, fieldMapping, "city"));
-
-        return contact;
+        contactImportWorker.submit(importRecord.getId());
+        return importRecord;
     }
 
-    private String getFieldValue(Map<String, String> rowMap, Map<String, String> fieldMapping, String field) {
-        String mappedField = fieldMapping.get(field);
-        return mappedField != null ? rowMap.get(mappedField) : null;
+    private List<String> readHeaders(RowReader rowReader, MultipartFile file) {
+        List<String> headers = new ArrayList<>();
+        try (InputStream in = file.getInputStream()) {
+            // Solo se lee la primera fila
+            rowReader.read(in, (rowNumber, values) -> {
+                headers.addAll(Arrays.asList(values));
+                return false;
+            });
+            return headers;
+        } catch (IOException e) {
+            return Collections.emptyList();
+        }
     }
 
-    private void processContacts(List<Contact> contacts, ContactImport importRecord) {
-        int processed = 0;
-        int successful = 0;
-        int failed = 0;
-
-        for (Contact contact : contacts) {
-            try {
-                // Verificar si el contacto ya existe
-                if (!contactService.existsByEmailAndUserId(contact.getEmail(), contact.getUserId())) {
-                    contactService.createContact(contact);
-                    successful++;
-                } else {
-                    failed++; // Contacto duplicado
+    private List<Map<String, Object>> preview(RowReader rowReader, MultipartFile file, int maxRows) {
+        List<Map<String, Object>> preview = new ArrayList<>();
+        if (maxRows <= 0) return preview;
+        try (InputStream in = file.getInputStream()) {
+            String[][] headers = new String[1][];
+            rowReader.read(in, (rowNumber, row) -> {
+                if (headers[0] == null) {
+                    headers[0] = row;
+                    return true;
                 }
-            } catch (Exception e) {
-                failed++;
-            }
-            processed++;
-            
-            // Actualizar progreso cada 100 registros
-            if (processed % 100 == 0) {
-                updateImportProgress(importRecord.getId(), processed, successful, failed);
-            }
+                Map<String, Object> rowData = new HashMap<>();
+                for (int i = 0; i < headers[0].length; i++) {
+                    rowData.put(headers[0][i], i < row.length ? row[i] : "");
+                }
+                preview.add(rowData);
+                // Se deja de leer en cuanto se tienen las filas pedidas
+                return preview.size() < maxRows;
+            });
+        } catch (IOException e) {
+            logger.warn("No se pudo previsualizar el archivo {}: {}", file.getOriginalFilename(), e.getMessage());
         }
-        
-        // Actualización final
-        updateImportProgress(importRecord.getId(), processed, successful, failed);
+        return preview;
     }
-}
\ No newline at end of file
+}
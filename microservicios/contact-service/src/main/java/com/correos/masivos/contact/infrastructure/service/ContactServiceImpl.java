@@ -1,18 +1,32 @@
 package com.correos.masivos.contact.infrastructure.service;
 
+import com.correos.masivos.contact.domain.model.BulkMembershipResult;
 import com.correos.masivos.contact.domain.model.Contact;
+import com.correos.masivos.contact.domain.model.ContactList;
 import com.correos.masivos.contact.domain.model.ContactListMembership;
+import com.correos.masivos.contact.domain.model.ContactSelection;
 import com.correos.masivos.contact.domain.service.ContactService;
+import com.correos.masivos.contact.domain.service.DuplicateContactException;
+import com.correos.masivos.contact.infrastructure.importer.ContactValidator;
+import com.correos.masivos.contact.infrastructure.repository.ContactDeleteRepository;
 import com.correos.masivos.contact.infrastructure.repository.ContactRepository;
 import com.correos.masivos.contact.infrastructure.repository.ContactListRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactListMembershipBulkRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactListMembershipBulkRepository.BatchResult;
 import com.correos.masivos.contact.infrastructure.repository.ContactListMembershipRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -28,9 +42,23 @@ public class ContactServiceImpl implements ContactService {
     @Autowired
     private ContactListMembershipRepository membershipRepository;
 
+    @Autowired
+    private ContactListMembershipBulkRepository membershipBulkRepository;
+
+    @Autowired
+    private ContactDeleteRepository contactDeleteRepository;
+
+    // Contactos por sentencia en las operaciones masivas sobre listas
+    @Value("${contacts.bulk.batch-size:10000}")
+    private int bulkBatchSize;
+
     @Override
     public Contact createContact(Contact contact) {
-        return contactRepository.save(contact);
+        normalizeEmail(contact);
+        if (contactRepository.existsByUserIdAndNormalizedEmail(contact.getUserId(), contact.getEmail())) {
+            throw new DuplicateContactException(contact.getEmail());
+        }
+        return saveUnique(contact);
     }
 
     @Override
@@ -53,7 +81,30 @@ public class ContactServiceImpl implements ContactService {
 
     @Override
     public Contact updateContact(Contact contact) {
-        return contactRepository.save(contact);
+        normalizeEmail(contact);
+        if (contactRepository.existsOtherByUserIdAndNormalizedEmail(contact.getUserId(), contact.getEmail(), contact.getId())) {
+            throw new DuplicateContactException(contact.getEmail());
+        }
+        return saveUnique(contact);
+    }
+
+    // Mismo criterio que la importación (ContactValidator), así el índice único
+    // (user_id, lower(email)) y las comprobaciones ven el mismo valor
+    private void normalizeEmail(Contact contact) {
+        String email = ContactValidator.normalizeEmail(contact.getEmail());
+        if (email == null) {
+            throw new IllegalArgumentException("Email inválido: " + contact.getEmail());
+        }
+        contact.setEmail(email);
+    }
+
+    // Dos altas simultáneas pueden pasar ambas la comprobación: el índice único decide
+    private Contact saveUnique(Contact contact) {
+        try {
+            return contactRepository.saveAndFlush(contact);
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicateContactException(contact.getEmail());
+        }
     }
 
     @Override
@@ -122,17 +173,69 @@ public class ContactServiceImpl implements ContactService {
         return contactRepository.findByContactListId(listId);
     }
 
+    // Sin transacción envolvente: cada lote se confirma por separado y no se mantienen bloqueos
+    // sobre toda la selección. Repetir la operación es seguro (ON CONFLICT DO NOTHING / DELETE).
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkMembershipResult addContactsToList(Long listId, ContactSelection selection) {
+        ContactList contactList = findListForBulk(listId, selection);
+        BulkMembershipResult result = new BulkMembershipResult();
+        if (selection.hasExplicitIds()) {
+            for (Long[] batch : batches(selection.getContactIds())) {
+                result.add(0, membershipBulkRepository.addByIds(listId, contactList.getUserId(), batch));
+            }
+            result.setRequested(selection.getContactIds().size());
+            return result;
+        }
+
+        long afterId = selection.getFromId() != null ? selection.getFromId() - 1 : 0;
+        BatchResult batch;
+        do {
+            batch = membershipBulkRepository.addSelected(listId, contactList.getUserId(), selection, afterId, bulkBatchSize);
+            result.add(batch.getMatched(), batch.getChanged());
+            afterId = batch.getLastId();
+        } while (batch.getMatched() == bulkBatchSize);
+        return result;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public BulkMembershipResult removeContactsFromList(Long listId, ContactSelection selection) {
+        ContactList contactList = findListForBulk(listId, selection);
+        BulkMembershipResult result = new BulkMembershipResult();
+        if (selection.hasExplicitIds()) {
+            for (Long[] batch : batches(selection.getContactIds())) {
+                result.add(0, membershipBulkRepository.removeByIds(listId, batch));
+            }
+            result.setRequested(selection.getContactIds().size());
+            return result;
+        }
+
+        long afterId = selection.getFromId() != null ? selection.getFromId() - 1 : 0;
+        BatchResult batch;
+        do {
+            batch = membershipBulkRepository.removeSelected(listId, contactList.getUserId(), selection, afterId, bulkBatchSize);
+            result.add(batch.getMatched(), batch.getChanged());
+            afterId = batch.getLastId();
+        } while (batch.getMatched() == bulkBatchSize);
+        return result;
+    }
+
     @Override
     public List<Contact> createContactsBatch(List<Contact> contacts) {
         return contactRepository.saveAll(contacts);
     }
 
+    // Una transacción para todo el lote; dentro, dos DELETE ... = ANY(?) por cada bulkBatchSize ids.
+    // Solo se borran los contactos del usuario: los ids de otros se ignoran
     @Override
-    public void deleteContactsBatch(List<Long> contactIds) {
-        // Eliminar membresías primero
-        contactIds.forEach(membershipRepository::deleteByContactId);
-        // Luego eliminar contactos
-        contactRepository.deleteByIdIn(contactIds);
+    public int deleteContactsBatch(Long userId, List<Long> contactIds) {
+        int deleted = 0;
+        for (Long[] batch : batches(contactIds)) {
+            contactDeleteRepository.deleteMemberships(userId, batch);
+            deleted += contactDeleteRepository.deleteContacts(userId, batch);
+        }
+        return deleted;
     }
 
     @Override
@@ -188,4 +291,28 @@ public class ContactServiceImpl implements ContactService {
     public long countSubscribedContactsInList(Long listId) {
         return contactRepository.countByContactListIdAndIsSubscribed(listId, true);
     }
+
+    private ContactList findListForBulk(Long listId, ContactSelection selection) {
+        if (selection.hasExplicitIds() && selection.hasFilters()) {
+            // Los filtros no acotan los ids explícitos: se rechaza en lugar de ignorar una parte
+            throw new IllegalArgumentException("No se pueden combinar contactIds con rango o filtros");
+        }
+        if (!selection.hasExplicitIds() && !selection.hasFilters()) {
+            // Evita que un cuerpo vacío actúe sobre todos los contactos del usuario
+            throw new IllegalArgumentException("La selección de contactos está vacía");
+        }
+        return contactListRepository.findById(listId)
+            .orElseThrow(() -> new RuntimeException("Contact list not found"));
+    }
+
+    // Ids sin repetir ni nulos, en lotes de bulkBatchSize para los parámetros ANY(?)
+    private List<Long[]> batches(List<Long> contactIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(contactIds));
+        ids.removeIf(Objects::isNull);
+        List<Long[]> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += bulkBatchSize) {
+            batches.add(ids.subList(from, Math.min(from + bulkBatchSize, ids.size())).toArray(new Long[0]));
+        }
+        return batches;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,41 @@
+-- Email único por usuario sin distinguir mayúsculas/espacios
+-- V3__Unique_contact_email_per_user.sql
+-- La importación masiva escribe con INSERT ... ON CONFLICT (user_id, lower(email)), que necesita
+-- este índice único. Si ya hay duplicados la migración falla con un informe en lugar de borrarlos:
+-- sus ids pueden seguir referenciados desde campaign_recipients.contact_id y desde recipient_id en
+-- email-service, así que la fusión debe decidirla quien opera la base de datos.
+
+DO $$
+DECLARE
+    duplicate_groups BIGINT;
+    report TEXT;
+BEGIN
+    SELECT COUNT(*) INTO duplicate_groups
+    FROM (
+        SELECT 1
+        FROM contacts
+        GROUP BY user_id, lower(btrim(email))
+        HAVING COUNT(*) > 1
+    ) groups;
+
+    IF duplicate_groups > 0 THEN
+        SELECT string_agg(format('user_id=%s email=%s ids=%s', user_id, email, ids), E'\n')
+        INTO report
+        FROM (
+            SELECT user_id, lower(btrim(email)) AS email, array_agg(id ORDER BY id) AS ids
+            FROM contacts
+            GROUP BY user_id, lower(btrim(email))
+            HAVING COUNT(*) > 1
+            ORDER BY user_id, lower(btrim(email))
+            LIMIT 100
+        ) sample;
+
+        RAISE EXCEPTION 'Hay % grupos de contactos con el mismo email para un usuario; fusiónalos antes de aplicar V3', duplicate_groups
+            USING DETAIL = report,
+                  HINT = 'Reasigna las referencias (membresías, campaign_recipients, email logs) al id que se conserve y elimina o cambia el email de los demás. Se muestran como máximo 100 grupos.';
+    END IF;
+END $$;
+
+UPDATE contacts SET email = btrim(email) WHERE email <> btrim(email);
+
+CREATE UNIQUE INDEX ux_contacts_user_email ON contacts (user_id, lower(email));
@@ -0,0 +1,16 @@
+-- Importaciones en segundo plano reanudables
+-- V4__Resumable_contact_imports.sql
+-- El archivo subido se guarda en disco y se procesa por bloques, cada uno en su transacción.
+-- last_row_number es la última fila del archivo ya contabilizada: al reanudar se parte de ahí.
+-- locked_by/heartbeat_at indican qué instancia procesa la importación y si sigue viva.
+
+ALTER TABLE contact_imports
+    ADD COLUMN file_path VARCHAR(500),
+    ADD COLUMN file_type VARCHAR(10),
+    ADD COLUMN field_mapping TEXT,
+    ADD COLUMN last_row_number BIGINT NOT NULL DEFAULT 0,
+    ADD COLUMN locked_by VARCHAR(255),
+    ADD COLUMN heartbeat_at TIMESTAMP;
+
+CREATE INDEX idx_contact_imports_resumable ON contact_imports (id)
+    WHERE status IN ('PENDING', 'PROCESSING') AND file_path IS NOT NULL;
@@ -0,0 +1,18 @@
+-- Bloques confirmados de cada importación en curso
+-- V5__Contact_import_chunks.sql
+-- Con varios escritores en paralelo los bloques se confirman fuera de orden, así que un único
+-- last_row_number no basta para reanudar. Cada bloque registra su rango de filas y sus
+-- contadores en la misma transacción que escribe los contactos; al reanudar se saltan los
+-- rangos registrados. Las filas se borran al terminar la importación.
+
+CREATE TABLE contact_import_chunks (
+    import_id BIGINT NOT NULL,
+    first_row BIGINT NOT NULL,
+    last_row BIGINT NOT NULL,
+    processed INTEGER NOT NULL,
+    successful INTEGER NOT NULL,
+    failed INTEGER NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (import_id, first_row),
+    FOREIGN KEY (import_id) REFERENCES contact_imports(id) ON DELETE CASCADE
+);
@@ -0,0 +1,8 @@
+-- Descarga de errores de importación por keyset
+-- V6__Import_errors_keyset_index.sql
+-- Los errores se leen por páginas WHERE import_id = ? AND id > ? ORDER BY id: con el índice
+-- compuesto cada página es un rango del índice, sin OFFSET ni ordenación. Sustituye al índice
+-- simple sobre import_id, que queda cubierto por el prefijo del nuevo.
+
+CREATE INDEX idx_import_errors_import_id_id ON import_errors(import_id, id);
+DROP INDEX IF EXISTS idx_import_errors_import_id;
@@ -0,0 +1,11 @@
+-- Lista de destino de las importaciones
+-- V7__Contact_import_list_on_delete_set_null.sql
+-- contact_imports.contact_list_id ya se rellena (las importaciones añaden los contactos a la
+-- lista). Borrar la lista no debe fallar por el historial de importaciones: la referencia
+-- pasa a NULL.
+
+ALTER TABLE contact_imports DROP CONSTRAINT IF EXISTS contact_imports_contact_list_id_fkey;
+ALTER TABLE contact_imports ADD CONSTRAINT contact_imports_contact_list_id_fkey
+    FOREIGN KEY (contact_list_id) REFERENCES contact_lists(id) ON DELETE SET NULL;
+
+CREATE INDEX idx_contact_imports_contact_list_id ON contact_imports(contact_list_id);
@@ -0,0 +1,222 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.domain.model.Contact;
+import com.correos.masivos.contact.domain.model.ContactImport;
+import com.correos.masivos.contact.domain.service.ContactDeletionService;
+import com.correos.masivos.contact.infrastructure.repository.ContactBulkRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactBulkRepository.UpsertResult;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportJobRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportJobRepository.ChunkRecord;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportRepository;
+import com.correos.masivos.contact.infrastructure.repository.ImportErrorRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ContactImportWorkerTest {
+
+    private static final Long IMPORT_ID = 1L;
+    private static final Long USER_ID = 7L;
+
+    @TempDir
+    Path tempDir;
+
+    // Lo que llega a la base de datos, escrito por varios escritores a la vez
+    private final List<String> upserted = Collections.synchronizedList(new ArrayList<>());
+    private final List<ImportRowError> rejected = Collections.synchronizedList(new ArrayList<>());
+    private final List<ChunkRecord> chunks = Collections.synchronizedList(new ArrayList<>());
+
+    private ContactImportRepository importRepository;
+    private ContactImportJobRepository importJobRepository;
+    private ContactBulkRepository contactBulkRepository;
+    private ContactDeletionService contactDeletionService;
+    private ExecutorService writers;
+    private ContactImportWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        importRepository = mock(ContactImportRepository.class);
+        importJobRepository = mock(ContactImportJobRepository.class);
+        contactBulkRepository = mock(ContactBulkRepository.class);
+        contactDeletionService = mock(ContactDeletionService.class);
+        ImportErrorRepository importErrorRepository = mock(ImportErrorRepository.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+
+        when(importJobRepository.claim(eq(IMPORT_ID), anyString(), any())).thenReturn(true);
+        when(importJobRepository.findChunks(IMPORT_ID)).thenReturn(List.of());
+        when(importJobRepository.recordChunk(eq(IMPORT_ID), anyString(), any())).thenAnswer(inv -> {
+            chunks.add(inv.getArgument(2));
+            return true;
+        });
+        when(importJobRepository.updateProgress(eq(IMPORT_ID), anyString(), anyLong(), anyInt(), anyInt(), anyInt()))
+            .thenReturn(true);
+        when(importJobRepository.complete(eq(IMPORT_ID), anyString())).thenReturn(true);
+        when(importJobRepository.fail(eq(IMPORT_ID), anyString(), anyString())).thenReturn(true);
+        when(contactBulkRepository.upsert(anyLong(), anyList(), anyList(), anyBoolean(), any())).thenAnswer(inv -> {
+            List<Contact> contacts = inv.getArgument(1);
+            contacts.forEach(contact -> upserted.add(contact.getEmail()));
+            UpsertResult result = new UpsertResult();
+            ReflectionTestUtils.setField(result, "inserted", contacts.size());
+            return result;
+        });
+        doAnswer(inv -> {
+            rejected.addAll(inv.getArgument(2));
+            return null;
+        }).when(importErrorRepository).insertBatch(eq(IMPORT_ID), any(), anyList());
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        ContactValidator contactValidator = new ContactValidator();
+        ReflectionTestUtils.setField(contactValidator, "mxRecordCache", new MxRecordCache());
+        contactValidator.loadDisposableDomains();
+
+        writers = Executors.newFixedThreadPool(2);
+        worker = new ContactImportWorker();
+        ReflectionTestUtils.setField(worker, "importRepository", importRepository);
+        ReflectionTestUtils.setField(worker, "importJobRepository", importJobRepository);
+        ReflectionTestUtils.setField(worker, "contactBulkRepository", contactBulkRepository);
+        ReflectionTestUtils.setField(worker, "csvRowReader", new CsvRowReader());
+        ReflectionTestUtils.setField(worker, "contactValidator", contactValidator);
+        ReflectionTestUtils.setField(worker, "importErrorRepository", importErrorRepository);
+        ReflectionTestUtils.setField(worker, "contactDeletionService", contactDeletionService);
+        ReflectionTestUtils.setField(worker, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(worker, "objectMapper", new ObjectMapper());
+        // El trabajo se ejecuta dentro de submit; los escritores sí van en sus propios hilos
+        ReflectionTestUtils.setField(worker, "contactImportExecutor", (Executor) Runnable::run);
+        ReflectionTestUtils.setField(worker, "contactImportWriterExecutor", writers);
+        ReflectionTestUtils.setField(worker, "chunkSize", 2);
+        ReflectionTestUtils.setField(worker, "writersPerJob", 2);
+        ReflectionTestUtils.setField(worker, "queueCapacity", 2);
+        ReflectionTestUtils.setField(worker, "progressIntervalMs", 0L);
+        ReflectionTestUtils.setField(worker, "staleAfterSeconds", 300L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writers.shutdownNow();
+    }
+
+    private Path givenImport(String csv) throws IOException {
+        Path file = tempDir.resolve("import.csv");
+        Files.write(file, csv.getBytes(StandardCharsets.UTF_8));
+        ContactImport importRecord = new ContactImport();
+        importRecord.setId(IMPORT_ID);
+        importRecord.setUserId(USER_ID);
+        importRecord.setFilePath(file.toString());
+        importRecord.setFileType(ContactImport.FileType.CSV);
+        importRecord.setFieldMapping("{\"email\":\"Email\",\"firstName\":\"Nombre\"}");
+        when(importRepository.findById(IMPORT_ID)).thenReturn(Optional.of(importRecord));
+        return file;
+    }
+
+    private Map<Long, ImportErrorType> rejectionsByRow() {
+        Map<Long, ImportErrorType> byRow = new TreeMap<>();
+        for (ImportRowError error : rejected) {
+            byRow.put(error.getRowNumber(), error.getType());
+        }
+        return byRow;
+    }
+
+    private List<ChunkRecord> sortedChunks() {
+        return chunks.stream().sorted(Comparator.comparingLong(ChunkRecord::getFirstRow)).collect(Collectors.toList());
+    }
+
+    @Test
+    void testRejectsAreRecordedAndValidRowsWrittenNormalized() throws IOException {
+        Path file = givenImport(
+            "Email,Nombre\n" +
+            "ana@example.com,Ana\n" +
+            "not-an-email,Mal\n" +
+            ",Sin email\n" +
+            " ANA@Example.com ,Repetida\n" +
+            ",\n" +
+            "luis@mailinator.com,Desechable\n" +
+            "Pepe@Example.com,Pepe\n");
+
+        worker.submit(IMPORT_ID);
+
+        assertEquals(List.of("ana@example.com", "pepe@example.com"),
+            upserted.stream().sorted().collect(Collectors.toList()));
+        assertEquals(Map.of(
+            3L, ImportErrorType.INVALID_EMAIL,
+            4L, ImportErrorType.MISSING_EMAIL,
+            5L, ImportErrorType.DUPLICATE_IN_FILE,
+            7L, ImportErrorType.DISPOSABLE_DOMAIN), rejectionsByRow());
+
+        // Los rangos registrados cubren el archivo sin huecos, filas vacías incluidas
+        List<ChunkRecord> recorded = sortedChunks();
+        assertEquals(2, recorded.get(0).getFirstRow());
+        for (int i = 1; i < recorded.size(); i++) {
+            assertEquals(recorded.get(i - 1).getLastRow() + 1, recorded.get(i).getFirstRow());
+        }
+        assertEquals(8, recorded.get(recorded.size() - 1).getLastRow());
+        assertEquals(6, recorded.stream().mapToInt(ChunkRecord::getProcessed).sum());
+        assertEquals(2, recorded.stream().mapToInt(ChunkRecord::getSuccessful).sum());
+        assertEquals(4, recorded.stream().mapToInt(ChunkRecord::getFailed).sum());
+
+        verify(importJobRepository).complete(eq(IMPORT_ID), anyString());
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void testResumeSkipsCommittedRowsButStillSeesTheirEmails() throws IOException {
+        givenImport(
+            "Email,Nombre\n" +
+            "ana@example.com,Ana\n" +
+            "luis@example.com,Luis\n" +
+            "ANA@example.com,Repetida\n" +
+            "pepe@example.com,Pepe\n");
+        // Ejecución anterior detenida tras confirmar las filas 2-3
+        when(importJobRepository.findChunks(IMPORT_ID)).thenReturn(List.of(new ChunkRecord(2, 3, 2, 2, 0)));
+
+        worker.submit(IMPORT_ID);
+
+        assertEquals(List.of("pepe@example.com"), upserted);
+        assertEquals(Map.of(4L, ImportErrorType.DUPLICATE_IN_FILE), rejectionsByRow());
+        List<ChunkRecord> recorded = sortedChunks();
+        assertEquals(4, recorded.get(0).getFirstRow());
+        assertEquals(5, recorded.get(recorded.size() - 1).getLastRow());
+        // Los contadores parten de lo ya confirmado
+        verify(importJobRepository, atLeastOnce()).updateProgress(eq(IMPORT_ID), anyString(), eq(5L), eq(4), eq(3), eq(1));
+        verify(importJobRepository).complete(eq(IMPORT_ID), anyString());
+    }
+
+    @Test
+    void testHeaderWithoutMappedEmailFailsTheImport() throws IOException {
+        givenImport("Correo,Nombre\nana@example.com,Ana\n");
+
+        worker.submit(IMPORT_ID);
+
+        verify(importJobRepository).fail(eq(IMPORT_ID), anyString(), contains("email"));
+        verify(contactBulkRepository, never()).upsert(anyLong(), anyList(), anyList(), anyBoolean(), any());
+    }
+}
@@ -0,0 +1,83 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.domain.model.Contact;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactValidatorTest {
+
+    private ContactValidator validator;
+
+    @BeforeEach
+    void setUp() {
+        validator = new ContactValidator();
+        ReflectionTestUtils.setField(validator, "mxRecordCache", new MxRecordCache());
+        validator.loadDisposableDomains();
+    }
+
+    @Test
+    void testNormalizeEmailTrimsAndLowercases() {
+        assertEquals("ana.perez@example.com", ContactValidator.normalizeEmail("  Ana.Perez@Example.COM "));
+    }
+
+    @Test
+    void testNormalizeEmailConvertsInternationalDomain() {
+        assertEquals("jose@xn--espaa-rta.es", ContactValidator.normalizeEmail("jose@españa.es"));
+    }
+
+    @Test
+    void testNormalizeEmailRejectsMissingParts() {
+        assertNull(ContactValidator.normalizeEmail(null));
+        assertNull(ContactValidator.normalizeEmail("sin-arroba"));
+        assertNull(ContactValidator.normalizeEmail("@example.com"));
+        assertNull(ContactValidator.normalizeEmail("ana@"));
+    }
+
+    @Test
+    void testValidateNormalizesContactEmail() {
+        Contact contact = new Contact(" Ana@Example.com", 1L);
+        assertNull(validator.validate(contact));
+        assertEquals("ana@example.com", contact.getEmail());
+    }
+
+    @Test
+    void testValidateRejectsInvalidEmail() {
+        assertEquals(ImportErrorType.INVALID_EMAIL, validator.validate(new Contact("ana@example", 1L)));
+        assertEquals(ImportErrorType.INVALID_EMAIL, validator.validate(new Contact("ana..perez@example.com", 1L)));
+    }
+
+    @Test
+    void testValidateRejectsDisposableDomainAndSubdomains() {
+        assertEquals(ImportErrorType.DISPOSABLE_DOMAIN, validator.validate(new Contact("ana@mailinator.com", 1L)));
+        assertEquals(ImportErrorType.DISPOSABLE_DOMAIN, validator.validate(new Contact("ana@a.b.mailinator.com", 1L)));
+        assertNull(validator.validate(new Contact("ana@notmailinator.com", 1L)));
+    }
+
+    @Test
+    void testValidateRejectsFieldTooLong() {
+        Contact contact = new Contact("ana@example.com", 1L);
+        contact.setFirstName("a".repeat(100));
+        assertNull(validator.validate(contact));
+
+        contact.setFirstName("a".repeat(101));
+        assertEquals(ImportErrorType.FIELD_TOO_LONG, validator.validate(contact));
+    }
+
+    @Test
+    void testDomainSetContainsFromOffset() {
+        ContactValidator.DomainSet.Builder builder = new ContactValidator.DomainSet.Builder();
+        builder.add("mailinator.com");
+        builder.add("yopmail.com");
+        builder.add("mailinator.com");
+        ContactValidator.DomainSet domains = builder.build();
+
+        assertEquals(2, domains.size());
+        assertTrue(domains.contains("ana@mailinator.com", 4));
+        assertTrue(domains.contains("yopmail.com", 0));
+        assertFalse(domains.contains("ana@mailinator.com", 0));
+        assertFalse(domains.contains("ana@example.com", 4));
+    }
+}
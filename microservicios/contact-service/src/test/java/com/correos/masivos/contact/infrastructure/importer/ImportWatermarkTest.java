@@ -0,0 +1,53 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import com.correos.masivos.contact.infrastructure.repository.ContactImportJobRepository.ChunkRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ImportWatermarkTest {
+
+    @Test
+    void testStartsAtHeaderRow() {
+        ImportWatermark watermark = new ImportWatermark();
+        watermark.start(1, Collections.emptyList());
+        assertEquals(1, watermark.current());
+    }
+
+    @Test
+    void testAdvancesWithContiguousRanges() {
+        ImportWatermark watermark = new ImportWatermark();
+        watermark.start(1, Collections.emptyList());
+        watermark.advance(2, 100);
+        assertEquals(100, watermark.current());
+        watermark.advance(101, 250);
+        assertEquals(250, watermark.current());
+    }
+
+    @Test
+    void testOutOfOrderRangesWaitForGap() {
+        ImportWatermark watermark = new ImportWatermark();
+        watermark.start(1, Collections.emptyList());
+        watermark.advance(201, 300);
+        watermark.advance(101, 200);
+        assertEquals(1, watermark.current());
+
+        watermark.advance(2, 100);
+        assertEquals(300, watermark.current());
+    }
+
+    @Test
+    void testResumeIncludesCommittedChunks() {
+        ImportWatermark watermark = new ImportWatermark();
+        watermark.start(1, Arrays.asList(
+            new ChunkRecord(2, 100, 99, 99, 0),
+            new ChunkRecord(201, 300, 100, 98, 2)));
+        assertEquals(100, watermark.current());
+
+        watermark.advance(101, 200);
+        assertEquals(300, watermark.current());
+    }
+}
@@ -0,0 +1,36 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTest {
+
+    @Test
+    void testAddReportsFirstOccurrence() {
+        LongHashSet set = new LongHashSet(16);
+        assertTrue(set.add(42L));
+        assertFalse(set.add(42L));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void testZeroKeyIsStored() {
+        // 0 marca hueco vacío: la clave 0 se guarda como 1
+        LongHashSet set = new LongHashSet(16);
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+    }
+
+    @Test
+    void testGrowsBeyondExpectedSize() {
+        LongHashSet set = new LongHashSet(16);
+        for (int i = 1; i <= 100000; i++) {
+            assertTrue(set.add(LongHashSet.hash("user" + i + "@example.com")));
+        }
+        for (int i = 1; i <= 100000; i++) {
+            assertFalse(set.add(LongHashSet.hash("user" + i + "@example.com")));
+        }
+        assertEquals(100000, set.size());
+    }
+}
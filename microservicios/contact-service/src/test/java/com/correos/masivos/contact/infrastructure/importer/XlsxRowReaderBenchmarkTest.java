@@ -0,0 +1,177 @@
+package com.correos.masivos.contact.infrastructure.importer;
+
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Compara la lectura por eventos de XlsxRowReader con el modelo DOM (XSSFWorkbook) que usaba
+// antes la importación. La comparación de memoria y velocidad solo se ejecuta bajo demanda:
+//   mvn test -Dtest=XlsxRowReaderBenchmarkTest -Dbenchmark=true [-Dbenchmark.rows=500000]
+class XlsxRowReaderBenchmarkTest {
+
+    private static final String[] HEADER = {"Email", "Nombre", "Apellidos", "Empresa", "Ciudad", "Código"};
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testStreamingReadsSameRowsAsDom() throws Exception {
+        Path file = writeSheet(tempDir.resolve("small.xlsx"), 50);
+        List<String> streamed = new ArrayList<>();
+        List<String> dom = new ArrayList<>();
+
+        new XlsxRowReader().read(file, (rowNumber, values) -> streamed.add(rowNumber + " " + Arrays.toString(values)));
+        readWithDom(file, (rowNumber, values) -> dom.add(rowNumber + " " + Arrays.toString(values)));
+
+        assertEquals(51, streamed.size());
+        assertEquals(dom, streamed);
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmarkStreamingAgainstDom() throws Exception {
+        int rows = Integer.getInteger("benchmark.rows", 200_000);
+        Path file = writeSheet(tempDir.resolve("large.xlsx"), rows);
+
+        // Una pasada de calentamiento por lector antes de medir
+        measure("warmup-streaming", file, true);
+        measure("warmup-dom", file, false);
+        Measurement streaming = measure("streaming", file, true);
+        Measurement dom = measure("dom", file, false);
+
+        System.out.printf("XLSX %d filas (%d KB)%n", rows, Files.size(file) / 1024);
+        System.out.println(streaming);
+        System.out.println(dom);
+        assertEquals(rows + 1L, streaming.rows);
+        assertEquals(rows + 1L, dom.rows);
+        assertTrue(streaming.peakHeapBytes < dom.peakHeapBytes,
+            "La lectura por eventos debería necesitar menos heap que el DOM");
+    }
+
+    // Hoja con cadenas compartidas, como las que genera Excel; una celda vacía en medio de cada fila
+    private static Path writeSheet(Path file, int rows) throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(new XSSFWorkbook(), 500, true, true);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            Sheet sheet = workbook.createSheet("Contactos");
+            Row header = sheet.createRow(0);
+            for (int i = 0; i < HEADER.length; i++) {
+                header.createCell(i).setCellValue(HEADER[i]);
+            }
+            for (int r = 1; r <= rows; r++) {
+                Row row = sheet.createRow(r);
+                row.createCell(0).setCellValue("contacto" + r + "@example.com");
+                row.createCell(1).setCellValue("Nombre " + (r % 1000));
+                if (r % 3 != 0) {
+                    row.createCell(2).setCellValue("Apellido " + (r % 500));
+                }
+                row.createCell(3).setCellValue("Empresa " + (r % 200));
+                row.createCell(4).setCellValue(r % 2 == 0 ? "Madrid" : "Sevilla");
+                row.createCell(5).setCellValue(r);
+            }
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
+        return file;
+    }
+
+    // Lectura equivalente a la anterior: el libro completo en memoria y las celdas formateadas
+    private static void readWithDom(Path file, RowHandler handler) throws Exception {
+        DataFormatter formatter = new DataFormatter();
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XSSFWorkbook workbook = new XSSFWorkbook(pkg)) {
+            for (Row row : workbook.getSheetAt(0)) {
+                String[] values = new String[Math.max(row.getLastCellNum(), 0)];
+                for (int i = 0; i < values.length; i++) {
+                    Cell cell = row.getCell(i);
+                    values[i] = cell != null ? formatter.formatCellValue(cell) : "";
+                }
+                if (!handler.onRow(row.getRowNum() + 1L, values)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static Measurement measure(String name, Path file, boolean streaming) throws Exception {
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                heapPools.add(pool);
+            }
+        }
+        System.gc();
+        long baseline = usedHeap(heapPools);
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long[] count = new long[1];
+        RowHandler counter = (rowNumber, values) -> {
+            count[0]++;
+            return true;
+        };
+        long start = System.nanoTime();
+        if (streaming) {
+            new XlsxRowReader().read(file, counter);
+        } else {
+            readWithDom(file, counter);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        // Suma de los picos de cada zona: cota superior aproximada del heap ocupado durante la lectura
+        long peak = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            peak += pool.getPeakUsage().getUsed();
+        }
+        return new Measurement(name, count[0], elapsedNanos, Math.max(peak - baseline, 0));
+    }
+
+    private static long usedHeap(List<MemoryPoolMXBean> heapPools) {
+        long used = 0;
+        for (MemoryPoolMXBean pool : heapPools) {
+            used += pool.getUsage().getUsed();
+        }
+        return used;
+    }
+
+    private static final class Measurement {
+        private final String name;
+        private final long rows;
+        private final long elapsedNanos;
+        private final long peakHeapBytes;
+
+        private Measurement(String name, long rows, long elapsedNanos, long peakHeapBytes) {
+            this.name = name;
+            this.rows = rows;
+            this.elapsedNanos = elapsedNanos;
+            this.peakHeapBytes = peakHeapBytes;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1_000_000_000.0;
+            return String.format("%-9s %8d filas  %7.0f filas/s  pico heap ~%d MB",
+                name, rows, rows / seconds, peakHeapBytes / (1024 * 1024));
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import com.correos.masivos.contact.domain.model.Contact;
+import com.correos.masivos.contact.infrastructure.repository.ContactBulkRepository.UpsertResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactBulkRepositoryTest {
+
+    private static final Long USER_ID = 7L;
+    private static final Long OTHER_USER_ID = 8L;
+
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private ContactBulkRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        DataSource dataSource = PostgresTestDatabase.dataSource();
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbcTemplate.execute("TRUNCATE contact_list_memberships, contacts, contact_lists RESTART IDENTITY CASCADE");
+
+        repository = new ContactBulkRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    // La tabla temporal vive en la conexión de la transacción, como en el worker
+    private UpsertResult upsert(Long userId, List<Contact> contacts, boolean updateExisting, Long contactListId) {
+        List<Long> rowNumbers = new ArrayList<>();
+        for (int i = 0; i < contacts.size(); i++) {
+            rowNumbers.add((long) i + 2);
+        }
+        return transactionTemplate.execute(status ->
+            repository.upsert(userId, contacts, rowNumbers, updateExisting, contactListId));
+    }
+
+    private static Contact contact(String email, String firstName, String company) {
+        Contact contact = new Contact(email, USER_ID);
+        contact.setFirstName(firstName);
+        contact.setCompany(company);
+        return contact;
+    }
+
+    private Long insertExisting(Long userId, String email, String firstName, String company) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO contacts (email, first_name, company, user_id) VALUES (?, ?, ?, ?) RETURNING id",
+            Long.class, email, firstName, company, userId);
+    }
+
+    private Long insertList(Long userId) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO contact_lists (name, user_id) VALUES ('Lista', ?) RETURNING id", Long.class, userId);
+    }
+
+    @Test
+    void testExistingEmailIsSkippedWithoutUpdate() {
+        insertExisting(USER_ID, "Ana@Example.com", "Ana", "Acme");
+
+        UpsertResult result = upsert(USER_ID, List.of(
+            contact("luis@example.com", "Luis", null),
+            contact("ana@example.com", "Otra", "Otra SA")), false, null);
+
+        assertEquals(1, result.getInserted());
+        assertEquals(0, result.getUpdated());
+        assertEquals(1, result.getSkipped());
+        assertEquals(List.of(1), result.getSkippedIndexes());
+        assertEquals(1, result.getContactIds().size());
+        // El contacto existente no cambia (el índice único ignora mayúsculas)
+        Map<String, Object> ana = jdbcTemplate.queryForMap(
+            "SELECT first_name, company FROM contacts WHERE lower(email) = 'ana@example.com'");
+        assertEquals("Ana", ana.get("first_name"));
+        assertEquals("Acme", ana.get("company"));
+        assertEquals(2, count("SELECT COUNT(*) FROM contacts"));
+    }
+
+    @Test
+    void testUpdateExistingKeepsColumnsLeftEmpty() {
+        Long id = insertExisting(USER_ID, "ana@example.com", "Ana", "Acme");
+
+        UpsertResult result = upsert(USER_ID, List.of(contact("ana@example.com", "Ana María", "")), true, null);
+
+        assertEquals(0, result.getInserted());
+        assertEquals(1, result.getUpdated());
+        assertEquals(List.of(id), result.getContactIds());
+        assertTrue(result.getSkippedIndexes().isEmpty());
+        Map<String, Object> ana = jdbcTemplate.queryForMap("SELECT first_name, company FROM contacts WHERE id = ?", id);
+        assertEquals("Ana María", ana.get("first_name"));
+        assertEquals("Acme", ana.get("company"));
+    }
+
+    @Test
+    void testRepeatedEmailInChunkKeepsFirstRow() {
+        UpsertResult result = upsert(USER_ID, List.of(
+            contact("ana@example.com", "Primera", null),
+            contact("ana@example.com", "Segunda", null)), true, null);
+
+        assertEquals(1, result.getInserted());
+        assertEquals(1, result.getSkipped());
+        assertEquals(List.of(1), result.getSkippedIndexes());
+        assertEquals("Primera", jdbcTemplate.queryForObject(
+            "SELECT first_name FROM contacts WHERE email = 'ana@example.com'", String.class));
+    }
+
+    @Test
+    void testSameEmailOfAnotherUserIsIndependent() {
+        insertExisting(OTHER_USER_ID, "ana@example.com", "Ajena", null);
+
+        UpsertResult result = upsert(USER_ID, List.of(contact("ana@example.com", "Ana", null)), false, null);
+
+        assertEquals(1, result.getInserted());
+        assertEquals(2, count("SELECT COUNT(*) FROM contacts WHERE email = 'ana@example.com'"));
+        assertEquals("Ajena", jdbcTemplate.queryForObject(
+            "SELECT first_name FROM contacts WHERE user_id = ?", String.class, OTHER_USER_ID));
+    }
+
+    @Test
+    void testNewAndExistingContactsAreAddedToOwnList() {
+        insertExisting(USER_ID, "ana@example.com", "Ana", null);
+        Long listId = insertList(USER_ID);
+
+        UpsertResult first = upsert(USER_ID, List.of(
+            contact("ana@example.com", null, null),
+            contact("luis@example.com", null, null)), false, listId);
+        UpsertResult again = upsert(USER_ID, List.of(contact("luis@example.com", null, null)), false, listId);
+
+        assertEquals(2, first.getAddedToList());
+        assertEquals(0, again.getAddedToList());
+        assertEquals(2, count("SELECT COUNT(*) FROM contact_list_memberships WHERE contact_list_id = " + listId));
+    }
+
+    @Test
+    void testListOfAnotherUserIsIgnored() {
+        Long foreignList = insertList(OTHER_USER_ID);
+
+        UpsertResult result = upsert(USER_ID, List.of(contact("ana@example.com", null, null)), false, foreignList);
+
+        assertEquals(1, result.getInserted());
+        assertEquals(0, result.getAddedToList());
+        assertEquals(0, count("SELECT COUNT(*) FROM contact_list_memberships"));
+    }
+
+    @Test
+    void testCopyKeepsQuotesCommasAndLineBreaks() {
+        String company = "Hermanos \"Pérez\", S.L.\nSucursal";
+
+        upsert(USER_ID, List.of(contact("ana@example.com", "O'Brien", company)), false, null);
+
+        Map<String, Object> ana = jdbcTemplate.queryForMap(
+            "SELECT first_name, company, last_name FROM contacts WHERE email = 'ana@example.com'");
+        assertEquals("O'Brien", ana.get("first_name"));
+        assertEquals(company, ana.get("company"));
+        // Sin valor se guarda NULL, no cadena vacía
+        assertNull(ana.get("last_name"));
+    }
+
+    private long count(String sql) {
+        return jdbcTemplate.queryForObject(sql, Long.class);
+    }
+}
@@ -0,0 +1,120 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import com.correos.masivos.contact.domain.model.ContactSelection;
+import com.correos.masivos.contact.infrastructure.repository.ContactListMembershipBulkRepository.BatchResult;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContactListMembershipBulkRepositoryTest {
+
+    private static final Long USER_ID = 7L;
+    private static final Long OTHER_USER_ID = 8L;
+
+    private JdbcTemplate jdbcTemplate;
+    private ContactListMembershipBulkRepository repository;
+    private Long listId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(PostgresTestDatabase.dataSource());
+        jdbcTemplate.execute("TRUNCATE contact_list_memberships, contacts, contact_lists RESTART IDENTITY CASCADE");
+
+        repository = new ContactListMembershipBulkRepository();
+        ReflectionTestUtils.setField(repository, "jdbcTemplate", jdbcTemplate);
+        listId = jdbcTemplate.queryForObject(
+            "INSERT INTO contact_lists (name, user_id) VALUES ('Destino', ?) RETURNING id", Long.class, USER_ID);
+    }
+
+    private Long insertContact(Long userId, String email, String firstName, boolean subscribed) {
+        return jdbcTemplate.queryForObject(
+            "INSERT INTO contacts (email, first_name, user_id, is_subscribed) VALUES (?, ?, ?, ?) RETURNING id",
+            Long.class, email, firstName, userId, subscribed);
+    }
+
+    private List<Long> members() {
+        return jdbcTemplate.queryForList(
+            "SELECT contact_id FROM contact_list_memberships WHERE contact_list_id = ? ORDER BY contact_id",
+            Long.class, listId);
+    }
+
+    @Test
+    void testAddByIdsOnlyAddsOwnContactsOnce() {
+        Long own = insertContact(USER_ID, "ana@example.com", "Ana", true);
+        Long foreign = insertContact(OTHER_USER_ID, "luis@example.com", "Luis", true);
+
+        assertEquals(1, repository.addByIds(listId, USER_ID, new Long[] {own, foreign}));
+        assertEquals(0, repository.addByIds(listId, USER_ID, new Long[] {own}));
+        assertEquals(List.of(own), members());
+
+        assertEquals(1, repository.removeByIds(listId, new Long[] {own, foreign}));
+        assertTrue(members().isEmpty());
+    }
+
+    @Test
+    void testAddSelectedWalksFilteredContactsInKeysetBatches() {
+        Long first = insertContact(USER_ID, "a@example.com", "A", true);
+        insertContact(USER_ID, "b@example.com", "B", false);
+        Long third = insertContact(USER_ID, "c@example.com", "C", true);
+        Long fourth = insertContact(USER_ID, "d@example.com", "D", true);
+        insertContact(OTHER_USER_ID, "e@example.com", "E", true);
+        repository.addByIds(listId, USER_ID, new Long[] {third});
+        ContactSelection selection = new ContactSelection();
+        selection.setSubscribed(true);
+
+        BatchResult batch = repository.addSelected(listId, USER_ID, selection, 0L, 2);
+        assertEquals(2, batch.getMatched());
+        assertEquals(third, batch.getLastId());
+        // El que ya era miembro no cuenta como alta
+        assertEquals(1, batch.getChanged());
+
+        batch = repository.addSelected(listId, USER_ID, selection, batch.getLastId(), 2);
+        assertEquals(1, batch.getMatched());
+        assertEquals(fourth, batch.getLastId());
+        assertEquals(1, batch.getChanged());
+
+        assertEquals(0, repository.addSelected(listId, USER_ID, selection, batch.getLastId(), 2).getMatched());
+        assertEquals(List.of(first, third, fourth), members());
+    }
+
+    @Test
+    void testRemoveSelectedOnlyVisitsCurrentMembers() {
+        Long first = insertContact(USER_ID, "a@example.com", "A", true);
+        Long second = insertContact(USER_ID, "b@example.com", "B", true);
+        insertContact(USER_ID, "c@example.com", "C", true);
+        repository.addByIds(listId, USER_ID, new Long[] {first, second});
+
+        BatchResult batch = repository.removeSelected(listId, USER_ID, new ContactSelection(), 0L, 10);
+
+        assertEquals(2, batch.getMatched());
+        assertEquals(second, batch.getLastId());
+        assertEquals(2, batch.getChanged());
+        assertTrue(members().isEmpty());
+    }
+
+    @Test
+    void testSearchTreatsLikeWildcardsLiterally() {
+        Long literal = insertContact(USER_ID, "ana_100%@example.com", "Ana", true);
+        insertContact(USER_ID, "anax100x@example.com", "Anax", true);
+        ContactSelection selection = new ContactSelection();
+        selection.setSearch(" ANA_100% ");
+
+        BatchResult batch = repository.addSelected(listId, USER_ID, selection, 0L, 10);
+
+        assertEquals(1, batch.getMatched());
+        assertEquals(List.of(literal), members());
+    }
+
+    @Test
+    void testExplicitIdsAreRejectedForFilteredBatches() {
+        ContactSelection selection = ContactSelection.ofIds(List.of(1L));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> repository.addSelected(listId, USER_ID, selection, 0L, 10));
+    }
+}
@@ -0,0 +1,34 @@
+package com.correos.masivos.contact.infrastructure.repository;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.DockerClientFactory;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// PostgreSQL real para los repositorios que dependen de COPY, ON CONFLICT y arrays: un solo
+// contenedor por ejecución con las migraciones de Flyway aplicadas. Sin Docker los tests se omiten.
+final class PostgresTestDatabase {
+
+    private static PostgreSQLContainer<?> postgres;
+    private static DataSource dataSource;
+
+    private PostgresTestDatabase() {
+    }
+
+    static synchronized DataSource dataSource() {
+        assumeTrue(DockerClientFactory.instance().isDockerAvailable(), "Docker no disponible");
+        if (dataSource == null) {
+            postgres = new PostgreSQLContainer<>("postgres:15-alpine");
+            postgres.start();
+            DriverManagerDataSource source = new DriverManagerDataSource(
+                postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+            Flyway.configure().dataSource(source).locations("classpath:db/migration").load().migrate();
+            dataSource = source;
+        }
+        return dataSource;
+    }
+}
@@ -0,0 +1,158 @@
+package com.correos.masivos.contact.infrastructure.service;
+
+import com.correos.masivos.contact.domain.model.ContactImport;
+import com.correos.masivos.contact.infrastructure.repository.ContactDeleteRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactImportRepository;
+import com.correos.masivos.contact.infrastructure.repository.ContactRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ContactDeletionServiceImplTest {
+
+    private static final Long USER_ID = 5L;
+    private static final String LOCK_KEY = "contacts:delete:user:5";
+
+    // Redis en memoria: solo las operaciones que usa el servicio
+    private final Map<String, String> values = new HashMap<>();
+    private final Map<String, Map<Object, Object>> hashes = new HashMap<>();
+
+    private ContactDeleteRepository deleteRepository;
+    private ContactImportRepository importRepository;
+    private Executor executor;
+    private ContactDeletionServiceImpl service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        RedisTemplate<String, String> redisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, String> ops = mock(ValueOperations.class);
+        HashOperations<String, Object, Object> hashOps = mock(HashOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(ops);
+        when(redisTemplate.<Object, Object>opsForHash()).thenReturn(hashOps);
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+            .thenAnswer(inv -> values.putIfAbsent(inv.getArgument(0), inv.getArgument(1)) == null);
+        when(ops.get(anyString())).thenAnswer(inv -> values.get(inv.<String>getArgument(0)));
+        when(redisTemplate.delete(anyString())).thenAnswer(inv -> values.remove(inv.<String>getArgument(0)) != null);
+        when(redisTemplate.hasKey(anyString())).thenAnswer(inv -> values.containsKey(inv.<String>getArgument(0)));
+        doAnswer(inv -> {
+            hashes.computeIfAbsent(inv.getArgument(0), k -> new HashMap<>()).putAll(inv.getArgument(1));
+            return null;
+        }).when(hashOps).putAll(anyString(), any());
+        doAnswer(inv -> {
+            hashes.computeIfAbsent(inv.getArgument(0), k -> new HashMap<>()).put(inv.getArgument(1), inv.getArgument(2));
+            return null;
+        }).when(hashOps).put(anyString(), any(), any());
+        when(hashOps.entries(anyString())).thenAnswer(inv -> new HashMap<>(hashes.getOrDefault(inv.getArgument(0), Map.of())));
+
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(inv -> inv.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+
+        deleteRepository = mock(ContactDeleteRepository.class);
+        importRepository = mock(ContactImportRepository.class);
+        ContactRepository contactRepository = mock(ContactRepository.class);
+        when(contactRepository.countByUserId(USER_ID)).thenReturn(3L);
+        // Sin executor real: el trabajo se ejecuta dentro de submit
+        executor = mock(Executor.class);
+        doAnswer(inv -> {
+            inv.<Runnable>getArgument(0).run();
+            return null;
+        }).when(executor).execute(any());
+
+        service = new ContactDeletionServiceImpl();
+        ReflectionTestUtils.setField(service, "contactDeleteRepository", deleteRepository);
+        ReflectionTestUtils.setField(service, "contactRepository", contactRepository);
+        ReflectionTestUtils.setField(service, "importRepository", importRepository);
+        ReflectionTestUtils.setField(service, "transactionTemplate", transactionTemplate);
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "contactDeletionExecutor", executor);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "jobTtlHours", 24L);
+        ReflectionTestUtils.setField(service, "lockTtlSeconds", 120L);
+    }
+
+    @Test
+    void testDeletesInBatchesScopedToUserAndReleasesLock() {
+        when(deleteRepository.findUserContactIds(USER_ID, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(deleteRepository.findUserContactIds(USER_ID, 2L, 2)).thenReturn(List.of(3L));
+        when(deleteRepository.findUserContactIds(USER_ID, 3L, 2)).thenReturn(List.of());
+        when(deleteRepository.deleteMemberships(eq(USER_ID), any())).thenReturn(1);
+        when(deleteRepository.deleteContacts(eq(USER_ID), any())).thenAnswer(inv -> inv.<Long[]>getArgument(1).length);
+
+        String jobId = service.submit(USER_ID);
+
+        verify(deleteRepository).deleteContacts(USER_ID, new Long[] {1L, 2L});
+        verify(deleteRepository).deleteContacts(USER_ID, new Long[] {3L});
+        Map<String, Object> progress = service.getProgress(jobId).orElseThrow();
+        assertEquals("COMPLETED", progress.get("status"));
+        assertEquals(3L, progress.get("totalContacts"));
+        assertEquals(3L, progress.get("deletedContacts"));
+        assertEquals(2L, progress.get("deletedMemberships"));
+        assertFalse(service.isDeleting(USER_ID));
+    }
+
+    @Test
+    void testRunningDeletionIsReturnedInsteadOfStartingAnother() {
+        values.put(LOCK_KEY, "running-job");
+
+        assertEquals("running-job", service.submit(USER_ID));
+        verify(executor, never()).execute(any());
+    }
+
+    @Test
+    void testImportsInProgressRejectTheDeletion() {
+        when(importRepository.countByUserIdAndStatus(USER_ID, ContactImport.ImportStatus.PROCESSING)).thenReturn(1L);
+
+        assertThrows(IllegalStateException.class, () -> service.submit(USER_ID));
+        assertFalse(service.isDeleting(USER_ID));
+        verify(deleteRepository, never()).findUserContactIds(anyLong(), anyLong(), anyInt());
+    }
+
+    @Test
+    void testLosingTheLockStopsTheDeletion() {
+        when(deleteRepository.findUserContactIds(USER_ID, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(deleteRepository.deleteContacts(eq(USER_ID), any())).thenAnswer(inv -> {
+            // Otro trabajo se queda con el bloqueo mientras se borra el primer lote
+            values.put(LOCK_KEY, "other-job");
+            return 2;
+        });
+
+        String jobId = service.submit(USER_ID);
+
+        Map<String, Object> progress = service.getProgress(jobId).orElseThrow();
+        assertEquals("FAILED", progress.get("status"));
+        assertEquals(2L, progress.get("deletedContacts"));
+        verify(deleteRepository, never()).findUserContactIds(USER_ID, 2L, 2);
+        // El bloqueo ajeno no se libera
+        assertEquals("other-job", values.get(LOCK_KEY));
+    }
+
+    @Test
+    void testRunningJobWithoutLockIsReportedAbandoned() {
+        Map<Object, Object> job = new HashMap<>();
+        job.put("userId", String.valueOf(USER_ID));
+        job.put("status", "RUNNING");
+        hashes.put("contacts:delete:stale-job", job);
+
+        assertEquals("ABANDONED", service.getProgress("stale-job").orElseThrow().get("status"));
+    }
+}
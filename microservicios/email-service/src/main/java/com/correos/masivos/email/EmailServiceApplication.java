@@ -4,12 +4,14 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsWebFilter;
 import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
 
 @SpringBootApplication
 @ComponentScan(basePackages = {"com.correos.masivos.email", "com.correos.masivos.queue"})
+@EnableScheduling
 public class EmailServiceApplication {
     public static void main(String[] args) {
         SpringApplication.run(EmailServiceApplication.class, args);
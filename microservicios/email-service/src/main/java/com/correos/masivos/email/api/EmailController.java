@@ -1,30 +1,45 @@
 package com.correos.masivos.email.api;
 
+import com.correos.masivos.email.api.dto.BulkEmailJobResponse;
 import com.correos.masivos.email.api.dto.BulkEmailRequest;
 import com.correos.masivos.email.api.dto.BulkEmailResponse;
+import com.correos.masivos.email.api.dto.CursorPageResponse;
 import com.correos.masivos.email.api.dto.EmailLogDTO;
 import com.correos.masivos.email.api.dto.EmailResponse;
 import com.correos.masivos.email.api.dto.SendEmailRequest;
 import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogCursor;
 import com.correos.masivos.email.domain.model.EmailMessage;
+import com.correos.masivos.email.domain.model.WebhookEvent;
+import com.correos.masivos.email.domain.service.BulkEmailJobService;
+import com.correos.masivos.email.domain.service.EmailRetryService;
 import com.correos.masivos.email.domain.service.EmailService;
+import com.correos.masivos.email.domain.service.WebhookIngestionService;
+import com.correos.masivos.email.infrastructure.dedup.EmailInFlightException;
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.Collectors;
 
 @RestController
@@ -32,6 +47,9 @@ import java.util.stream.Collectors;
 public class EmailController {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailController.class);
+    private static final String HISTORY_SORT_FIELD = "createdAt";
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
+    private static final MediaType NDJSON = new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
 
     @Autowired
     private EmailService emailService;
@@ -39,6 +57,25 @@ public class EmailController {
     @Autowired
     private com.correos.masivos.email.infrastructure.repository.EmailLogRepository emailLogRepository;
 
+    @Autowired
+    private BulkEmailJobService bulkEmailJobService;
+
+    @Autowired
+    private WebhookIngestionService webhookIngestionService;
+
+    @Autowired
+    private EmailRetryService emailRetryService;
+
+    @Autowired
+    @Qualifier("emailStreamExecutor")
+    private Executor emailStreamExecutor;
+
+    @Value("${email.bulk.stream-poll-interval-ms:500}")
+    private long bulkStreamPollIntervalMs;
+
+    @Value("${email.bulk.stream-max-duration-ms:600000}")
+    private long bulkStreamMaxDurationMs;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of(
@@ -62,7 +99,14 @@ public class EmailController {
         message.setCampaignId(request.getCampaignId());
         message.setRecipientId(request.getRecipientId());
 
-        EmailLog emailLog = emailService.sendEmail(message);
+        EmailLog emailLog;
+        try {
+            emailLog = emailService.sendEmail(message);
+        } catch (EmailInFlightException e) {
+            // El mismo envío está en curso en otra petición o consumidor
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(new EmailResponse(false, "Envío en curso, reintentar más tarde", null));
+        }
         
         return ResponseEntity.ok(new EmailResponse(
             emailLog.getStatus().name().equals("SENT"),
@@ -142,6 +186,106 @@ public class EmailController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/send/bulk/async")
+    public ResponseEntity<BulkEmailJobResponse> sendBulkEmailsAsync(@Valid @RequestBody BulkEmailRequest request) {
+        // Solo se acepta: la publicación sigue en segundo plano y el progreso se consulta con el jobId
+        String jobId;
+        try {
+            jobId = bulkEmailJobService.submit(request);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Demasiados envíos masivos pendientes de encolar, se rechaza la petición");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+            .body(new BulkEmailJobResponse(jobId, request.getRecipients().size(), "QUEUEING"));
+    }
+
+    @PostMapping(value = "/send/bulk/stream", consumes = {MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson"})
+    public ResponseEntity<BulkEmailJobResponse> sendBulkEmailsStream(HttpServletRequest request) {
+        // El cuerpo se lee en streaming (JSON con "recipients" al final, o NDJSON) sin enlazarlo a un DTO
+        boolean ndjson = request.getContentType() != null && request.getContentType().startsWith("application/x-ndjson");
+        try {
+            BulkEmailJobResponse response = bulkEmailJobService.submitStream(request.getInputStream(), ndjson);
+            if (response.getError() != null) {
+                // Cuerpo inválido a mitad de lectura: lo ya encolado se envía y se informa en el trabajo
+                return ResponseEntity.badRequest().body(response);
+            }
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+        } catch (IllegalArgumentException | IOException e) {
+            logger.warn("Petición de envío masivo en streaming inválida: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/send/bulk/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getBulkEmailJob(@PathVariable String jobId) {
+        return bulkEmailJobService.getProgress(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/send/bulk/jobs/{jobId}/results", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> streamBulkEmailResults(
+            @PathVariable String jobId,
+            @RequestParam(defaultValue = "true") boolean follow) {
+        if (bulkEmailJobService.getProgress(jobId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // Una línea JSON por destinatario a medida que se procesa; con follow=false
+        // solo se devuelve lo disponible en este momento. El bucle corre en su propio pool
+        // (emailStreamExecutor) con timeout propio: el resto de peticiones asíncronas de MVC
+        // conservan el ejecutor y el timeout por defecto
+        // Margen sobre la duración máxima del stream para que lo cierre el propio bucle
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(bulkStreamMaxDurationMs + 30000);
+        try {
+            emailStreamExecutor.execute(() -> {
+                try {
+                    streamResults(jobId, follow, emitter);
+                    emitter.complete();
+                } catch (IOException e) {
+                    // El cliente cerró la conexión
+                    emitter.completeWithError(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.warn("Demasiados streams de resultados abiertos, se rechaza jobId={}", jobId);
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok()
+            .contentType(NDJSON)
+            .body(emitter);
+    }
+
+    private void streamResults(String jobId, boolean follow, ResponseBodyEmitter emitter) throws IOException {
+        long offset = 0;
+        long deadline = System.currentTimeMillis() + bulkStreamMaxDurationMs;
+        while (true) {
+            List<String> results = bulkEmailJobService.getResults(jobId, offset);
+            if (results != null && !results.isEmpty()) {
+                StringBuilder chunk = new StringBuilder();
+                for (String line : results) {
+                    chunk.append(line).append('\n');
+                }
+                emitter.send(chunk.toString(), NDJSON);
+                offset += results.size();
+            }
+
+            Optional<Map<String, Object>> progress = bulkEmailJobService.getProgress(jobId);
+            boolean completed = progress.isEmpty() || "COMPLETED".equals(progress.get().get("status"));
+            if (!follow || (completed && (results == null || results.isEmpty()))
+                    || System.currentTimeMillis() >= deadline) {
+                return;
+            }
+            try {
+                Thread.sleep(bulkStreamPollIntervalMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
     // === GESTIÓN DE LOGS ===
     @GetMapping("/{id}")
     public ResponseEntity<EmailLogDTO> getEmailLog(@PathVariable Long id) {
@@ -151,38 +295,39 @@ public class EmailController {
     }
 
     @GetMapping
-    public ResponseEntity<Page<EmailLogDTO>> getEmailLogs(
+    public ResponseEntity<CursorPageResponse<EmailLogDTO>> getEmailLogs(
             @RequestParam(required = false) Long campaignId,
             @RequestParam(required = false) String status,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
-        
-        Page<EmailLog> emailLogs;
-        if (campaignId != null && status != null) {
-            EmailLog.EmailStatus emailStatus = EmailLog.EmailStatus.valueOf(status.toUpperCase());
-            emailLogs = emailService.findByCampaignId(campaignId, pageable);
-        } else if (campaignId != null) {
-            emailLogs = emailService.findByCampaignId(campaignId, pageable);
-        } else if (status != null) {
-            EmailLog.EmailStatus emailStatus = EmailLog.EmailStatus.valueOf(status.toUpperCase());
-            emailLogs = emailService.findByStatus(emailStatus, pageable);
-        } else {
+        if (campaignId == null && status == null) {
             return ResponseEntity.badRequest().build();
         }
-        
-        return ResponseEntity.ok(emailLogs.map(this::mapToDTO));
+        return historyPage(campaignId, status, cursor, page, size, sortBy, sortDir, includeTotal);
     }
 
     // === REINTENTOS ===
     @PostMapping("/campaigns/{campaignId}/retry")
-    public ResponseEntity<Void> retryFailedEmails(@PathVariable Long campaignId) {
-        emailService.retryFailedEmails(campaignId);
-        return ResponseEntity.ok().build();
+    public ResponseEntity<Map<String, Object>> retryFailedEmails(@PathVariable Long campaignId) {
+        // Se procesa en segundo plano: los fallidos se reencolan por lotes a ritmo controlado
+        String jobId = emailRetryService.submit(campaignId);
+        Map<String, Object> response = new HashMap<>();
+        response.put("jobId", jobId);
+        response.put("campaignId", campaignId);
+        response.put("statusUrl", "/emails/campaigns/" + campaignId + "/retry/" + jobId);
+        return ResponseEntity.accepted().body(response);
+    }
+
+    @GetMapping("/campaigns/{campaignId}/retry/{jobId}")
+    public ResponseEntity<Map<String, Object>> getRetryJob(@PathVariable Long campaignId, @PathVariable String jobId) {
+        return emailRetryService.getProgress(jobId)
+            .map(ResponseEntity::ok)
+            .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/campaigns/{campaignId}/failed")
@@ -195,14 +340,13 @@ public class EmailController {
     }
 
     // === WEBHOOKS ===
+    // Los webhooks solo se encolan y se aplican en lote (UPDATE por external_id) en segundo plano
     @PostMapping("/webhooks/delivery")
     public ResponseEntity<Void> handleDeliveryWebhook(@RequestBody Map<String, Object> payload) {
         String externalId = (String) payload.get("externalId");
-        String event = (String) payload.get("event");
         LocalDateTime timestamp = LocalDateTime.now();
         
-        emailService.handleDeliveryEvent(externalId, event, timestamp);
-        return ResponseEntity.ok().build();
+        return acceptWebhook(new WebhookEvent(externalId, WebhookEvent.EventType.DELIVERED, null, timestamp));
     }
 
     @PostMapping("/webhooks/open")
@@ -210,8 +354,7 @@ public class EmailController {
         String externalId = (String) payload.get("externalId");
         LocalDateTime timestamp = LocalDateTime.now();
         
-        emailService.handleOpenEvent(externalId, timestamp);
-        return ResponseEntity.ok().build();
+        return acceptWebhook(new WebhookEvent(externalId, WebhookEvent.EventType.OPENED, null, timestamp));
     }
 
     @PostMapping("/webhooks/click")
@@ -219,8 +362,7 @@ public class EmailController {
         String externalId = (String) payload.get("externalId");
         LocalDateTime timestamp = LocalDateTime.now();
         
-        emailService.handleClickEvent(externalId, timestamp);
-        return ResponseEntity.ok().build();
+        return acceptWebhook(new WebhookEvent(externalId, WebhookEvent.EventType.CLICKED, null, timestamp));
     }
 
     @PostMapping("/webhooks/bounce")
@@ -229,40 +371,91 @@ public class EmailController {
         String reason = (String) payload.get("reason");
         LocalDateTime timestamp = LocalDateTime.now();
         
-        emailService.handleBounceEvent(externalId, reason, timestamp);
-        return ResponseEntity.ok().build();
+        return acceptWebhook(new WebhookEvent(externalId, WebhookEvent.EventType.BOUNCED, reason, timestamp));
+    }
+
+    @PostMapping(value = "/webhooks/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> handleBatchWebhook(HttpServletRequest request) {
+        // Array de eventos (delivered/open/click/bounce) como los que envían SendGrid y similares
+        try {
+            Map<String, Object> result = webhookIngestionService.acceptBatch(request.getInputStream());
+            if (((Number) result.get("rejected")).intValue() > 0) {
+                // Parte del lote no cupo en el buffer: el proveedor reenviará el lote completo
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(result);
+            }
+            return ResponseEntity.accepted().body(result);
+        } catch (IllegalArgumentException | IOException e) {
+            logger.warn("Lote de webhooks inválido: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private ResponseEntity<Void> acceptWebhook(WebhookEvent event) {
+        if (!webhookIngestionService.accept(event)) {
+            // Buffer lleno: el proveedor reintentará el webhook
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        // 202: el evento está en el buffer en memoria, aún sin escribir (ver WebhookIngestionServiceImpl)
+        return ResponseEntity.accepted().build();
     }
 
     // === HISTORIAL DE ENVÍOS ===
+    // Paginación por cursor: se pide la primera página sin cursor y las siguientes con el
+    // nextCursor recibido. Incluye los meses ya archivados en frío (ver EmailLogArchiver).
     @GetMapping("/history")
-    public ResponseEntity<Page<EmailLogDTO>> getEmailHistory(
+    public ResponseEntity<CursorPageResponse<EmailLogDTO>> getEmailHistory(
             @RequestParam(required = false) Long campaignId,
             @RequestParam(required = false) String status,
             @RequestParam(required = false) String type, // 'single' or 'bulk'
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        
-        Sort sort = Sort.by(Sort.Direction.fromString(sortDir), sortBy);
-        Pageable pageable = PageRequest.of(page, size, sort);
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(defaultValue = "false") boolean includeTotal) {
         
-        Page<EmailLog> emailLogs;
-        
-        if (campaignId != null && status != null) {
-            EmailLog.EmailStatus emailStatus = EmailLog.EmailStatus.valueOf(status.toUpperCase());
-            emailLogs = emailService.findByCampaignId(campaignId, pageable);
-        } else if (campaignId != null) {
-            emailLogs = emailService.findByCampaignId(campaignId, pageable);
-        } else if (status != null) {
-            EmailLog.EmailStatus emailStatus = EmailLog.EmailStatus.valueOf(status.toUpperCase());
-            emailLogs = emailService.findByStatus(emailStatus, pageable);
-        } else {
-            // Get all emails
-            emailLogs = emailLogRepository.findAll(pageable);
+        return historyPage(campaignId, status, cursor, page, size, sortBy, sortDir, includeTotal);
+    }
+
+    private ResponseEntity<CursorPageResponse<EmailLogDTO>> historyPage(Long campaignId, String status, String cursor,
+            Integer page, int size, String sortBy, String sortDir, boolean includeTotal) {
+        // Solo created_at (desempate por id) tiene índices de paginación; sin OFFSET no hay página N
+        if (!HISTORY_SORT_FIELD.equals(sortBy) || (page != null && page > 0) || size < 1) {
+            return ResponseEntity.badRequest().build();
         }
-        
-        return ResponseEntity.ok(emailLogs.map(this::mapToDTO));
+
+        EmailLog.EmailStatus emailStatus;
+        EmailLogCursor after;
+        boolean ascending;
+        try {
+            emailStatus = status != null ? EmailLog.EmailStatus.valueOf(status.toUpperCase()) : null;
+            after = cursor != null && !cursor.isBlank() ? EmailLogCursor.decode(cursor) : null;
+            // El sentido viaja en el cursor para que las páginas siguientes sean coherentes
+            ascending = after != null ? after.isAscending() : Sort.Direction.fromString(sortDir).isAscending();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        // Se pide una fila de más para saber si hay página siguiente
+        int limit = Math.min(size, MAX_HISTORY_PAGE_SIZE);
+        List<EmailLog> emailLogs = emailService.getEmailHistory(campaignId, emailStatus, after, ascending, limit + 1);
+        String nextCursor = null;
+        if (emailLogs.size() > limit) {
+            emailLogs = emailLogs.subList(0, limit);
+            nextCursor = EmailLogCursor.after(emailLogs.get(limit - 1), ascending).encode();
+        }
+
+        Long approximateTotal = includeTotal ? approximateTotal(campaignId, emailStatus) : null;
+        List<EmailLogDTO> content = emailLogs.stream().map(this::mapToDTO).collect(Collectors.toList());
+        return ResponseEntity.ok(new CursorPageResponse<>(content, limit, nextCursor, approximateTotal));
+    }
+
+    private long approximateTotal(Long campaignId, EmailLog.EmailStatus status) {
+        Map<EmailLog.EmailStatus, Long> counts = emailService.getStatusCounts(campaignId);
+        if (status != null) {
+            return counts.getOrDefault(status, 0L);
+        }
+        return counts.values().stream().mapToLong(Long::longValue).sum();
     }
 
     // === ESTADÍSTICAS ===
@@ -270,27 +463,9 @@ public class EmailController {
     public ResponseEntity<Map<String, Object>> getEmailStats(
             @RequestParam(required = false) Long campaignId) {
         
-        if (campaignId != null) {
-            return ResponseEntity.ok(Map.of(
-                "totalEmails", emailService.countByCampaignIdAndStatus(campaignId, null),
-                "sentEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.SENT),
-                "deliveredEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.DELIVERED),
-                "openedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.OPENED),
-                "clickedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.CLICKED),
-                "bouncedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.BOUNCED),
-                "failedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.FAILED)
-            ));
-        } else {
-            return ResponseEntity.ok(Map.of(
-                "totalEmails", emailService.countByStatus(null),
-                "sentEmails", emailService.countByStatus(EmailLog.EmailStatus.SENT),
-                "deliveredEmails", emailService.countByStatus(EmailLog.EmailStatus.DELIVERED),
-                "openedEmails", emailService.countByStatus(EmailLog.EmailStatus.OPENED),
-                "clickedEmails", emailService.countByStatus(EmailLog.EmailStatus.CLICKED),
-                "bouncedEmails", emailService.countByStatus(EmailLog.EmailStatus.BOUNCED),
-                "failedEmails", emailService.countByStatus(EmailLog.EmailStatus.FAILED)
-            ));
-        }
+        // Una sola lectura de los contadores pre-agregados (global si no hay campaignId)
+        Map<EmailLog.EmailStatus, Long> counts = emailService.getStatusCounts(campaignId);
+        return ResponseEntity.ok(statusCountsToMap(counts));
     }
     
     @GetMapping("/stats/detailed")
@@ -317,63 +492,70 @@ public class EmailController {
         return ResponseEntity.ok(stats);
     }
     
+    @GetMapping("/stats/summary")
+    public ResponseEntity<Map<String, Object>> getSummaryStats(
+            @RequestParam(required = false) String fromDate,
+            @RequestParam(required = false) String toDate) {
+        
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        
+        try {
+            if (fromDate != null && !fromDate.isEmpty()) {
+                from = LocalDateTime.parse(fromDate + "T00:00:00");
+            }
+            if (toDate != null && !toDate.isEmpty()) {
+                to = LocalDateTime.parse(toDate + "T23:59:59");
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+        
+        // Servido desde email_stats_summary si está suficientemente fresca (stalenessSeconds en la respuesta)
+        return ResponseEntity.ok(emailService.getSummaryStats(from, to));
+    }
+    
     @GetMapping("/stats/realtime")
     public ResponseEntity<Map<String, Object>> getRealtimeStats(
             @RequestParam(required = false) Long campaignId) {
         
-        Map<String, Object> realtimeStats = new HashMap<>();
+        Map<EmailLog.EmailStatus, Long> counts = emailService.getStatusCounts(campaignId);
+        Map<String, Object> realtimeStats = new HashMap<>(statusCountsToMap(counts));
         
         if (campaignId != null) {
-            // Campaign-specific real-time stats
             realtimeStats.put("campaignId", campaignId);
-            realtimeStats.put("totalEmails", emailService.countByCampaignIdAndStatus(campaignId, null));
-            realtimeStats.put("sentEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.SENT));
-            realtimeStats.put("deliveredEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.DELIVERED));
-            realtimeStats.put("openedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.OPENED));
-            realtimeStats.put("clickedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.CLICKED));
-            realtimeStats.put("bouncedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.BOUNCED));
-            realtimeStats.put("failedEmails", emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.FAILED));
-            
-            // Calculate rates
-            long sent = emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.SENT);
-            long delivered = emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.DELIVERED);
-            long opened = emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.OPENED);
-            long clicked = emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.CLICKED);
-            long bounced = emailService.countByCampaignIdAndStatus(campaignId, EmailLog.EmailStatus.BOUNCED);
-            
-            realtimeStats.put("deliveryRate", sent > 0 ? (delivered * 100.0 / sent) : 0.0);
-            realtimeStats.put("openRate", delivered > 0 ? (opened * 100.0 / delivered) : 0.0);
-            realtimeStats.put("clickRate", opened > 0 ? (clicked * 100.0 / opened) : 0.0);
-            realtimeStats.put("bounceRate", sent > 0 ? (bounced * 100.0 / sent) : 0.0);
-        } else {
-            // Global real-time stats
-            realtimeStats.put("totalEmails", emailService.countByStatus(null));
-            realtimeStats.put("sentEmails", emailService.countByStatus(EmailLog.EmailStatus.SENT));
-            realtimeStats.put("deliveredEmails", emailService.countByStatus(EmailLog.EmailStatus.DELIVERED));
-            realtimeStats.put("openedEmails", emailService.countByStatus(EmailLog.EmailStatus.OPENED));
-            realtimeStats.put("clickedEmails", emailService.countByStatus(EmailLog.EmailStatus.CLICKED));
-            realtimeStats.put("bouncedEmails", emailService.countByStatus(EmailLog.EmailStatus.BOUNCED));
-            realtimeStats.put("failedEmails", emailService.countByStatus(EmailLog.EmailStatus.FAILED));
-            
-            // Calculate global rates
-            long sent = emailService.countByStatus(EmailLog.EmailStatus.SENT);
-            long delivered = emailService.countByStatus(EmailLog.EmailStatus.DELIVERED);
-            long opened = emailService.countByStatus(EmailLog.EmailStatus.OPENED);
-            long clicked = emailService.countByStatus(EmailLog.EmailStatus.CLICKED);
-            long bounced = emailService.countByStatus(EmailLog.EmailStatus.BOUNCED);
-            
-            realtimeStats.put("deliveryRate", sent > 0 ? (delivered * 100.0 / sent) : 0.0);
-            realtimeStats.put("openRate", delivered > 0 ? (opened * 100.0 / delivered) : 0.0);
-            realtimeStats.put("clickRate", opened > 0 ? (clicked * 100.0 / opened) : 0.0);
-            realtimeStats.put("bounceRate", sent > 0 ? (bounced * 100.0 / sent) : 0.0);
         }
         
+        // Calculate rates
+        long sent = counts.get(EmailLog.EmailStatus.SENT);
+        long delivered = counts.get(EmailLog.EmailStatus.DELIVERED);
+        long opened = counts.get(EmailLog.EmailStatus.OPENED);
+        long clicked = counts.get(EmailLog.EmailStatus.CLICKED);
+        long bounced = counts.get(EmailLog.EmailStatus.BOUNCED);
+        
+        realtimeStats.put("deliveryRate", sent > 0 ? (delivered * 100.0 / sent) : 0.0);
+        realtimeStats.put("openRate", delivered > 0 ? (opened * 100.0 / delivered) : 0.0);
+        realtimeStats.put("clickRate", opened > 0 ? (clicked * 100.0 / opened) : 0.0);
+        realtimeStats.put("bounceRate", sent > 0 ? (bounced * 100.0 / sent) : 0.0);
+        
         realtimeStats.put("timestamp", LocalDateTime.now());
         realtimeStats.put("type", "realtime");
         
         return ResponseEntity.ok(realtimeStats);
     }
 
+    private Map<String, Object> statusCountsToMap(Map<EmailLog.EmailStatus, Long> counts) {
+        return Map.of(
+            "totalEmails", counts.values().stream().mapToLong(Long::longValue).sum(),
+            "sentEmails", counts.get(EmailLog.EmailStatus.SENT),
+            "deliveredEmails", counts.get(EmailLog.EmailStatus.DELIVERED),
+            "openedEmails", counts.get(EmailLog.EmailStatus.OPENED),
+            "clickedEmails", counts.get(EmailLog.EmailStatus.CLICKED),
+            "bouncedEmails", counts.get(EmailLog.EmailStatus.BOUNCED),
+            "failedEmails", counts.get(EmailLog.EmailStatus.FAILED)
+        );
+    }
+
     // === MAPPERS ===
     private EmailLogDTO mapToDTO(EmailLog emailLog) {
         EmailLogDTO dto = new EmailLogDTO();
@@ -0,0 +1,32 @@
+package com.correos.masivos.email.api.dto;
+
+public class BulkEmailJobResponse {
+
+    private String jobId;
+    private int totalEmails;
+    private String status;
+    private String statusUrl;
+    private String resultsUrl;
+    private String error;
+
+    public BulkEmailJobResponse(String jobId, int totalEmails, String status) {
+        this.jobId = jobId;
+        this.totalEmails = totalEmails;
+        this.status = status;
+        this.statusUrl = "/emails/send/bulk/jobs/" + jobId;
+        this.resultsUrl = "/emails/send/bulk/jobs/" + jobId + "/results";
+    }
+
+    public String getJobId() { return jobId; }
+    public void setJobId(String jobId) { this.jobId = jobId; }
+    public int getTotalEmails() { return totalEmails; }
+    public void setTotalEmails(int totalEmails) { this.totalEmails = totalEmails; }
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    public String getStatusUrl() { return statusUrl; }
+    public void setStatusUrl(String statusUrl) { this.statusUrl = statusUrl; }
+    public String getResultsUrl() { return resultsUrl; }
+    public void setResultsUrl(String resultsUrl) { this.resultsUrl = resultsUrl; }
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+}
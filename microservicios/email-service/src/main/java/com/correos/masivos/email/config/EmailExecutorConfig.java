@@ -0,0 +1,108 @@
+package com.correos.masivos.email.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class EmailExecutorConfig {
+
+    @Value("${email.batch.max-concurrency:8}")
+    private int maxConcurrency;
+
+    @Value("${email.bulk.stream-max-concurrency:16}")
+    private int streamMaxConcurrency;
+
+    @Value("${email.bulk.submit-concurrency:2}")
+    private int bulkSubmitConcurrency;
+
+    @Value("${email.bulk.submit-queue-capacity:50}")
+    private int bulkSubmitQueueCapacity;
+
+    @Value("${email.retry.max-concurrent-jobs:2}")
+    private int retryMaxConcurrentJobs;
+
+    @Value("${email.provider.send-pool-size:16}")
+    private int providerSendPoolSize;
+
+    @Value("${email.provider.send-queue-capacity:32}")
+    private int providerSendQueueCapacity;
+
+    @Bean("emailBatchExecutor")
+    public ThreadPoolTaskExecutor emailBatchExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(maxConcurrency);
+        executor.setMaxPoolSize(maxConcurrency);
+        executor.setThreadNamePrefix("email-batch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // Hilos para las respuestas en streaming (progreso de envíos masivos), separados del pool de envío.
+    // Solo lo usa ese endpoint: sin cola, un stream de más se rechaza en lugar de esperar
+    @Bean("emailStreamExecutor")
+    public ThreadPoolTaskExecutor emailStreamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(Math.min(4, streamMaxConcurrency));
+        executor.setMaxPoolSize(streamMaxConcurrency);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("email-stream-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Llamadas a los proveedores con timeout. Pool y cola acotados: una llamada que excede el
+    // timeout sigue ocupando su hilo, y con el pool común de ForkJoin esas llamadas colgadas
+    // bloquearían a cualquier otro código que lo use. Si está lleno, el intento falla al momento
+    @Bean("emailProviderExecutor")
+    public ThreadPoolTaskExecutor emailProviderExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(providerSendPoolSize);
+        executor.setMaxPoolSize(providerSendPoolSize);
+        executor.setQueueCapacity(providerSendQueueCapacity);
+        executor.setThreadNamePrefix("email-provider-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Archivado nocturno: recorre particiones enteras, así que no ocupa un hilo del scheduler.
+    // Un solo hilo y sin cola: si la pasada anterior sigue en curso, la nueva se descarta
+    @Bean("emailArchiveExecutor")
+    public ThreadPoolTaskExecutor emailArchiveExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("email-archive-");
+        executor.initialize();
+        return executor;
+    }
+
+    // Publicación en la cola de los envíos masivos asíncronos, fuera del hilo de la petición.
+    // Con la cola llena la petición se rechaza en lugar de acumular trabajos en memoria
+    @Bean("emailBulkSubmitExecutor")
+    public ThreadPoolTaskExecutor emailBulkSubmitExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(bulkSubmitConcurrency);
+        executor.setMaxPoolSize(bulkSubmitConcurrency);
+        executor.setQueueCapacity(bulkSubmitQueueCapacity);
+        executor.setThreadNamePrefix("email-bulk-submit-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    // Trabajos de reintento de campañas: pocos hilos, cada trabajo recorre y publica por lotes
+    @Bean("emailRetryExecutor")
+    public ThreadPoolTaskExecutor emailRetryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(retryMaxConcurrentJobs);
+        executor.setMaxPoolSize(retryMaxConcurrentJobs);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("email-retry-");
+        executor.initialize();
+        return executor;
+    }
+}
@@ -0,0 +1,44 @@
+package com.correos.masivos.email.config;
+
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class EmailListenerConfig {
+
+    public static final String EMAIL_LISTENER_FACTORY = "emailListenerContainerFactory";
+
+    @Value("${email.listener.prefetch:100}")
+    private int prefetch;
+
+    @Value("${email.listener.ack-batch-size:50}")
+    private int ackBatchSize;
+
+    @Value("${email.listener.ack-flush-interval-ms:500}")
+    private long ackFlushIntervalMs;
+
+    @Bean(EMAIL_LISTENER_FACTORY)
+    public SimpleRabbitListenerContainerFactory emailListenerContainerFactory(ConnectionFactory connectionFactory, Jackson2JsonMessageConverter messageConverter) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter);
+        factory.setDefaultRequeueRejected(false);
+        // Los acks los emite EmailJobListener por lotes, una vez registrado el resultado del envío
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        // El prefetch debe cubrir al menos un lote completo de acks pendientes
+        factory.setPrefetchCount(Math.max(prefetch, ackBatchSize * 2));
+        // Los acks pendientes se confirman desde el hilo consumidor al quedar inactivo. El evento de
+        // inactividad es del contenedor entero y lo publica un solo hilo: con un consumidor por
+        // contenedor ese hilo es siempre el dueño del canal (se escala con más instancias)
+        factory.setConcurrentConsumers(1);
+        factory.setMaxConcurrentConsumers(1);
+        factory.setReceiveTimeout(ackFlushIntervalMs);
+        factory.setIdleEventInterval(ackFlushIntervalMs);
+        return factory;
+    }
+}
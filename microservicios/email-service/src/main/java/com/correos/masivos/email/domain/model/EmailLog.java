@@ -1,17 +1,29 @@
 package com.correos.masivos.email.domain.model;
 
+import com.correos.masivos.email.infrastructure.stats.EmailLogStatusListener;
+
 import javax.persistence.*;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.Map;
 
 @Entity
 @Table(name = "email_logs")
+@EntityListeners(EmailLogStatusListener.class)
+@IdClass(EmailLogKey.class)
 public class EmailLog {
 
+    // Clave (id, created_at) como la de la tabla particionada. IDENTITY no es compatible con
+    // claves compuestas: el id sale de la secuencia con incremento 50 (V14), un viaje a la BD cada 50
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_logs_id_seq")
+    @SequenceGenerator(name = "email_logs_id_seq", sequenceName = "email_logs_id_seq", allocationSize = 50)
     private Long id;
 
+    @Id
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
     @Column(name = "campaign_id")
     private Long campaignId;
 
@@ -33,6 +45,14 @@ public class EmailLog {
     @Column(name = "from_name")
     private String fromName;
 
+    @Column(name = "reply_to")
+    private String replyTo;
+
+    // Contenido original en email_contents (necesario para reintentar el envío); la entidad no
+    // mapea el cuerpo para que ninguna carga de EmailLog lo arrastre
+    @Column(name = "content_id")
+    private Long contentId;
+
     @Enumerated(EnumType.STRING)
     private EmailStatus status = EmailStatus.PENDING;
 
@@ -69,18 +89,18 @@ public class EmailLog {
     @Column(name = "metadata", columnDefinition = "TEXT")
     private String metadata;
 
-    @Column(name = "created_at")
-    private LocalDateTime createdAt;
-
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    // Último estado guardado en BD, para detectar transiciones en los contadores
+    @Transient
+    private EmailStatus persistedStatus;
+
     public enum EmailStatus {
         PENDING, SENDING, SENT, DELIVERED, OPENED, CLICKED, BOUNCED, FAILED, CANCELLED
     }
 
     public EmailLog() {
-        this.createdAt = LocalDateTime.now();
         this.updatedAt = LocalDateTime.now();
     }
 
@@ -150,6 +170,15 @@ public class EmailLog {
         return this.retryCount < this.maxRetries;
     }
 
+    // created_at se asigna al persistir: con la clave vacía Spring Data trata la entidad como nueva.
+    // Se trunca a microsegundos (precisión de timestamp) para que la clave en memoria coincida con la BD
+    @PrePersist
+    public void prePersist() {
+        if (this.createdAt == null) {
+            this.createdAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        }
+    }
+
     @PreUpdate
     public void preUpdate() {
         this.updatedAt = LocalDateTime.now();
@@ -183,8 +212,16 @@ public class EmailLog {
     public String getFromName() { return fromName; }
     public void setFromName(String fromName) { this.fromName = fromName; }
 
+    public String getReplyTo() { return replyTo; }
+    public void setReplyTo(String replyTo) { this.replyTo = replyTo; }
+
+    public Long getContentId() { return contentId; }
+    public void setContentId(Long contentId) { this.contentId = contentId; }
+
     public EmailStatus getStatus() { return status; }
     public void setStatus(EmailStatus status) { this.status = status; }
+    public EmailStatus getPersistedStatus() { return persistedStatus; }
+    public void setPersistedStatus(EmailStatus persistedStatus) { this.persistedStatus = persistedStatus; }
 
     public String getSmtpProvider() { return smtpProvider; }
     public void setSmtpProvider(String smtpProvider) { this.smtpProvider = smtpProvider; }
@@ -0,0 +1,47 @@
+package com.correos.masivos.email.domain.model;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+// Posición en el historial ordenado por (createdAt, id). Se expone como token opaco:
+// el cliente solo lo devuelve tal cual para pedir la página siguiente.
+public final class EmailLogCursor {
+
+    private final LocalDateTime createdAt;
+    private final long id;
+    private final boolean ascending;
+
+    public EmailLogCursor(LocalDateTime createdAt, long id, boolean ascending) {
+        this.createdAt = createdAt;
+        this.id = id;
+        this.ascending = ascending;
+    }
+
+    public static EmailLogCursor after(EmailLog emailLog, boolean ascending) {
+        return new EmailLogCursor(emailLog.getCreatedAt(), emailLog.getId(), ascending);
+    }
+
+    public String encode() {
+        String raw = (ascending ? "a" : "d") + "|" + createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static EmailLogCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !(parts[0].equals("a") || parts[0].equals("d"))) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new EmailLogCursor(LocalDateTime.parse(parts[1]), Long.parseLong(parts[2]), parts[0].equals("a"));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public long getId() { return id; }
+    public boolean isAscending() { return ascending; }
+}
@@ -0,0 +1,43 @@
+package com.correos.masivos.email.domain.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+// Clave primaria de email_logs (id, created_at). Con created_at en la clave, Hibernate lo
+// incluye en los WHERE de carga y actualización y PostgreSQL solo toca una partición.
+public class EmailLogKey implements Serializable {
+
+    private Long id;
+    private LocalDateTime createdAt;
+
+    public EmailLogKey() {}
+
+    public EmailLogKey(Long id, LocalDateTime createdAt) {
+        this.id = id;
+        this.createdAt = createdAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EmailLogKey)) {
+            return false;
+        }
+        EmailLogKey other = (EmailLogKey) o;
+        return Objects.equals(id, other.id) && Objects.equals(createdAt, other.createdAt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, createdAt);
+    }
+}
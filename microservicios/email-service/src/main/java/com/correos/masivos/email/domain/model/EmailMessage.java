@@ -1,11 +1,13 @@
 package com.correos.masivos.email.domain.model;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 public class EmailMessage {
     private Long campaignId;
     private Long recipientId;
     private String externalId;
+    private String idempotencyKey;
     private String to;
     private String from;
     private String fromName;
@@ -17,6 +19,9 @@ public class EmailMessage {
     private Map<String, Object> personalizationData;
     private Boolean trackOpens;
     private Boolean trackClicks;
+    // Reintento de un email ya registrado: se reutiliza su fila de email_logs
+    private Long emailLogId;
+    private LocalDateTime emailLogCreatedAt;
 
     public EmailMessage() {}
 
@@ -35,6 +40,7 @@ public class EmailMessage {
     public Long getCampaignId() { return campaignId; }
     public Long getRecipientId() { return recipientId; }
     public String getExternalId() { return externalId; }
+    public String getIdempotencyKey() { return idempotencyKey; }
     public String getTo() { return to; }
     public String getFrom() { return from; }
     public String getFromName() { return fromName; }
@@ -46,11 +52,14 @@ public class EmailMessage {
     public Map<String, Object> getPersonalizationData() { return personalizationData; }
     public Boolean getTrackOpens() { return trackOpens; }
     public Boolean getTrackClicks() { return trackClicks; }
+    public Long getEmailLogId() { return emailLogId; }
+    public LocalDateTime getEmailLogCreatedAt() { return emailLogCreatedAt; }
 
     // Setters
     public void setCampaignId(Long campaignId) { this.campaignId = campaignId; }
     public void setRecipientId(Long recipientId) { this.recipientId = recipientId; }
     public void setExternalId(String externalId) { this.externalId = externalId; }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
     public void setTo(String to) { this.to = to; }
     public void setFrom(String from) { this.from = from; }
     public void setFromName(String fromName) { this.fromName = fromName; }
@@ -62,4 +71,6 @@ public class EmailMessage {
     public void setPersonalizationData(Map<String, Object> personalizationData) { this.personalizationData = personalizationData; }
     public void setTrackOpens(Boolean trackOpens) { this.trackOpens = trackOpens; }
     public void setTrackClicks(Boolean trackClicks) { this.trackClicks = trackClicks; }
+    public void setEmailLogId(Long emailLogId) { this.emailLogId = emailLogId; }
+    public void setEmailLogCreatedAt(LocalDateTime emailLogCreatedAt) { this.emailLogCreatedAt = emailLogCreatedAt; }
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.correos.masivos.email.domain.model;
+
+import java.time.LocalDateTime;
+
+public class WebhookEvent {
+
+    private String externalId;
+    private EventType type;
+    private String reason;
+    private LocalDateTime occurredAt;
+    private LocalDateTime receivedAt;
+    // Intentos de aplicación fallidos (solo en memoria)
+    private int attempts;
+
+    public enum EventType {
+        DELIVERED, OPENED, CLICKED, BOUNCED
+    }
+
+    public WebhookEvent() {}
+
+    public WebhookEvent(String externalId, EventType type, String reason, LocalDateTime occurredAt) {
+        this.externalId = externalId;
+        this.type = type;
+        this.reason = reason;
+        this.occurredAt = occurredAt;
+        this.receivedAt = LocalDateTime.now();
+    }
+
+    // Precedencia de estados: un evento que no hace avanzar el estado actual no se escribe
+    // (p. ej. una apertura después de un clic, o una entrega después de una apertura)
+    public boolean changesStatus(EmailLog.EmailStatus current) {
+        switch (type) {
+            case DELIVERED:
+                return current == EmailLog.EmailStatus.PENDING
+                    || current == EmailLog.EmailStatus.SENDING
+                    || current == EmailLog.EmailStatus.SENT;
+            case OPENED:
+                return current != EmailLog.EmailStatus.OPENED && current != EmailLog.EmailStatus.CLICKED;
+            case CLICKED:
+                return current != EmailLog.EmailStatus.CLICKED;
+            case BOUNCED:
+                return current != EmailLog.EmailStatus.BOUNCED;
+            default:
+                return true;
+        }
+    }
+
+    public String getExternalId() { return externalId; }
+    public void setExternalId(String externalId) { this.externalId = externalId; }
+    public EventType getType() { return type; }
+    public void setType(EventType type) { this.type = type; }
+    public String getReason() { return reason; }
+    public void setReason(String reason) { this.reason = reason; }
+    public LocalDateTime getOccurredAt() { return occurredAt; }
+    public void setOccurredAt(LocalDateTime occurredAt) { this.occurredAt = occurredAt; }
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+    public void setReceivedAt(LocalDateTime receivedAt) { this.receivedAt = receivedAt; }
+    public int getAttempts() { return attempts; }
+    public int incrementAttempts() { return ++attempts; }
+}
@@ -0,0 +1,26 @@
+package com.correos.masivos.email.domain.service;
+
+import com.correos.masivos.email.api.dto.BulkEmailJobResponse;
+import com.correos.masivos.email.api.dto.BulkEmailRequest;
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.queue.model.EmailJob;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+public interface BulkEmailJobService {
+    
+    // Encolado asíncrono de envíos masivos
+    String submit(BulkEmailRequest request);
+    BulkEmailJobResponse submitStream(InputStream body, boolean ndjson) throws IOException;
+    
+    // Progreso por destinatario
+    void recordResult(EmailJob emailJob, EmailLog emailLog);
+    void recordFailure(EmailJob emailJob, String errorMessage);
+    void recordDuplicate(EmailJob emailJob);
+    Optional<Map<String, Object>> getProgress(String jobId);
+    List<String> getResults(String jobId, long fromIndex);
+}
@@ -0,0 +1,11 @@
+package com.correos.masivos.email.domain.service;
+
+import java.util.Map;
+import java.util.Optional;
+
+public interface EmailRetryService {
+    
+    // Reintento en segundo plano de los emails fallidos de una campaña
+    String submit(Long campaignId);
+    Optional<Map<String, Object>> getProgress(String jobId);
+}
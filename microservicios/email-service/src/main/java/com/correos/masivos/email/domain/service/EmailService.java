@@ -1,12 +1,14 @@
 package com.correos.masivos.email.domain.service;
 
 import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogCursor;
 import com.correos.masivos.email.domain.model.EmailMessage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface EmailService {
@@ -19,21 +21,24 @@ public interface EmailService {
     Optional<EmailLog> findById(Long id);
     Page<EmailLog> findByCampaignId(Long campaignId, Pageable pageable);
     Page<EmailLog> findByStatus(EmailLog.EmailStatus status, Pageable pageable);
+    List<EmailLog> getEmailHistory(Long campaignId, EmailLog.EmailStatus status, EmailLogCursor after,
+                                   boolean ascending, int limit);
     
     // Rate limiting
     boolean canSendEmail(String provider);
     void recordEmailSent(String provider);
     
     // Reintentos
-    void retryFailedEmails(Long campaignId);
     List<EmailLog> getFailedEmails(Long campaignId);
     
     // Estadísticas
     long countByStatus(EmailLog.EmailStatus status);
     long countByCampaignIdAndStatus(Long campaignId, EmailLog.EmailStatus status);
+    Map<EmailLog.EmailStatus, Long> getStatusCounts(Long campaignId);
     
     // Estadísticas detalladas
     com.correos.masivos.email.api.dto.EmailStatsDTO getDetailedStats(Long campaignId, LocalDateTime fromDate, LocalDateTime toDate);
+    Map<String, Object> getSummaryStats(LocalDateTime fromDate, LocalDateTime toDate);
     
     // Webhooks
     void handleDeliveryEvent(String externalId, String event, LocalDateTime timestamp);
@@ -0,0 +1,20 @@
+package com.correos.masivos.email.domain.service;
+
+import com.correos.masivos.email.domain.model.WebhookEvent;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+public interface WebhookIngestionService {
+    
+    // Encola el evento para aplicarlo en lote; false si el buffer está lleno
+    boolean accept(WebhookEvent event);
+    
+    // Array de eventos en streaming (formato tipo SendGrid); devuelve aceptados/ignorados/rechazados
+    Map<String, Object> acceptBatch(InputStream body) throws IOException;
+    
+    // Aplica los eventos pendientes
+    int flush();
+    int getPendingEvents();
+}
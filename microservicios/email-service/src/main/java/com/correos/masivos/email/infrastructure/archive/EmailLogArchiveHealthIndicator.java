@@ -0,0 +1,28 @@
+package com.correos.masivos.email.infrastructure.archive;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// El registro de archivos está en BD y lo comparten todas las instancias: una instancia que no
+// ve alguno de los ficheros (directorio no compartido o no montado) devolvería historiales
+// incompletos, así que deja de estar lista (grupo readiness)
+@Component("emailArchive")
+public class EmailLogArchiveHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private EmailLogArchiveStore archiveStore;
+
+    @Override
+    public Health health() {
+        List<String> missing = archiveStore.getMissingFiles();
+        Health.Builder builder = missing.isEmpty() ? Health.up() : Health.down();
+        return builder
+            .withDetail("directory", archiveStore.getDirectory())
+            .withDetail("missingFiles", missing)
+            .build();
+    }
+}
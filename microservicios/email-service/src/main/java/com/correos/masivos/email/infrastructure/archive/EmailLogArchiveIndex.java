@@ -0,0 +1,121 @@
+package com.correos.masivos.email.infrastructure.archive;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Índice de un fichero de archivo: un bloque por miembro gzip independiente, con su posición
+// en el fichero y conteos por (campaña, estado) para saltar bloques sin descomprimirlos
+public class EmailLogArchiveIndex {
+
+    private String partition;
+    private String dataFile;
+    private long rows;
+    private LocalDateTime minCreatedAt;
+    private LocalDateTime maxCreatedAt;
+    private List<Block> blocks = new ArrayList<>();
+
+    static String countKey(Long campaignId, String status) {
+        return (campaignId != null ? campaignId : 0L) + "|" + status;
+    }
+
+    // Filas del fichero que cumplen el filtro (null = sin filtrar por ese campo)
+    public long matching(Long campaignId, EmailLog.EmailStatus status) {
+        long total = 0;
+        for (Block block : blocks) {
+            total += block.matching(campaignId, status);
+        }
+        return total;
+    }
+
+    void add(Block block) {
+        blocks.add(block);
+        rows += block.getRows();
+        if (minCreatedAt == null || block.getMinCreatedAt().isBefore(minCreatedAt)) {
+            minCreatedAt = block.getMinCreatedAt();
+        }
+        if (maxCreatedAt == null || block.getMaxCreatedAt().isAfter(maxCreatedAt)) {
+            maxCreatedAt = block.getMaxCreatedAt();
+        }
+    }
+
+    public String getPartition() { return partition; }
+    public void setPartition(String partition) { this.partition = partition; }
+
+    public String getDataFile() { return dataFile; }
+    public void setDataFile(String dataFile) { this.dataFile = dataFile; }
+
+    public long getRows() { return rows; }
+    public void setRows(long rows) { this.rows = rows; }
+
+    public LocalDateTime getMinCreatedAt() { return minCreatedAt; }
+    public void setMinCreatedAt(LocalDateTime minCreatedAt) { this.minCreatedAt = minCreatedAt; }
+
+    public LocalDateTime getMaxCreatedAt() { return maxCreatedAt; }
+    public void setMaxCreatedAt(LocalDateTime maxCreatedAt) { this.maxCreatedAt = maxCreatedAt; }
+
+    public List<Block> getBlocks() { return blocks; }
+    public void setBlocks(List<Block> blocks) { this.blocks = blocks; }
+
+    public static class Block {
+
+        private long offset;
+        private long length;
+        private int rows;
+        private LocalDateTime minCreatedAt;
+        private LocalDateTime maxCreatedAt;
+        // Clave "campaignId|STATUS" (campaignId 0 = sin campaña)
+        private Map<String, Long> counts = new HashMap<>();
+
+        public long matching(Long campaignId, EmailLog.EmailStatus status) {
+            if (campaignId != null && status != null) {
+                return counts.getOrDefault(countKey(campaignId, status.name()), 0L);
+            }
+            if (campaignId == null && status == null) {
+                return rows;
+            }
+            String prefix = campaignId + "|";
+            String suffix = status != null ? "|" + status.name() : null;
+            long total = 0;
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                if (suffix != null ? entry.getKey().endsWith(suffix) : entry.getKey().startsWith(prefix)) {
+                    total += entry.getValue();
+                }
+            }
+            return total;
+        }
+
+        void add(Long campaignId, String status, LocalDateTime createdAt) {
+            rows++;
+            counts.merge(countKey(campaignId, status), 1L, Long::sum);
+            if (minCreatedAt == null || createdAt.isBefore(minCreatedAt)) {
+                minCreatedAt = createdAt;
+            }
+            if (maxCreatedAt == null || createdAt.isAfter(maxCreatedAt)) {
+                maxCreatedAt = createdAt;
+            }
+        }
+
+        public long getOffset() { return offset; }
+        public void setOffset(long offset) { this.offset = offset; }
+
+        public long getLength() { return length; }
+        public void setLength(long length) { this.length = length; }
+
+        public int getRows() { return rows; }
+        public void setRows(int rows) { this.rows = rows; }
+
+        public LocalDateTime getMinCreatedAt() { return minCreatedAt; }
+        public void setMinCreatedAt(LocalDateTime minCreatedAt) { this.minCreatedAt = minCreatedAt; }
+
+        public LocalDateTime getMaxCreatedAt() { return maxCreatedAt; }
+        public void setMaxCreatedAt(LocalDateTime maxCreatedAt) { this.maxCreatedAt = maxCreatedAt; }
+
+        public Map<String, Long> getCounts() { return counts; }
+        public void setCounts(Map<String, Long> counts) { this.counts = counts; }
+    }
+}
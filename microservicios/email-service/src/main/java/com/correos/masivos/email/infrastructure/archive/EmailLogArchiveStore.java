@@ -0,0 +1,375 @@
+package com.correos.masivos.email.infrastructure.archive;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogCursor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Ficheros de archivo de email_logs: NDJSON comprimido en bloques gzip independientes
+// (ordenados por created_at desc) más un índice JSON por fichero
+@Component
+public class EmailLogArchiveStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailLogArchiveStore.class);
+    private static final String DATA_SUFFIX = ".ndjson.gz";
+    private static final String INDEX_SUFFIX = ".index.json";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${email.archive.directory:./data/email-archive}")
+    private String directory;
+
+    @Value("${email.archive.block-rows:2000}")
+    private int blockRows;
+
+    // Archivos válidos, del más reciente al más antiguo
+    private volatile List<LoadedArchive> archives = Collections.emptyList();
+    private volatile LocalDateTime archivedBefore;
+    // Ficheros registrados en BD que esta instancia no encuentra (el directorio debe ser compartido)
+    private volatile List<String> missingFiles = Collections.emptyList();
+
+    // Solo se cargan los ficheros registrados en email_log_archives: un fichero sin registro
+    // es de una exportación cuya transacción no llegó a confirmarse
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${email.archive.reload-interval-ms:600000}",
+               initialDelayString = "${email.archive.reload-interval-ms:600000}")
+    public synchronized void reload() {
+        List<LoadedArchive> loaded = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        LocalDateTime before = null;
+        try {
+            List<Object[]> registered = jdbcTemplate.query(
+                "SELECT file_name, index_file_name, to_date FROM email_log_archives ORDER BY from_date DESC",
+                (rs, rowNum) -> new Object[] {rs.getString(1), rs.getString(2), rs.getTimestamp(3).toLocalDateTime()});
+            for (Object[] files : registered) {
+                LocalDateTime toDate = (LocalDateTime) files[2];
+                if (before == null || toDate.isAfter(before)) {
+                    before = toDate;
+                }
+                Path dataPath = resolve((String) files[0]);
+                Path indexPath = resolve((String) files[1]);
+                if (!Files.isReadable(dataPath)) {
+                    logger.error("Fichero de archivo registrado no disponible: {}", dataPath);
+                    missing.add((String) files[0]);
+                    continue;
+                }
+                try {
+                    EmailLogArchiveIndex index = objectMapper.readValue(indexPath.toFile(), EmailLogArchiveIndex.class);
+                    loaded.add(new LoadedArchive(dataPath, index));
+                } catch (IOException e) {
+                    logger.error("No se pudo leer el índice de archivo {}: {}", indexPath, e.getMessage());
+                    missing.add((String) files[1]);
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Error cargando el registro de archivos de email_logs: {}", e.getMessage());
+            return;
+        }
+        archives = loaded;
+        archivedBefore = before;
+        missingFiles = Collections.unmodifiableList(missing);
+        logger.info("Archivos de email_logs cargados: {}, no disponibles: {}", loaded.size(), missing.size());
+    }
+
+    public List<String> getMissingFiles() {
+        return missingFiles;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public boolean hasArchives() {
+        return !archives.isEmpty();
+    }
+
+    // Límite superior (exclusivo) de created_at de los datos archivados
+    public Optional<LocalDateTime> getArchivedBefore() {
+        return Optional.ofNullable(archivedBefore);
+    }
+
+    // Siguiente página en orden (created_at, id) desc a partir del cursor (null = desde el principio).
+    // Los bloques sin filas que cumplan el filtro o posteriores al cursor no se descomprimen.
+    public List<EmailLog> findBefore(Long campaignId, EmailLog.EmailStatus status, EmailLogCursor before, int limit) {
+        List<EmailLog> result = new ArrayList<>();
+        for (LoadedArchive archive : archives) {
+            for (EmailLogArchiveIndex.Block block : archive.index.getBlocks()) {
+                if (result.size() >= limit) {
+                    return result;
+                }
+                if (block.matching(campaignId, status) == 0
+                        || (before != null && block.getMinCreatedAt().isAfter(before.getCreatedAt()))) {
+                    continue;
+                }
+                readBlock(archive.dataFile, block, campaignId, status, before, limit, result);
+            }
+        }
+        return result;
+    }
+
+    public ArchiveWriter openWriter(String partition) throws IOException {
+        Files.createDirectories(Paths.get(directory));
+        return new ArchiveWriter(partition);
+    }
+
+    private void readBlock(Path dataFile, EmailLogArchiveIndex.Block block, Long campaignId,
+                           EmailLog.EmailStatus status, EmailLogCursor before, int limit, List<EmailLog> result) {
+        try (FileChannel channel = FileChannel.open(dataFile, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) block.getLength());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, block.getOffset() + buffer.position()) < 0) {
+                    throw new IOException("Bloque truncado en " + dataFile);
+                }
+            }
+
+            // Se descomprime en streaming y se para en cuanto se completa la página
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8));
+            String line;
+            while (result.size() < limit && (line = reader.readLine()) != null) {
+                JsonNode row = objectMapper.readTree(line);
+                if (matches(row, campaignId, status) && isBefore(row, before)) {
+                    result.add(toEmailLog(row));
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Error leyendo bloque {} de {}: {}", block.getOffset(), dataFile, e.getMessage());
+        }
+    }
+
+    private boolean isBefore(JsonNode row, EmailLogCursor before) {
+        if (before == null) {
+            return true;
+        }
+        int cmp = LocalDateTime.parse(row.path("created_at").asText()).compareTo(before.getCreatedAt());
+        return cmp < 0 || (cmp == 0 && row.path("id").asLong() < before.getId());
+    }
+
+    private boolean matches(JsonNode row, Long campaignId, EmailLog.EmailStatus status) {
+        if (campaignId != null && row.path("campaign_id").asLong(0) != campaignId) {
+            return false;
+        }
+        return status == null || status.name().equals(row.path("status").asText());
+    }
+
+    private EmailLog toEmailLog(JsonNode row) {
+        EmailLog emailLog = new EmailLog();
+        emailLog.setId(longValue(row, "id"));
+        emailLog.setCampaignId(longValue(row, "campaign_id"));
+        emailLog.setRecipientId(longValue(row, "recipient_id"));
+        emailLog.setRecipientEmail(textValue(row, "recipient_email"));
+        emailLog.setToEmail(textValue(row, "to_email"));
+        emailLog.setSubject(textValue(row, "subject"));
+        emailLog.setFromEmail(textValue(row, "from_email"));
+        emailLog.setFromName(textValue(row, "from_name"));
+        String status = textValue(row, "status");
+        emailLog.setStatus(status != null ? EmailLog.EmailStatus.valueOf(status) : null);
+        emailLog.setSmtpProvider(textValue(row, "smtp_provider"));
+        emailLog.setExternalId(textValue(row, "external_id"));
+        emailLog.setSentAt(dateValue(row, "sent_at"));
+        emailLog.setDeliveredAt(dateValue(row, "delivered_at"));
+        emailLog.setOpenedAt(dateValue(row, "opened_at"));
+        emailLog.setClickedAt(dateValue(row, "clicked_at"));
+        emailLog.setBouncedAt(dateValue(row, "bounced_at"));
+        emailLog.setErrorMessage(textValue(row, "error_message"));
+        Long retryCount = longValue(row, "retry_count");
+        emailLog.setRetryCount(retryCount != null ? retryCount.intValue() : 0);
+        emailLog.setMetadata(textValue(row, "metadata"));
+        emailLog.setCreatedAt(dateValue(row, "created_at"));
+        emailLog.setUpdatedAt(dateValue(row, "updated_at"));
+        return emailLog;
+    }
+
+    private Long longValue(JsonNode row, String field) {
+        JsonNode value = row.get(field);
+        return value == null || value.isNull() ? null : value.asLong();
+    }
+
+    private String textValue(JsonNode row, String field) {
+        JsonNode value = row.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    private LocalDateTime dateValue(JsonNode row, String field) {
+        String value = textValue(row, field);
+        return value != null ? LocalDateTime.parse(value) : null;
+    }
+
+    private Path resolve(String fileName) {
+        return Paths.get(directory).resolve(fileName);
+    }
+
+    private static final class LoadedArchive {
+        private final Path dataFile;
+        private final EmailLogArchiveIndex index;
+
+        LoadedArchive(Path dataFile, EmailLogArchiveIndex index) {
+            this.dataFile = dataFile;
+            this.index = index;
+        }
+    }
+
+    // Escribe un fichero de archivo en temporales; complete() los deja en su nombre definitivo
+    public final class ArchiveWriter implements AutoCloseable {
+
+        private final Path dataTmp;
+        private final Path indexTmp;
+        private final Path dataFile;
+        private final Path indexFile;
+        private final FileOutputStream file;
+        private final OutputStream out;
+        private final EmailLogArchiveIndex index = new EmailLogArchiveIndex();
+        private GZIPOutputStream blockOut;
+        private EmailLogArchiveIndex.Block block;
+        private boolean completed;
+
+        private ArchiveWriter(String partition) throws IOException {
+            this.dataFile = resolve(partition + DATA_SUFFIX);
+            this.indexFile = resolve(partition + INDEX_SUFFIX);
+            this.dataTmp = resolve(partition + DATA_SUFFIX + TMP_SUFFIX);
+            this.indexTmp = resolve(partition + INDEX_SUFFIX + TMP_SUFFIX);
+            this.file = new FileOutputStream(dataTmp.toFile());
+            this.out = new BufferedOutputStream(file, 1 << 16);
+            index.setPartition(partition);
+            index.setDataFile(dataFile.getFileName().toString());
+        }
+
+        public void append(ObjectNode row, Long campaignId, String status, LocalDateTime createdAt) throws IOException {
+            if (blockOut == null) {
+                out.flush();
+                block = new EmailLogArchiveIndex.Block();
+                block.setOffset(file.getChannel().position());
+                blockOut = new GZIPOutputStream(new NonClosingOutputStream(out), 1 << 16);
+            }
+            blockOut.write(objectMapper.writeValueAsBytes(row));
+            blockOut.write('\n');
+            block.add(campaignId, status, createdAt);
+            if (block.getRows() >= blockRows) {
+                finishBlock();
+            }
+        }
+
+        public long getRows() {
+            return index.getRows() + (block != null ? block.getRows() : 0);
+        }
+
+        public String getDataFileName() {
+            return dataFile.getFileName().toString();
+        }
+
+        public String getIndexFileName() {
+            return indexFile.getFileName().toString();
+        }
+
+        // Cierra el último bloque, fuerza los datos a disco y publica fichero e índice
+        public EmailLogArchiveIndex complete() throws IOException {
+            finishBlock();
+            out.flush();
+            file.getFD().sync();
+            out.close();
+            objectMapper.writeValue(indexTmp.toFile(), index);
+            Files.move(dataTmp, dataFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(indexTmp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            completed = true;
+            return index;
+        }
+
+        private void finishBlock() throws IOException {
+            if (blockOut == null) {
+                return;
+            }
+            // Cada bloque es un miembro gzip completo: se puede descomprimir por separado
+            blockOut.close();
+            out.flush();
+            block.setLength(file.getChannel().position() - block.getOffset());
+            index.add(block);
+            blockOut = null;
+            block = null;
+        }
+
+        @Override
+        public void close() {
+            if (completed) {
+                return;
+            }
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.debug("Error cerrando fichero temporal {}: {}", dataTmp, e.getMessage());
+            }
+            try {
+                Files.deleteIfExists(dataTmp);
+                Files.deleteIfExists(indexTmp);
+            } catch (IOException e) {
+                logger.warn("No se pudieron borrar los temporales de {}: {}", dataFile, e.getMessage());
+            }
+        }
+    }
+
+    // Permite cerrar cada GZIPOutputStream (libera el Deflater) sin cerrar el fichero
+    private static final class NonClosingOutputStream extends OutputStream {
+        private final OutputStream delegate;
+
+        NonClosingOutputStream(OutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.flush();
+        }
+    }
+}
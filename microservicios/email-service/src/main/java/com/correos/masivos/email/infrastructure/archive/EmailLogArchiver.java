@@ -0,0 +1,236 @@
+package com.correos.masivos.email.infrastructure.archive;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+// Archivado en frío: las particiones mensuales de email_logs completamente anteriores a la
+// retención se exportan a fichero y se eliminan (DETACH + DROP, sin DELETE masivos)
+@Component
+public class EmailLogArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailLogArchiver.class);
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'email_logs_'yyyy_MM");
+    // Clave del advisory lock: solo una instancia archiva a la vez
+    private static final long ARCHIVE_LOCK_KEY = 0x656d61696c5f6172L;
+
+    private static final String FIND_PARTITIONS =
+        "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+        "WHERE i.inhparent = 'email_logs'::regclass AND c.relname ~ '^email_logs_[0-9]{4}_[0-9]{2}$' " +
+        "ORDER BY c.relname";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EmailLogArchiveStore archiveStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("emailArchiveExecutor")
+    private Executor emailArchiveExecutor;
+
+    @Value("${email.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${email.archive.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${email.archive.fetch-size:1000}")
+    private int fetchSize;
+
+    private JdbcTemplate streamingJdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        // Con autocommit desactivado y fetchSize, PostgreSQL lee la partición con un cursor
+        streamingJdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        streamingJdbcTemplate.setFetchSize(fetchSize);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // El scheduler solo lanza la pasada: exportar una partición lleva minutos y bloquearía los
+    // volcados periódicos (acks, webhooks, contadores) que comparten sus hilos
+    @Scheduled(cron = "${email.archive.cron:0 45 2 * * *}")
+    public void scheduleArchive() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            emailArchiveExecutor.execute(this::archiveExpiredPartitions);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Archivado de email_logs aún en curso, se omite esta pasada");
+        }
+    }
+
+    public void archiveExpiredPartitions() {
+        if (!enabled) {
+            return;
+        }
+        LocalDate cutoff = LocalDate.now().minusDays(retentionDays);
+        List<String> partitions = jdbcTemplate.queryForList(FIND_PARTITIONS, String.class);
+
+        int archived = 0;
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition, PARTITION_FORMAT);
+            // Solo meses completos fuera de la retención
+            if (month.plusMonths(1).atDay(1).isAfter(cutoff)) {
+                break;
+            }
+            try {
+                Boolean done = transactionTemplate.execute(status -> archivePartition(partition, month));
+                if (!Boolean.TRUE.equals(done)) {
+                    logger.info("Archivado de email_logs en curso en otra instancia");
+                    break;
+                }
+                archived++;
+            } catch (Exception e) {
+                logger.error("Error archivando la partición {}: {}", partition, e.getMessage());
+                break;
+            }
+        }
+        if (archived > 0) {
+            archiveStore.reload();
+        }
+    }
+
+    private boolean archivePartition(String partition, YearMonth month) {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, ARCHIVE_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        ExportState state = new ExportState();
+        try (EmailLogArchiveStore.ArchiveWriter writer = archiveStore.openWriter(partition)) {
+            // Una única consulta: todas las filas salen de la misma instantánea
+            streamingJdbcTemplate.query("SELECT * FROM " + partition + " ORDER BY created_at DESC, id DESC", rs -> {
+                try {
+                    state.add(rs);
+                    writer.append(toJson(rs), state.campaignId, rs.getString("status"), state.createdAt);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+
+            // Se bloquean las escrituras en la partición y se comprueba que nada cambió durante la exportación
+            jdbcTemplate.execute("LOCK TABLE " + partition + " IN EXCLUSIVE MODE");
+            Long current = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + partition, Long.class);
+            Timestamp lastUpdate = jdbcTemplate.queryForObject("SELECT MAX(updated_at) FROM " + partition, Timestamp.class);
+            if (current == null || current != state.rows || !Objects.equals(lastUpdate, state.lastUpdate)) {
+                throw new IllegalStateException("la partición cambió durante la exportación");
+            }
+
+            if (state.rows > 0) {
+                writer.complete();
+                jdbcTemplate.update(
+                    "INSERT INTO email_archived_counts (campaign_id, status, count) " +
+                    "SELECT COALESCE(campaign_id, 0), status, COUNT(*) FROM " + partition + " " +
+                    "GROUP BY COALESCE(campaign_id, 0), status " +
+                    "ON CONFLICT (campaign_id, status) DO UPDATE SET count = email_archived_counts.count + EXCLUDED.count");
+                jdbcTemplate.update(
+                    "INSERT INTO email_log_archives (partition_name, file_name, index_file_name, from_date, to_date, row_count) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)",
+                    partition, writer.getDataFileName(), writer.getIndexFileName(),
+                    Timestamp.valueOf(month.atDay(1).atStartOfDay()),
+                    Timestamp.valueOf(month.plusMonths(1).atDay(1).atStartOfDay()),
+                    state.rows);
+            }
+
+            // Sin claves foráneas desde V10: eventos y bounces de la partición se borran en la misma
+            // transacción. El rango de ids acota el recorrido por idx_*_email_log_id
+            int events = 0;
+            int bounces = 0;
+            if (state.rows > 0) {
+                events = jdbcTemplate.update(
+                    "DELETE FROM email_events ev USING " + partition + " p " +
+                    "WHERE ev.email_log_id BETWEEN ? AND ? AND ev.email_log_id = p.id", state.minId, state.maxId);
+                bounces = jdbcTemplate.update(
+                    "DELETE FROM email_bounces b USING " + partition + " p " +
+                    "WHERE b.email_log_id BETWEEN ? AND ? AND b.email_log_id = p.id", state.minId, state.maxId);
+            }
+
+            jdbcTemplate.execute("ALTER TABLE email_logs DETACH PARTITION " + partition);
+            jdbcTemplate.execute("DROP TABLE " + partition);
+            logger.info("Partición {}: eliminados {} eventos y {} bounces asociados", partition, events, bounces);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        logger.info("Partición {} archivada: filas={}, duración={}ms", partition, state.rows, System.currentTimeMillis() - start);
+        return true;
+    }
+
+    private ObjectNode toJson(ResultSet rs) throws SQLException {
+        ObjectNode row = objectMapper.createObjectNode();
+        ResultSetMetaData metaData = rs.getMetaData();
+        for (int i = 1; i <= metaData.getColumnCount(); i++) {
+            String column = metaData.getColumnLabel(i);
+            Object value = rs.getObject(i);
+            if (value == null) {
+                row.putNull(column);
+            } else if (value instanceof Timestamp) {
+                row.put(column, ((Timestamp) value).toLocalDateTime().toString());
+            } else if (value instanceof Number || value instanceof Boolean || value instanceof String) {
+                row.set(column, objectMapper.valueToTree(value));
+            } else {
+                row.put(column, value.toString());
+            }
+        }
+        return row;
+    }
+
+    private static final class ExportState {
+        private long rows;
+        private Timestamp lastUpdate;
+        private Long campaignId;
+        private LocalDateTime createdAt;
+        private long minId = Long.MAX_VALUE;
+        private long maxId = Long.MIN_VALUE;
+
+        void add(ResultSet rs) throws SQLException {
+            rows++;
+            long id = rs.getLong("id");
+            minId = Math.min(minId, id);
+            maxId = Math.max(maxId, id);
+            long campaign = rs.getLong("campaign_id");
+            campaignId = rs.wasNull() ? null : campaign;
+            createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+            Timestamp updatedAt = rs.getTimestamp("updated_at");
+            if (updatedAt != null && (lastUpdate == null || updatedAt.after(lastUpdate))) {
+                lastUpdate = updatedAt;
+            }
+        }
+    }
+}
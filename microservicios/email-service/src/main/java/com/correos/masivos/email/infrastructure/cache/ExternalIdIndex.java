@@ -0,0 +1,169 @@
+package com.correos.masivos.email.infrastructure.cache;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+@Component
+public class ExternalIdIndex {
+
+    // Índice externalId -> (emailLogId, createdAt, estado) para resolver webhooks sin ir a la BD;
+    // con la clave completa (id, created_at) el UPDATE solo toca una partición de email_logs.
+    // Se guarda un hash de 64 bits del externalId en arrays primitivos (sin objetos por
+    // entrada, casi sin presión de GC). Dos generaciones: cuando la actual se llena pasa
+    // a ser la anterior y se descarta la más antigua, conservando las campañas recientes.
+    // Un choque de hash es muy improbable y además los UPDATE comprueban el external_id.
+
+    private static final EmailLog.EmailStatus[] STATUSES = EmailLog.EmailStatus.values();
+
+    @Value("${email.webhooks.index-capacity:500000}")
+    private int capacity;
+
+    private volatile Generation current;
+    private volatile Generation previous;
+
+    @PostConstruct
+    public void init() {
+        current = new Generation(capacity);
+    }
+
+    public void put(String externalId, Long emailLogId, LocalDateTime createdAt, EmailLog.EmailStatus status) {
+        if (externalId == null || emailLogId == null || createdAt == null || status == null) {
+            return;
+        }
+        long key = hash(externalId);
+        long micros = toEpochMicros(createdAt);
+        Generation generation = current;
+        if (!generation.put(key, emailLogId, micros, status.ordinal())) {
+            rotate(generation).put(key, emailLogId, micros, status.ordinal());
+        }
+    }
+
+    public Entry get(String externalId) {
+        if (externalId == null) {
+            return null;
+        }
+        long key = hash(externalId);
+        Entry entry = current.get(key);
+        if (entry == null) {
+            Generation old = previous;
+            entry = old != null ? old.get(key) : null;
+        }
+        return entry;
+    }
+
+    public long size() {
+        Generation old = previous;
+        return current.size() + (old != null ? old.size() : 0);
+    }
+
+    private synchronized Generation rotate(Generation full) {
+        if (current == full) {
+            previous = full;
+            current = new Generation(capacity);
+        }
+        return current;
+    }
+
+    // Microsegundos desde epoch: la misma precisión que timestamp en PostgreSQL
+    static long toEpochMicros(LocalDateTime value) {
+        return value.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + value.getNano() / 1_000;
+    }
+
+    static LocalDateTime fromEpochMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                                           (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static long hash(String value) {
+        // FNV-1a de 64 bits con mezcla final (splitmix64)
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        // 0 marca hueco vacío
+        return h != 0 ? h : 1;
+    }
+
+    public static final class Entry {
+        private final long emailLogId;
+        private final LocalDateTime createdAt;
+        private final EmailLog.EmailStatus status;
+
+        Entry(long emailLogId, LocalDateTime createdAt, EmailLog.EmailStatus status) {
+            this.emailLogId = emailLogId;
+            this.createdAt = createdAt;
+            this.status = status;
+        }
+
+        public long getEmailLogId() { return emailLogId; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public EmailLog.EmailStatus getStatus() { return status; }
+    }
+
+    // Tabla hash de direccionamiento abierto (sondeo lineal) con carga máxima del 50%
+    private static final class Generation {
+        private final long[] keys;
+        private final long[] ids;
+        private final long[] createdAts;
+        private final byte[] statuses;
+        private final int mask;
+        private final int maxEntries;
+        private int size;
+
+        Generation(int capacity) {
+            int slots = Integer.highestOneBit(Math.max(capacity, 16) * 2 - 1) << 1;
+            keys = new long[slots];
+            ids = new long[slots];
+            createdAts = new long[slots];
+            statuses = new byte[slots];
+            mask = slots - 1;
+            maxEntries = capacity;
+        }
+
+        synchronized boolean put(long key, long id, long createdAt, int status) {
+            int slot = find(key);
+            if (keys[slot] == 0) {
+                if (size >= maxEntries) {
+                    return false;
+                }
+                keys[slot] = key;
+                size++;
+            }
+            ids[slot] = id;
+            createdAts[slot] = createdAt;
+            statuses[slot] = (byte) status;
+            return true;
+        }
+
+        synchronized Entry get(long key) {
+            int slot = find(key);
+            return keys[slot] != 0
+                ? new Entry(ids[slot], fromEpochMicros(createdAts[slot]), STATUSES[statuses[slot]])
+                : null;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        private int find(long key) {
+            int slot = (int) (key ^ (key >>> 32)) & mask;
+            while (keys[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.correos.masivos.email.infrastructure.content;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+@Repository
+public class EmailContentRepository {
+
+    private static final String INSERT =
+        "INSERT INTO email_contents (content_hash, html_content, text_content) VALUES (?, ?, ?) " +
+        "ON CONFLICT (content_hash) DO NOTHING RETURNING id";
+
+    private static final String FIND_ID = "SELECT id FROM email_contents WHERE content_hash = ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Transacción propia: el id devuelto queda confirmado aunque el envío que lo pidió se revierta,
+    // así se puede cachear sin riesgo
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public long insertOrFind(String contentHash, String htmlContent, String textContent) {
+        List<Long> inserted = jdbcTemplate.queryForList(INSERT, Long.class, contentHash, htmlContent, textContent);
+        if (!inserted.isEmpty()) {
+            return inserted.get(0);
+        }
+        return jdbcTemplate.queryForObject(FIND_ID, Long.class, contentHash);
+    }
+}
@@ -0,0 +1,67 @@
+package com.correos.masivos.email.infrastructure.content;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cuerpo de los emails guardado una vez por contenido distinto (email_contents) en lugar de en
+// cada fila de email_logs: una campaña sin personalizar comparte una sola fila. El historial,
+// los webhooks y el archivado no cargan el HTML; solo lo lee el reintento.
+@Component
+public class EmailContentStore {
+
+    @Autowired
+    private EmailContentRepository emailContentRepository;
+
+    @Value("${email.content.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    // hash -> id ya confirmado; casi todos los envíos de una campaña aciertan aquí
+    private final ConcurrentHashMap<String, Long> ids = new ConcurrentHashMap<>();
+
+    // null si el email no tiene cuerpo
+    public Long resolve(String htmlContent, String textContent) {
+        if (htmlContent == null && textContent == null) {
+            return null;
+        }
+        String hash = hash(htmlContent, textContent);
+        Long id = ids.get(hash);
+        if (id != null) {
+            return id;
+        }
+        id = emailContentRepository.insertOrFind(hash, htmlContent, textContent);
+        if (ids.size() >= cacheMaxEntries) {
+            ids.clear();
+        }
+        ids.put(hash, id);
+        return id;
+    }
+
+    // SHA-256 de html + separador + texto; el separador distingue ("a", "b") de ("ab", null)
+    static String hash(String htmlContent, String textContent) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            if (htmlContent != null) {
+                digest.update((byte) 'h');
+                digest.update(htmlContent.getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0x1f);
+            if (textContent != null) {
+                digest.update((byte) 't');
+                digest.update(textContent.getBytes(StandardCharsets.UTF_8));
+            }
+            StringBuilder hex = new StringBuilder(64);
+            for (byte b : digest.digest()) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
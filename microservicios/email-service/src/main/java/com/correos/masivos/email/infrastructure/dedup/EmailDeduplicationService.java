@@ -0,0 +1,162 @@
+package com.correos.masivos.email.infrastructure.dedup;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collections;
+
+@Component
+public class EmailDeduplicationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDeduplicationService.class);
+    private static final String IDEMPOTENCY_KEY = "email:idempotency:";
+    // La reserva guarda cuándo se tomó ("SENDING:<epoch ms>") para poder detectar si está abandonada
+    private static final String STATE_SENDING = "SENDING";
+    private static final String STATE_SENT = "SENT";
+
+    // Cambia el valor solo si sigue siendo el esperado (tomar una reserva abandonada)
+    private static final RedisScript<Long> REPLACE_IF_EQUALS = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then " +
+        "redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3]) return 1 else return 0 end", Long.class);
+
+    // Borra la clave solo si sigue siendo nuestra reserva (otro consumidor pudo tomarla)
+    private static final RedisScript<Long> DELETE_IF_EQUALS = new DefaultRedisScript<>(
+        "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+        Long.class);
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Value("${email.dedup.sent-ttl-hours:72}")
+    private long sentTtlHours;
+
+    @Value("${email.dedup.in-flight-ttl-minutes:15}")
+    private long inFlightTtlMinutes;
+
+    // Una reserva más antigua se considera de un consumidor caído y otro puede tomarla.
+    // Debe superar el tiempo máximo de un envío (timeout por proveedor x proveedores).
+    @Value("${email.dedup.in-flight-stale-seconds:120}")
+    private long inFlightStaleSeconds;
+
+    // Reserva la clave antes de enviar. Solo SENT es un duplicado; una reserva SENDING de otro
+    // consumidor se respeta mientras sea reciente (el mensaje se reintenta más tarde) y se toma
+    // si está abandonada (consumidor caído entre la reserva y markSent).
+    public Reservation tryAcquire(String key) {
+        if (key == null) {
+            return Reservation.acquired(null, null);
+        }
+        String redisKey = IDEMPOTENCY_KEY + key;
+        String reservation = STATE_SENDING + ":" + System.currentTimeMillis();
+        try {
+            Boolean acquired = redisTemplate.opsForValue()
+                .setIfAbsent(redisKey, reservation, Duration.ofMinutes(inFlightTtlMinutes));
+            if (Boolean.TRUE.equals(acquired)) {
+                return Reservation.acquired(key, reservation);
+            }
+
+            String current = redisTemplate.opsForValue().get(redisKey);
+            if (current == null) {
+                // Caducó o se liberó entre las dos operaciones: se vuelve a intentar la reserva
+                Boolean retried = redisTemplate.opsForValue()
+                    .setIfAbsent(redisKey, reservation, Duration.ofMinutes(inFlightTtlMinutes));
+                return Boolean.TRUE.equals(retried) ? Reservation.acquired(key, reservation) : Reservation.inFlight(key);
+            }
+            if (STATE_SENT.equals(current)) {
+                return Reservation.sent(key);
+            }
+            if (!isStale(current)) {
+                return Reservation.inFlight(key);
+            }
+
+            Long replaced = redisTemplate.execute(REPLACE_IF_EQUALS, Collections.singletonList(redisKey),
+                current, reservation, String.valueOf(Duration.ofMinutes(inFlightTtlMinutes).toMillis()));
+            if (replaced != null && replaced == 1L) {
+                logger.warn("Reserva de idempotencia abandonada tomada por este consumidor: key={}", key);
+                return Reservation.acquired(key, reservation);
+            }
+            return Reservation.inFlight(key);
+        } catch (Exception e) {
+            // Sin Redis no hay forma fiable de saber si otro consumidor lo envió: se envía igualmente
+            // (entrega al menos una vez)
+            logger.warn("Redis no disponible para deduplicación, se envía sin reserva: key={}: {}", key, e.getMessage());
+            return Reservation.acquired(key, null);
+        }
+    }
+
+    public void markSent(String key) {
+        if (key == null) {
+            return;
+        }
+        try {
+            redisTemplate.opsForValue().set(IDEMPOTENCY_KEY + key, STATE_SENT, Duration.ofHours(sentTtlHours));
+        } catch (Exception e) {
+            logger.warn("No se pudo registrar la clave de idempotencia {}: {}", key, e.getMessage());
+        }
+    }
+
+    // Libera la reserva tras un fallo para que los reintentos puedan volver a tomarla
+    public void release(Reservation reservation) {
+        if (reservation.getKey() == null || reservation.getValue() == null) {
+            return;
+        }
+        try {
+            redisTemplate.execute(DELETE_IF_EQUALS, Collections.singletonList(IDEMPOTENCY_KEY + reservation.getKey()),
+                reservation.getValue());
+        } catch (Exception e) {
+            logger.warn("No se pudo liberar la clave de idempotencia {}: {}", reservation.getKey(), e.getMessage());
+        }
+    }
+
+    private boolean isStale(String value) {
+        // Valores sin marca de tiempo (formato anterior) cuentan como abandonados
+        int separator = value.indexOf(':');
+        if (!value.startsWith(STATE_SENDING) || separator < 0) {
+            return true;
+        }
+        try {
+            long reservedAt = Long.parseLong(value.substring(separator + 1));
+            return System.currentTimeMillis() - reservedAt > inFlightStaleSeconds * 1000L;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    public static final class Reservation {
+
+        public enum State { ACQUIRED, SENT, IN_FLIGHT }
+
+        private final State state;
+        private final String key;
+        private final String value;
+
+        private Reservation(State state, String key, String value) {
+            this.state = state;
+            this.key = key;
+            this.value = value;
+        }
+
+        static Reservation acquired(String key, String value) {
+            return new Reservation(State.ACQUIRED, key, value);
+        }
+
+        static Reservation sent(String key) {
+            return new Reservation(State.SENT, key, null);
+        }
+
+        static Reservation inFlight(String key) {
+            return new Reservation(State.IN_FLIGHT, key, null);
+        }
+
+        public State getState() { return state; }
+        public String getKey() { return key; }
+        // Valor escrito en Redis por esta reserva; null si no se llegó a escribir
+        public String getValue() { return value; }
+    }
+}
@@ -0,0 +1,17 @@
+package com.correos.masivos.email.infrastructure.dedup;
+
+// Otro consumidor tiene reservada la clave y aún no ha terminado: el mensaje no es un duplicado
+// confirmado, debe volver a procesarse más tarde
+public class EmailInFlightException extends RuntimeException {
+
+    private final String idempotencyKey;
+
+    public EmailInFlightException(String idempotencyKey) {
+        super("Envío en curso en otro consumidor: key=" + idempotencyKey);
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+}
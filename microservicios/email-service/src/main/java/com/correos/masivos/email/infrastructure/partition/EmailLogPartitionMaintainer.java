@@ -0,0 +1,35 @@
+package com.correos.masivos.email.infrastructure.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class EmailLogPartitionMaintainer {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailLogPartitionMaintainer.class);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${email.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // Crea por adelantado las particiones mensuales de email_logs (idempotente)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${email.partitions.maintenance-cron:0 15 2 * * *}")
+    public void ensureFuturePartitions() {
+        try {
+            jdbcTemplate.execute("SELECT ensure_email_logs_partitions(" + monthsAhead + ")");
+            logger.info("Particiones de email_logs aseguradas para los próximos {} meses", monthsAhead);
+        } catch (Exception e) {
+            logger.error("Error creando particiones de email_logs: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.correos.masivos.email.infrastructure.ratelimit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class ProviderRateLimiter {
+
+    private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    // 0 o menos desactiva el límite: sin configurar no se frena ningún envío
+    @Value("${email.rate-limit.tokens-per-second:0}")
+    private double tokensPerSecond;
+
+    @Value("${email.rate-limit.burst:20}")
+    private double burst;
+
+    @Value("${email.rate-limit.max-wait-ms:15000}")
+    private long maxWaitMs;
+
+    public boolean tryAcquire(String provider) {
+        return !isEnabled() || bucket(provider).tryConsume();
+    }
+
+    public boolean acquire(String provider) {
+        if (!isEnabled()) {
+            return true;
+        }
+        try {
+            return bucket(provider).consume(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private boolean isEnabled() {
+        return tokensPerSecond > 0;
+    }
+
+    private TokenBucket bucket(String provider) {
+        return buckets.computeIfAbsent(provider, p -> new TokenBucket(tokensPerSecond, burst));
+    }
+}
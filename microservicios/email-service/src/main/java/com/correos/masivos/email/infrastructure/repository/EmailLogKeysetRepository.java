@@ -0,0 +1,50 @@
+package com.correos.masivos.email.infrastructure.repository;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogCursor;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.util.List;
+
+// Páginas del historial por keyset sobre (created_at, id): sin OFFSET ni COUNT, el coste de
+// cada página no depende de lo profunda que sea. Usa los índices de V12.
+@Repository
+public class EmailLogKeysetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public List<EmailLog> findPage(Long campaignId, EmailLog.EmailStatus status, EmailLogCursor after,
+                                   boolean ascending, int limit) {
+        StringBuilder jpql = new StringBuilder("SELECT e FROM EmailLog e WHERE 1 = 1");
+        if (campaignId != null) {
+            jpql.append(" AND e.campaignId = :campaignId");
+        }
+        if (status != null) {
+            jpql.append(" AND e.status = :status");
+        }
+        if (after != null) {
+            // La cota simple sobre created_at permite el rango en el índice y la poda de particiones
+            jpql.append(ascending
+                ? " AND e.createdAt >= :createdAt AND (e.createdAt > :createdAt OR e.id > :id)"
+                : " AND e.createdAt <= :createdAt AND (e.createdAt < :createdAt OR e.id < :id)");
+        }
+        jpql.append(ascending ? " ORDER BY e.createdAt ASC, e.id ASC" : " ORDER BY e.createdAt DESC, e.id DESC");
+
+        TypedQuery<EmailLog> query = entityManager.createQuery(jpql.toString(), EmailLog.class);
+        if (campaignId != null) {
+            query.setParameter("campaignId", campaignId);
+        }
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (after != null) {
+            query.setParameter("createdAt", after.getCreatedAt());
+            query.setParameter("id", after.getId());
+        }
+        return query.setMaxResults(limit).getResultList();
+    }
+}
@@ -1,6 +1,7 @@
 package com.correos.masivos.email.infrastructure.repository;
 
 import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogKey;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -13,19 +14,24 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface EmailLogRepository extends JpaRepository<EmailLog, Long> {
+public interface EmailLogRepository extends JpaRepository<EmailLog, EmailLogKey> {
     
     // Búsqueda básica
     Page<EmailLog> findByCampaignId(Long campaignId, Pageable pageable);
     Page<EmailLog> findByStatus(EmailLog.EmailStatus status, Pageable pageable);
     Page<EmailLog> findByCampaignIdAndStatus(Long campaignId, EmailLog.EmailStatus status, Pageable pageable);
     
-    // Búsqueda por external ID
-    Optional<EmailLog> findByExternalId(String externalId);
+    // Solo por id (sin created_at): recorre el índice de clave de todas las particiones.
+    // Para consultas puntuales de la API; los caminos de envío usan findById(EmailLogKey)
+    Optional<EmailLog> findFirstById(Long id);
     
-    // Emails fallidos para reintento
-    @Query("SELECT e FROM EmailLog e WHERE e.campaignId = :campaignId AND e.status = 'FAILED' AND e.retryCount < e.maxRetries")
-    List<EmailLog> findFailedEmailsForRetry(@Param("campaignId") Long campaignId);
+    // Búsqueda por external ID acotada a una ventana de created_at (poda de particiones)
+    @Query("SELECT e FROM EmailLog e WHERE e.externalId = :externalId AND e.createdAt >= :since")
+    List<EmailLog> findByExternalIdSince(@Param("externalId") String externalId, @Param("since") LocalDateTime since);
+    
+    // Emails fallidos para reintento (acotado por created_at para limitar las particiones leídas)
+    @Query("SELECT e FROM EmailLog e WHERE e.campaignId = :campaignId AND e.status = 'FAILED' AND e.retryCount < e.maxRetries AND e.createdAt >= :since")
+    List<EmailLog> findFailedEmailsForRetry(@Param("campaignId") Long campaignId, @Param("since") LocalDateTime since);
     
     // Contadores
     long countByStatus(EmailLog.EmailStatus status);
@@ -36,44 +42,22 @@ public interface EmailLogRepository extends JpaRepository<EmailLog, Long> {
     long countByProviderSince(@Param("provider") String provider, @Param("since") LocalDateTime since);
     
     // Emails pendientes
-    @Query("SELECT e FROM EmailLog e WHERE e.status = 'PENDING' ORDER BY e.createdAt ASC")
-    List<EmailLog> findPendingEmails(Pageable pageable);
+    @Query("SELECT e FROM EmailLog e WHERE e.status = 'PENDING' AND e.createdAt >= :since ORDER BY e.createdAt ASC")
+    List<EmailLog> findPendingEmails(@Param("since") LocalDateTime since, Pageable pageable);
     
     // Estadísticas por campaña
     @Query("SELECT e.status, COUNT(e) FROM EmailLog e WHERE e.campaignId = :campaignId GROUP BY e.status")
     List<Object[]> getCampaignStats(@Param("campaignId") Long campaignId);
     
-    // Estadísticas globales
-    @Query("SELECT e.status, COUNT(e) FROM EmailLog e GROUP BY e.status")
+    // Estadísticas globales (vista materializada email_stats_summary, refrescada en segundo plano)
+    @Query(value = "SELECT status, SUM(count) FROM email_stats_summary GROUP BY status", nativeQuery = true)
     List<Object[]> getGlobalStats();
     
-    // Estadísticas por rango de fechas
-    @Query("SELECT e.status, COUNT(e) FROM EmailLog e WHERE e.createdAt BETWEEN :fromDate AND :toDate GROUP BY e.status")
+    // Estadísticas por rango de fechas (vista materializada, granularidad de día)
+    @Query(value = "SELECT status, SUM(count) FROM email_stats_summary WHERE date BETWEEN CAST(:fromDate AS DATE) AND CAST(:toDate AS DATE) GROUP BY status", nativeQuery = true)
     List<Object[]> getStatsByDateRange(@Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
     
     // Estadísticas por campaña y rango de fechas
     @Query("SELECT e.status, COUNT(e) FROM EmailLog e WHERE e.campaignId = :campaignId AND e.createdAt BETWEEN :fromDate AND :toDate GROUP BY e.status")
     List<Object[]> getCampaignStatsByDateRange(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    // Contadores específicos para estadísticas
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countTotalEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE e.status = 'SENT' AND (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countSentEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE e.status = 'DELIVERED' AND (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countDeliveredEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE e.status = 'OPENED' AND (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countOpenedEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE e.status = 'CLICKED' AND (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countClickedEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE e.status = 'BOUNCED' AND (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countBouncedEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
-    
-    @Query("SELECT COUNT(e) FROM EmailLog e WHERE e.status = 'FAILED' AND (:campaignId IS NULL OR e.campaignId = :campaignId) AND (:fromDate IS NULL OR e.createdAt >= :fromDate) AND (:toDate IS NULL OR e.createdAt <= :toDate)")
-    long countFailedEmails(@Param("campaignId") Long campaignId, @Param("fromDate") LocalDateTime fromDate, @Param("toDate") LocalDateTime toDate);
 }
\ No newline at end of file
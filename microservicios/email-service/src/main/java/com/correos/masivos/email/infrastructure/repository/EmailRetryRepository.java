@@ -0,0 +1,150 @@
+package com.correos.masivos.email.infrastructure.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Repository
+public class EmailRetryRepository {
+
+    // Keyset sobre (created_at, id) con el índice (campaign_id, status, created_at, id): cada
+    // página es un rango del índice, sin OFFSET, y la cota inferior poda las particiones antiguas
+    // El cuerpo sale de email_contents; las filas anteriores a V13 lo tienen aún en email_logs
+    private static final String FIND_FAILED =
+        "SELECT e.id, e.created_at, e.campaign_id, e.recipient_id, e.to_email, e.subject, e.from_email, " +
+        "e.from_name, e.reply_to, COALESCE(c.html_content, e.html_content) AS html_content, " +
+        "COALESCE(c.text_content, e.text_content) AS text_content, e.retry_count FROM email_logs e " +
+        "LEFT JOIN email_contents c ON c.id = e.content_id " +
+        "WHERE e.campaign_id = ? AND e.status = 'FAILED' AND e.retry_count < e.max_retries " +
+        "AND (e.created_at, e.id) > (?, ?) ORDER BY e.created_at, e.id LIMIT ?";
+
+    private static final String ROWS_SOURCE =
+        "FROM unnest(?::bigint[], ?::timestamp[]) AS v(id, created_at) " +
+        "WHERE e.id = v.id AND e.created_at = v.created_at ";
+
+    // Reserva el lote para reintento en una sola sentencia; solo devuelve las filas que seguían
+    // en FAILED, así dos trabajos sobre la misma campaña nunca reencolan el mismo email
+    private static final String CLAIM =
+        "UPDATE email_logs e SET status = 'PENDING', retry_count = e.retry_count + 1, " +
+        "error_message = NULL, updated_at = NOW() " + ROWS_SOURCE +
+        "AND e.status = 'FAILED' AND e.retry_count < e.max_retries RETURNING e.id";
+
+    private static final String RELEASE =
+        "UPDATE email_logs e SET status = 'FAILED', error_message = ?, updated_at = NOW() " + ROWS_SOURCE +
+        "AND e.status = 'PENDING' RETURNING e.id";
+
+    // Reservas huérfanas: el trabajo murió tras reservar o el mensaje acabó en la DLQ y la fila
+    // se quedó en PENDING; vuelven a FAILED para que un próximo reintento las recoja
+    private static final String RELEASE_STALE =
+        "UPDATE email_logs SET status = 'FAILED', error_message = 'Reintento sin completar', updated_at = NOW() " +
+        "WHERE status = 'PENDING' AND retry_count > 0 AND updated_at < ? AND created_at >= ? " +
+        "RETURNING campaign_id, created_at";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    public List<RetryCandidate> findFailedAfter(Long campaignId, LocalDateTime afterCreatedAt, long afterId, int limit) {
+        return jdbcTemplate.query(FIND_FAILED, (rs, rowNum) -> {
+            RetryCandidate candidate = new RetryCandidate();
+            candidate.id = rs.getLong("id");
+            candidate.createdAt = rs.getTimestamp("created_at").toLocalDateTime();
+            candidate.campaignId = rs.getLong("campaign_id");
+            long recipientId = rs.getLong("recipient_id");
+            candidate.recipientId = rs.wasNull() ? null : recipientId;
+            candidate.toEmail = rs.getString("to_email");
+            candidate.subject = rs.getString("subject");
+            candidate.fromEmail = rs.getString("from_email");
+            candidate.fromName = rs.getString("from_name");
+            candidate.replyTo = rs.getString("reply_to");
+            candidate.htmlContent = rs.getString("html_content");
+            candidate.textContent = rs.getString("text_content");
+            candidate.retryCount = rs.getInt("retry_count");
+            return candidate;
+        }, campaignId, Timestamp.valueOf(afterCreatedAt), afterId, limit);
+    }
+
+    // FAILED -> PENDING con retry_count + 1; devuelve los ids reservados
+    public Set<Long> claim(List<RetryCandidate> candidates) {
+        return updateRows(CLAIM, candidates, null);
+    }
+
+    // PENDING -> FAILED para los reservados que no se llegaron a encolar
+    public Set<Long> release(List<RetryCandidate> candidates, String errorMessage) {
+        return updateRows(RELEASE, candidates, errorMessage);
+    }
+
+    // Devuelve (campaign_id, created_at) de cada fila liberada, para los contadores
+    public List<Object[]> releaseStale(LocalDateTime claimedBefore, LocalDateTime createdAfter) {
+        return jdbcTemplate.query(RELEASE_STALE, (rs, rowNum) -> {
+            long campaignId = rs.getLong("campaign_id");
+            return new Object[] {
+                rs.wasNull() ? null : campaignId,
+                rs.getTimestamp("created_at").toLocalDateTime()
+            };
+        }, Timestamp.valueOf(claimedBefore), Timestamp.valueOf(createdAfter));
+    }
+
+    private Set<Long> updateRows(String sql, List<RetryCandidate> candidates, String errorMessage) {
+        Set<Long> updated = new HashSet<>();
+        if (candidates.isEmpty()) {
+            return updated;
+        }
+
+        Long[] ids = new Long[candidates.size()];
+        Timestamp[] createdAts = new Timestamp[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            ids[i] = candidates.get(i).id;
+            createdAts[i] = Timestamp.valueOf(candidates.get(i).createdAt);
+        }
+
+        PreparedStatementSetter params = ps -> {
+            int index = 1;
+            if (errorMessage != null) {
+                ps.setString(index++, errorMessage);
+            }
+            ps.setArray(index++, ps.getConnection().createArrayOf("bigint", ids));
+            ps.setArray(index, ps.getConnection().createArrayOf("timestamp", createdAts));
+        };
+        jdbcTemplate.query(sql, params, rs -> { updated.add(rs.getLong(1)); });
+        return updated;
+    }
+
+    public static class RetryCandidate {
+        private long id;
+        private LocalDateTime createdAt;
+        private Long campaignId;
+        private Long recipientId;
+        private String toEmail;
+        private String subject;
+        private String fromEmail;
+        private String fromName;
+        private String replyTo;
+        private String htmlContent;
+        private String textContent;
+        private int retryCount;
+
+        public long getId() { return id; }
+        public LocalDateTime getCreatedAt() { return createdAt; }
+        public Long getCampaignId() { return campaignId; }
+        public Long getRecipientId() { return recipientId; }
+        public String getToEmail() { return toEmail; }
+        public String getSubject() { return subject; }
+        public String getFromEmail() { return fromEmail; }
+        public String getFromName() { return fromName; }
+        public String getReplyTo() { return replyTo; }
+        public String getHtmlContent() { return htmlContent; }
+        public String getTextContent() { return textContent; }
+        public int getRetryCount() { return retryCount; }
+
+        public boolean hasContent() {
+            return (htmlContent != null && !htmlContent.isBlank()) || (textContent != null && !textContent.isBlank());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.correos.masivos.email.infrastructure.repository;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class EmailStatsRollupRepository {
+
+    private static final String ADD_HOURLY =
+        "INSERT INTO email_stats_hourly (bucket_start, campaign_id, status, count) VALUES (?, ?, ?, ?) " +
+        "ON CONFLICT (bucket_start, campaign_id, status) DO UPDATE SET count = email_stats_hourly.count + EXCLUDED.count";
+
+    private static final String ADD_DAILY =
+        "INSERT INTO email_stats_daily (bucket_date, campaign_id, status, count) VALUES (?, ?, ?, ?) " +
+        "ON CONFLICT (bucket_date, campaign_id, status) DO UPDATE SET count = email_stats_daily.count + EXCLUDED.count";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Cada fila: inicio de la hora, campaignId (0 = sin campaña), estado, delta
+    public void addHourlyDeltas(List<Object[]> deltas) {
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_HOURLY, deltas);
+        }
+    }
+
+    // Cada fila: día, campaignId (0 = sin campaña), estado, delta
+    public void addDailyDeltas(List<Object[]> deltas) {
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_DAILY, deltas);
+        }
+    }
+
+    // Rangos semiabiertos [from, to): cada consulta usa un predicado de rango simple sobre la clave
+    public void addHourlyCounts(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDateTime from, LocalDateTime to) {
+        query(counts, "SELECT status, SUM(count) FROM email_stats_hourly WHERE bucket_start >= ? AND bucket_start < ?",
+              campaignId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public void addDailyCounts(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDate from, LocalDate to) {
+        query(counts, "SELECT status, SUM(count) FROM email_stats_daily WHERE bucket_date >= ? AND bucket_date < ?",
+              campaignId, Date.valueOf(from), Date.valueOf(to));
+    }
+
+    // Filas de email_logs sin agregar (bordes del rango y hora en curso)
+    public void addRawCounts(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDateTime from, LocalDateTime to) {
+        query(counts, "SELECT status, COUNT(*) FROM email_logs WHERE created_at >= ? AND created_at < ?",
+              campaignId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    private void query(Map<EmailLog.EmailStatus, Long> counts, String sql, Long campaignId, Object from, Object to) {
+        List<Object> args = new ArrayList<>(List.of(from, to));
+        if (campaignId != null) {
+            sql += " AND campaign_id = ?";
+            args.add(campaignId);
+        }
+        RowCallbackHandler handler = rs -> counts.merge(EmailLog.EmailStatus.valueOf(rs.getString(1)), rs.getLong(2), Long::sum);
+        jdbcTemplate.query(sql + " GROUP BY status", handler, args.toArray());
+    }
+}
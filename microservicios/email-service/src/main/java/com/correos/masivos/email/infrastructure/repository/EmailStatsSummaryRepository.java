@@ -0,0 +1,45 @@
+package com.correos.masivos.email.infrastructure.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public class EmailStatsSummaryRepository {
+
+    private static final String VIEW_NAME = "email_stats_summary";
+    // Clave del advisory lock: solo una instancia refresca la vista a la vez
+    private static final long REFRESH_LOCK_KEY = 0x656d61696c5f7373L;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Devuelve false si otra instancia ya está refrescando la vista
+    @Transactional
+    public boolean refresh() {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, REFRESH_LOCK_KEY);
+        if (!Boolean.TRUE.equals(locked)) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        jdbcTemplate.execute("SELECT refresh_email_stats()");
+        jdbcTemplate.update(
+            "INSERT INTO materialized_view_refreshes (view_name, refreshed_at, duration_ms) VALUES (?, NOW(), ?) " +
+            "ON CONFLICT (view_name) DO UPDATE SET refreshed_at = EXCLUDED.refreshed_at, duration_ms = EXCLUDED.duration_ms",
+            VIEW_NAME, System.currentTimeMillis() - start);
+        return true;
+    }
+
+    public Optional<LocalDateTime> findLastRefresh() {
+        List<Timestamp> refreshedAt = jdbcTemplate.queryForList(
+            "SELECT refreshed_at FROM materialized_view_refreshes WHERE view_name = ?", Timestamp.class, VIEW_NAME);
+        return refreshedAt.isEmpty() ? Optional.empty() : Optional.of(refreshedAt.get(0).toLocalDateTime());
+    }
+}
@@ -0,0 +1,64 @@
+package com.correos.masivos.email.infrastructure.repository;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class EmailStatusCountRepository {
+
+    private static final String ADD_DELTA =
+        "INSERT INTO email_status_counts (campaign_id, status, count, updated_at) VALUES (?, ?, ?, NOW()) " +
+        "ON CONFLICT (campaign_id, status) DO UPDATE " +
+        "SET count = email_status_counts.count + EXCLUDED.count, updated_at = NOW()";
+
+    // Las filas ya archivadas (email_archived_counts) siguen contando en las estadísticas
+    private static final String RECOMPUTE =
+        "INSERT INTO email_status_counts (campaign_id, status, count, updated_at) " +
+        "SELECT campaign_id, status, SUM(count), NOW() FROM (" +
+        "SELECT COALESCE(campaign_id, 0) AS campaign_id, status, COUNT(*) AS count FROM email_logs " +
+        "GROUP BY COALESCE(campaign_id, 0), status " +
+        "UNION ALL SELECT campaign_id, status, count FROM email_archived_counts) t " +
+        "GROUP BY campaign_id, status " +
+        "ON CONFLICT (campaign_id, status) DO UPDATE SET count = EXCLUDED.count, updated_at = NOW()";
+
+    private static final String RESET_MISSING =
+        "UPDATE email_status_counts c SET count = 0, updated_at = NOW() WHERE c.count <> 0 AND NOT EXISTS (" +
+        "SELECT 1 FROM email_logs e WHERE COALESCE(e.campaign_id, 0) = c.campaign_id AND e.status = c.status) " +
+        "AND NOT EXISTS (SELECT 1 FROM email_archived_counts a " +
+        "WHERE a.campaign_id = c.campaign_id AND a.status = c.status AND a.count <> 0)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Cada fila: campaignId (0 = sin campaña), estado, delta
+    public void addDeltas(List<Object[]> deltas) {
+        if (!deltas.isEmpty()) {
+            jdbcTemplate.batchUpdate(ADD_DELTA, deltas);
+        }
+    }
+
+    public Map<EmailLog.EmailStatus, Long> findCounts(Long campaignId) {
+        Map<EmailLog.EmailStatus, Long> counts = new EnumMap<>(EmailLog.EmailStatus.class);
+        if (campaignId != null) {
+            jdbcTemplate.query("SELECT status, count FROM email_status_counts WHERE campaign_id = ?",
+                rs -> { counts.put(EmailLog.EmailStatus.valueOf(rs.getString(1)), rs.getLong(2)); },
+                campaignId);
+        } else {
+            jdbcTemplate.query("SELECT status, SUM(count) FROM email_status_counts GROUP BY status",
+                rs -> { counts.put(EmailLog.EmailStatus.valueOf(rs.getString(1)), rs.getLong(2)); });
+        }
+        return counts;
+    }
+
+    // Recalcula los contadores desde email_logs para corregir posibles derivas
+    public void recompute() {
+        jdbcTemplate.update(RECOMPUTE);
+        jdbcTemplate.update(RESET_MISSING);
+    }
+}
@@ -0,0 +1,154 @@
+package com.correos.masivos.email.infrastructure.repository;
+
+import com.correos.masivos.email.domain.model.WebhookEvent;
+import com.correos.masivos.email.domain.model.EmailLogKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+@Repository
+public class WebhookEventBatchRepository {
+
+    // Una sola sentencia por tipo de evento: los arrays se desanidan en una tabla
+    // (id, created_at, external_id, occurred_at, reason) y se cruzan con email_logs. Si la clave
+    // ya se conoce (índice en memoria) se usa la clave primaria completa y solo se toca una
+    // partición; si no, se busca por external_id dentro de la ventana de created_at.
+    // Las condiciones evitan reescribir filas sin cambios y retroceder de estado.
+    // El auto-join con email_logs (o) permite devolver el estado anterior a la actualización.
+    private static final String EVENTS_SOURCE =
+        "FROM unnest(?::bigint[], ?::timestamp[], ?::text[], ?::timestamp[], ?::text[]) " +
+        "AS v(id, created_at, external_id, occurred_at, reason), email_logs o ";
+
+    private static final String MATCH_BY_ID =
+        "WHERE o.id = e.id AND o.created_at = e.created_at AND e.id = v.id AND e.created_at = v.created_at " +
+        "AND e.external_id = v.external_id ";
+    // Un email se crea antes de cualquier evento suyo: occurred_at acota created_at por arriba
+    // (con un margen por desfase de relojes) y la ventana configurada por abajo
+    private static final String MATCH_BY_EXTERNAL_ID =
+        "WHERE o.id = e.id AND o.created_at = e.created_at AND v.id IS NULL AND e.external_id = v.external_id " +
+        "AND e.created_at <= v.occurred_at + INTERVAL '1 day' AND e.created_at >= ? ";
+
+    private static final String RETURNING = " RETURNING e.id, e.external_id, e.status, o.status, e.campaign_id, e.created_at";
+
+    private static final String INSERT_DEAD_LETTER =
+        "INSERT INTO webhook_event_dead_letters (external_id, event_type, reason, occurred_at, received_at, attempts, error_message) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${email.webhooks.lookup-window-days:30}")
+    private long lookupWindowDays;
+
+    public interface UpdatedRowCallback {
+        void onUpdated(long emailLogId, String externalId, String status, String previousStatus,
+                       Long campaignId, LocalDateTime createdAt);
+    }
+
+    // Los eventos con clave conocida se aplican por clave primaria y el resto por external_id.
+    // Devuelve el número de filas actualizadas e informa de cada una (id, external_id, estados y campaña).
+    public int applyEvents(WebhookEvent.EventType type, List<WebhookEvent> events, List<EmailLogKey> emailLogKeys,
+                           UpdatedRowCallback callback) {
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        Long[] ids = new Long[events.size()];
+        Timestamp[] createdAts = new Timestamp[events.size()];
+        String[] externalIds = new String[events.size()];
+        Timestamp[] occurredAt = new Timestamp[events.size()];
+        String[] reasons = new String[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            WebhookEvent event = events.get(i);
+            EmailLogKey key = emailLogKeys.get(i);
+            if (key != null && key.getCreatedAt() != null) {
+                ids[i] = key.getId();
+                createdAts[i] = Timestamp.valueOf(key.getCreatedAt());
+            }
+            externalIds[i] = event.getExternalId();
+            occurredAt[i] = Timestamp.valueOf(event.getOccurredAt());
+            reasons[i] = event.getReason();
+        }
+
+        Timestamp since = Timestamp.valueOf(LocalDateTime.now().minusDays(lookupWindowDays));
+        PreparedStatementSetter byId = ps -> setArrays(ps, ids, createdAts, externalIds, occurredAt, reasons);
+        PreparedStatementSetter byExternalId = ps -> {
+            setArrays(ps, ids, createdAts, externalIds, occurredAt, reasons);
+            ps.setTimestamp(6, since);
+        };
+
+        int[] updated = {0};
+        RowCallbackHandler rows = rs -> {
+            updated[0]++;
+            long campaignId = rs.getLong(5);
+            Long campaign = rs.wasNull() ? null : campaignId;
+            Timestamp createdAt = rs.getTimestamp(6);
+            callback.onUpdated(rs.getLong(1), rs.getString(2), rs.getString(3), rs.getString(4),
+                               campaign, createdAt != null ? createdAt.toLocalDateTime() : null);
+        };
+        if (Arrays.stream(ids).anyMatch(Objects::nonNull)) {
+            jdbcTemplate.query(updateSql(type, MATCH_BY_ID), byId, rows);
+        }
+        if (Arrays.stream(ids).anyMatch(Objects::isNull)) {
+            jdbcTemplate.query(updateSql(type, MATCH_BY_EXTERNAL_ID), byExternalId, rows);
+        }
+        return updated[0];
+    }
+
+    // Eventos que agotaron sus intentos: quedan guardados para revisarlos o reinyectarlos a mano
+    public void saveDeadLetters(List<WebhookEvent> events, String errorMessage) {
+        jdbcTemplate.batchUpdate(INSERT_DEAD_LETTER, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getExternalId());
+            ps.setString(2, event.getType().name());
+            ps.setString(3, event.getReason());
+            ps.setTimestamp(4, Timestamp.valueOf(event.getOccurredAt()));
+            ps.setTimestamp(5, Timestamp.valueOf(event.getReceivedAt()));
+            ps.setInt(6, event.getAttempts());
+            ps.setString(7, errorMessage);
+        });
+    }
+
+    private void setArrays(PreparedStatement ps, Long[] ids, Timestamp[] createdAts, String[] externalIds,
+                           Timestamp[] occurredAt, String[] reasons) throws SQLException {
+        ps.setArray(1, ps.getConnection().createArrayOf("bigint", ids));
+        ps.setArray(2, ps.getConnection().createArrayOf("timestamp", createdAts));
+        ps.setArray(3, ps.getConnection().createArrayOf("text", externalIds));
+        ps.setArray(4, ps.getConnection().createArrayOf("timestamp", occurredAt));
+        ps.setArray(5, ps.getConnection().createArrayOf("text", reasons));
+    }
+
+    private String updateSql(WebhookEvent.EventType type, String match) {
+        switch (type) {
+            case DELIVERED:
+                return "UPDATE email_logs e SET status = 'DELIVERED', delivered_at = v.occurred_at, updated_at = NOW() " +
+                       EVENTS_SOURCE + match +
+                       "AND e.status IN ('PENDING', 'SENDING', 'SENT')" + RETURNING;
+            case OPENED:
+                return "UPDATE email_logs e SET status = 'OPENED', opened_at = v.occurred_at, updated_at = NOW() " +
+                       EVENTS_SOURCE + match +
+                       "AND e.status NOT IN ('OPENED', 'CLICKED')" + RETURNING;
+            case CLICKED:
+                return "UPDATE email_logs e SET status = 'CLICKED', clicked_at = v.occurred_at, updated_at = NOW() " +
+                       EVENTS_SOURCE + match +
+                       "AND e.status <> 'CLICKED'" + RETURNING;
+            case BOUNCED:
+                return "UPDATE email_logs e SET status = 'BOUNCED', bounced_at = v.occurred_at, " +
+                       "error_message = v.reason, updated_at = NOW() " +
+                       EVENTS_SOURCE + match +
+                       "AND e.status <> 'BOUNCED'" + RETURNING;
+            default:
+                throw new IllegalArgumentException("Tipo de evento no soportado: " + type);
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.correos.masivos.email.infrastructure.service;
+
+import com.correos.masivos.email.api.dto.BulkEmailJobResponse;
+import com.correos.masivos.email.api.dto.BulkEmailRequest;
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.service.BulkEmailJobService;
+import com.correos.masivos.queue.model.EmailJob;
+import com.correos.masivos.queue.service.QueueService;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+@Service
+public class BulkEmailJobServiceImpl implements BulkEmailJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkEmailJobServiceImpl.class);
+    private static final String BULK_JOB_KEY = "email:bulk:";
+    private static final String RESULTS_SUFFIX = ":results";
+    private static final String RECORDED_SUFFIX = ":recorded";
+
+    @Autowired
+    private QueueService queueService;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("emailBulkSubmitExecutor")
+    private Executor emailBulkSubmitExecutor;
+
+    @Value("${email.bulk.result-ttl-hours:24}")
+    private long resultTtlHours;
+
+    @Override
+    public String submit(BulkEmailRequest request) {
+        String jobId = UUID.randomUUID().toString();
+        int total = request.getRecipients().size();
+        createJob(jobId, total);
+        redisTemplate.opsForHash().put(BULK_JOB_KEY + jobId, "queueing", "true");
+
+        // La publicación se hace en segundo plano: el cliente recibe el jobId sin esperar a que
+        // se encolen todos los destinatarios y sigue el avance con el progreso (QUEUEING)
+        try {
+            emailBulkSubmitExecutor.execute(() -> publish(jobId, request));
+        } catch (RejectedExecutionException e) {
+            redisTemplate.delete(BULK_JOB_KEY + jobId);
+            throw e;
+        }
+        logger.info("Envío masivo aceptado: jobId={}, destinatarios={}", jobId, total);
+        return jobId;
+    }
+
+    private void publish(String jobId, BulkEmailRequest request) {
+        int total = request.getRecipients().size();
+        int queued = 0;
+        String error = null;
+        try {
+            for (; queued < total; queued++) {
+                queueService.sendEmailJob(toEmailJob(jobId, queued, request, request.getRecipients().get(queued)));
+            }
+            logger.info("Envío masivo encolado: jobId={}, destinatarios={}", jobId, total);
+        } catch (RuntimeException e) {
+            // Lo ya publicado se envía; el total del trabajo pasa a ser lo encolado
+            error = e.getMessage();
+            logger.error("Envío masivo interrumpido: jobId={}, encolados={} de {}", jobId, queued, total, e);
+        } finally {
+            finishJob(jobId, queued, error);
+        }
+    }
+
+    @Override
+    public BulkEmailJobResponse submitStream(InputStream body, boolean ndjson) throws IOException {
+        // Se lee un destinatario cada vez y se encola al momento: el heap no depende del tamaño del payload
+        BulkSubmission submission = new BulkSubmission();
+        String error = null;
+        try {
+            if (ndjson) {
+                readNdjson(body, submission);
+            } else {
+                readJson(body, submission);
+            }
+        } catch (IllegalArgumentException | IOException e) {
+            // Sin nada encolado la petición se rechaza entera; si ya hay destinatarios en la cola
+            // no se pueden retirar, así que el cliente recibe el jobId y cuántos se encolaron
+            if (submission.jobId == null) {
+                throw e;
+            }
+            error = e.getMessage();
+        } finally {
+            if (submission.jobId != null) {
+                finishJob(submission.jobId, submission.queued, error);
+            }
+        }
+
+        if (submission.jobId == null) {
+            throw new IllegalArgumentException("Recipients list cannot be empty");
+        }
+        if (error != null) {
+            logger.warn("Envío masivo en streaming interrumpido: jobId={}, encolados={}, error={}",
+                       submission.jobId, submission.queued, error);
+            BulkEmailJobResponse response = new BulkEmailJobResponse(submission.jobId, (int) submission.queued, "PARTIALLY_QUEUED");
+            response.setError(error);
+            return response;
+        }
+        logger.info("Envío masivo en streaming encolado: jobId={}, destinatarios={}, descartados={}",
+                   submission.jobId, submission.queued, submission.rejected);
+        return new BulkEmailJobResponse(submission.jobId, (int) submission.queued, "QUEUED");
+    }
+
+    @Override
+    public void recordResult(EmailJob emailJob, EmailLog emailLog) {
+        boolean success = emailLog.getStatus() == EmailLog.EmailStatus.SENT;
+        appendResult(emailJob, emailLog.getId(), success, success ? null : emailLog.getErrorMessage());
+    }
+
+    @Override
+    public void recordFailure(EmailJob emailJob, String errorMessage) {
+        appendResult(emailJob, null, false, errorMessage);
+    }
+
+    @Override
+    public void recordDuplicate(EmailJob emailJob) {
+        // La clave de idempotencia estaba marcada como enviada: el email salió en un intento anterior
+        appendResult(emailJob, null, true, "Envío duplicado descartado: ya enviado");
+    }
+
+    @Override
+    public Optional<Map<String, Object>> getProgress(String jobId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(BULK_JOB_KEY + jobId);
+        if (entries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        long total = parseLong(entries.get("total"));
+        long processed = parseLong(entries.get("processed"));
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", jobId);
+        if (entries.containsKey("queueing")) {
+            // El total aún no se conoce: la petición en streaming se sigue leyendo
+            progress.put("status", "QUEUEING");
+        } else {
+            progress.put("status", processed >= total ? "COMPLETED" : "PROCESSING");
+        }
+        progress.put("totalEmails", total);
+        progress.put("processedEmails", processed);
+        progress.put("successfulEmails", parseLong(entries.get("successful")));
+        progress.put("failedEmails", parseLong(entries.get("failed")));
+        progress.put("error", entries.get("error"));
+        progress.put("createdAt", entries.get("createdAt"));
+        return Optional.of(progress);
+    }
+
+    @Override
+    public List<String> getResults(String jobId, long fromIndex) {
+        return redisTemplate.opsForList().range(BULK_JOB_KEY + jobId + RESULTS_SUFFIX, fromIndex, -1);
+    }
+
+    private void readJson(InputStream body, BulkSubmission submission) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Se esperaba un objeto JSON");
+            }
+
+            // Los campos del mensaje deben preceder a "recipients" para poder encolar sin almacenar
+            ObjectNode header = objectMapper.createObjectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if (!"recipients".equals(field)) {
+                    if (submission.request != null) {
+                        logger.warn("Campo '{}' ignorado: aparece después de recipients", field);
+                        parser.skipChildren();
+                    } else {
+                        header.set(field, objectMapper.readTree(parser));
+                    }
+                    continue;
+                }
+                if (parser.currentToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalArgumentException("recipients debe ser un array");
+                }
+                submission.request = toHeader(header);
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    enqueue(submission, objectMapper.readValue(parser, BulkEmailRequest.EmailRecipient.class));
+                }
+                if (parser.currentToken() != JsonToken.END_ARRAY) {
+                    throw new IllegalArgumentException("Cada elemento de recipients debe ser un objeto JSON");
+                }
+            }
+        }
+    }
+
+    private void readNdjson(InputStream body, BulkSubmission submission) throws IOException {
+        // Primera línea: campos del mensaje; cada línea siguiente, un destinatario
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            if (submission.request == null) {
+                JsonNode header = objectMapper.readTree(line);
+                if (!header.isObject()) {
+                    throw new IllegalArgumentException("La primera línea debe ser un objeto JSON con los campos del mensaje");
+                }
+                submission.request = toHeader((ObjectNode) header);
+            } else {
+                enqueue(submission, objectMapper.readValue(line, BulkEmailRequest.EmailRecipient.class));
+            }
+        }
+    }
+
+    private BulkEmailRequest toHeader(ObjectNode header) throws IOException {
+        header.remove("recipients");
+        BulkEmailRequest request = objectMapper.treeToValue(header, BulkEmailRequest.class);
+        if (request.getSubject() == null || request.getSubject().isBlank()) {
+            throw new IllegalArgumentException("Subject is required");
+        }
+        if (request.getHtmlContent() == null || request.getHtmlContent().isBlank()) {
+            throw new IllegalArgumentException("HTML content is required");
+        }
+        return request;
+    }
+
+    private void enqueue(BulkSubmission submission, BulkEmailRequest.EmailRecipient recipient) {
+        if (recipient.getEmail() == null || recipient.getEmail().isBlank()) {
+            submission.rejected++;
+            return;
+        }
+        if (submission.jobId == null) {
+            submission.jobId = UUID.randomUUID().toString();
+            createJob(submission.jobId, null);
+        }
+        int index = (int) submission.queued++;
+        queueService.sendEmailJob(toEmailJob(submission.jobId, index, submission.request, recipient));
+    }
+
+    private void finishJob(String jobId, long total, String error) {
+        String key = BULK_JOB_KEY + jobId;
+        redisTemplate.opsForHash().put(key, "total", String.valueOf(total));
+        if (error != null) {
+            redisTemplate.opsForHash().put(key, "error", "Petición interrumpida tras " + total + " destinatarios: " + error);
+        }
+        redisTemplate.opsForHash().delete(key, "queueing");
+    }
+
+    private void createJob(String jobId, Integer total) {
+        String key = BULK_JOB_KEY + jobId;
+        Map<String, String> job = new HashMap<>();
+        if (total != null) {
+            job.put("total", String.valueOf(total));
+        } else {
+            job.put("total", "0");
+            job.put("queueing", "true");
+        }
+        job.put("processed", "0");
+        job.put("successful", "0");
+        job.put("failed", "0");
+        job.put("createdAt", LocalDateTime.now().toString());
+        redisTemplate.opsForHash().putAll(key, job);
+        redisTemplate.expire(key, Duration.ofHours(resultTtlHours));
+    }
+
+    private EmailJob toEmailJob(String jobId, int index, BulkEmailRequest request, BulkEmailRequest.EmailRecipient recipient) {
+        // Merge global and individual personalizations
+        Map<String, Object> personalizations = new HashMap<>();
+        if (request.getGlobalPersonalizations() != null) {
+            personalizations.putAll(request.getGlobalPersonalizations());
+        }
+        if (recipient.getPersonalizations() != null) {
+            personalizations.putAll(recipient.getPersonalizations());
+        }
+
+        EmailJob emailJob = new EmailJob(
+            request.getCampaignId(),
+            recipient.getRecipientId(),
+            recipient.getEmail(),
+            request.getSubject(),
+            request.getHtmlContent(),
+            request.getFrom() != null ? request.getFrom() : "noreply@correos-masivos.com"
+        );
+        emailJob.setFromName(request.getFromName() != null ? request.getFromName() : "Correos Masivos");
+        emailJob.setTextContent(request.getTextContent());
+        emailJob.setPersonalizationData(personalizations);
+        emailJob.setTrackOpens(request.getTrackOpens());
+        emailJob.setTrackClicks(request.getTrackClicks());
+        emailJob.setBulkJobId(jobId);
+        emailJob.setBulkIndex(index);
+        // Cada destinatario del trabajo es un envío único, aunque no tenga campaignId/recipientId
+        emailJob.setIdempotencyKey("bulk:" + jobId + ":" + index);
+        return emailJob;
+    }
+
+    private void appendResult(EmailJob emailJob, Long emailLogId, boolean success, String errorMessage) {
+        if (emailJob.getBulkJobId() == null) {
+            return;
+        }
+        String key = BULK_JOB_KEY + emailJob.getBulkJobId();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("index", emailJob.getBulkIndex());
+        result.put("email", emailJob.getToEmail());
+        result.put("emailLogId", emailLogId);
+        result.put("success", success);
+        result.put("errorMessage", errorMessage);
+
+        try {
+            // Un resultado por posición: una reentrega (duplicado o fallo tras registrar) no cuenta dos veces
+            Long added = redisTemplate.opsForSet().add(key + RECORDED_SUFFIX, String.valueOf(emailJob.getBulkIndex()));
+            redisTemplate.expire(key + RECORDED_SUFFIX, Duration.ofHours(resultTtlHours));
+            if (added == null || added == 0) {
+                return;
+            }
+            redisTemplate.opsForList().rightPush(key + RESULTS_SUFFIX, objectMapper.writeValueAsString(result));
+            redisTemplate.expire(key + RESULTS_SUFFIX, Duration.ofHours(resultTtlHours));
+            redisTemplate.opsForHash().increment(key, "processed", 1);
+            redisTemplate.opsForHash().increment(key, success ? "successful" : "failed", 1);
+        } catch (JsonProcessingException e) {
+            logger.error("Error serializando resultado de envío masivo: jobId={}", emailJob.getBulkJobId(), e);
+        } catch (Exception e) {
+            // El progreso es informativo: no debe impedir confirmar el mensaje
+            logger.warn("No se pudo registrar el progreso del envío masivo {}: {}", emailJob.getBulkJobId(), e.getMessage());
+        }
+    }
+
+    private long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    private static final class BulkSubmission {
+        private BulkEmailRequest request;
+        private String jobId;
+        private long queued;
+        private long rejected;
+    }
+}
@@ -0,0 +1,311 @@
+package com.correos.masivos.email.infrastructure.service;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.service.EmailRetryService;
+import com.correos.masivos.email.infrastructure.ratelimit.TokenBucket;
+import com.correos.masivos.email.infrastructure.repository.EmailRetryRepository;
+import com.correos.masivos.email.infrastructure.repository.EmailRetryRepository.RetryCandidate;
+import com.correos.masivos.email.infrastructure.stats.EmailStatusCounters;
+import com.correos.masivos.queue.model.EmailJob;
+import com.correos.masivos.queue.service.QueueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class EmailRetryServiceImpl implements EmailRetryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailRetryServiceImpl.class);
+    private static final String RETRY_JOB_KEY = "email:retry:";
+    private static final String CAMPAIGN_LOCK_KEY = "email:retry:campaign:";
+    private static final int LOCK_ATTEMPTS = 3;
+
+    @Autowired
+    private EmailRetryRepository emailRetryRepository;
+
+    @Autowired
+    private QueueService queueService;
+
+    @Autowired
+    private RedisTemplate<String, String> redisTemplate;
+
+    @Autowired
+    private EmailStatusCounters emailStatusCounters;
+
+    @Autowired
+    @Qualifier("emailRetryExecutor")
+    private Executor emailRetryExecutor;
+
+    @Value("${email.retry.batch-size:500}")
+    private int batchSize;
+
+    @Value("${email.retry.publish-rate-per-second:200}")
+    private double publishRatePerSecond;
+
+    @Value("${email.retry.lookback-days:30}")
+    private int retryLookbackDays;
+
+    @Value("${email.retry.job-ttl-hours:24}")
+    private long jobTtlHours;
+
+    @Value("${email.retry.stale-claim-minutes:60}")
+    private long staleClaimMinutes;
+
+    @Override
+    public String submit(Long campaignId) {
+        String jobId = UUID.randomUUID().toString();
+        String lockKey = CAMPAIGN_LOCK_KEY + campaignId;
+        // Un solo trabajo por campaña: si ya hay uno en curso se devuelve ese. Si el bloqueo caduca
+        // entre setIfAbsent y get se vuelve a intentar; nunca se ejecuta sin tenerlo
+        for (int attempt = 0; ; attempt++) {
+            Boolean acquired = redisTemplate.opsForValue().setIfAbsent(lockKey, jobId, Duration.ofHours(jobTtlHours));
+            if (Boolean.TRUE.equals(acquired)) {
+                break;
+            }
+            String running = redisTemplate.opsForValue().get(lockKey);
+            if (running != null) {
+                logger.info("Reintento ya en curso para campaña {}: jobId={}", campaignId, running);
+                return running;
+            }
+            if (attempt >= LOCK_ATTEMPTS - 1) {
+                throw new IllegalStateException("No se pudo obtener el bloqueo de reintento de la campaña " + campaignId);
+            }
+        }
+
+        createJob(jobId, campaignId);
+        try {
+            emailRetryExecutor.execute(() -> run(jobId, campaignId));
+        } catch (RejectedExecutionException e) {
+            finishJob(jobId, campaignId, "FAILED", "Demasiados reintentos en curso");
+            throw e;
+        }
+        logger.info("Reintento de emails fallidos encolado: campaignId={}, jobId={}", campaignId, jobId);
+        return jobId;
+    }
+
+    @Override
+    public Optional<Map<String, Object>> getProgress(String jobId) {
+        Map<Object, Object> entries = redisTemplate.opsForHash().entries(RETRY_JOB_KEY + jobId);
+        if (entries.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("jobId", jobId);
+        progress.put("campaignId", parseLong(entries.get("campaignId")));
+        progress.put("status", entries.get("status"));
+        progress.put("requeuedEmails", parseLong(entries.get("requeued")));
+        progress.put("skippedEmails", parseLong(entries.get("skipped")));
+        progress.put("missingContentEmails", parseLong(entries.get("missingContent")));
+        progress.put("error", entries.get("error"));
+        progress.put("createdAt", entries.get("createdAt"));
+        progress.put("finishedAt", entries.get("finishedAt"));
+        return Optional.of(progress);
+    }
+
+    private void run(String jobId, Long campaignId) {
+        updateJob(jobId, "status", "RUNNING");
+        // Ritmo de publicación: el reintento no debe desplazar a los envíos en curso en la cola
+        TokenBucket pace = new TokenBucket(publishRatePerSecond, Math.max(1, publishRatePerSecond));
+        LocalDateTime afterCreatedAt = LocalDateTime.now().minusDays(retryLookbackDays);
+        long afterId = 0;
+        RetryStats stats = new RetryStats();
+
+        try {
+            while (true) {
+                List<RetryCandidate> page = emailRetryRepository.findFailedAfter(campaignId, afterCreatedAt, afterId, batchSize);
+                if (page.isEmpty()) {
+                    break;
+                }
+                RetryCandidate last = page.get(page.size() - 1);
+                afterCreatedAt = last.getCreatedAt();
+                afterId = last.getId();
+
+                // Sin contenido guardado (emails anteriores a que se registrara) no se puede reenviar
+                List<RetryCandidate> retryable = new ArrayList<>(page.size());
+                for (RetryCandidate candidate : page) {
+                    if (candidate.hasContent()) {
+                        retryable.add(candidate);
+                    } else {
+                        stats.missingContent++;
+                    }
+                }
+
+                List<RetryCandidate> claimed = claim(retryable, stats);
+                publish(claimed, pace, stats);
+                saveProgress(jobId, stats);
+            }
+            finishJob(jobId, campaignId, "COMPLETED", null);
+            logger.info("Reintento completado: campaignId={}, reencolados={}, omitidos={}, sinContenido={}",
+                       campaignId, stats.requeued, stats.skipped, stats.missingContent);
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            saveProgress(jobId, stats);
+            finishJob(jobId, campaignId, "FAILED", e.getMessage());
+            logger.error("Error en el reintento de la campaña {}: {}", campaignId, e.getMessage());
+        }
+    }
+
+    // Las filas reservadas (PENDING con retry_count > 0) que nadie llegó a enviar en el plazo
+    // vuelven a FAILED. El plazo debe superar la espera normal en cola de un reintento
+    @Scheduled(fixedDelayString = "${email.retry.stale-claim-sweep-interval-ms:300000}")
+    public void releaseStaleClaims() {
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<Object[]> released = emailRetryRepository.releaseStale(
+                now.minusMinutes(staleClaimMinutes), now.minusDays(retryLookbackDays));
+            for (Object[] row : released) {
+                emailStatusCounters.transition((Long) row[0], (LocalDateTime) row[1],
+                    EmailLog.EmailStatus.PENDING, EmailLog.EmailStatus.FAILED);
+            }
+            if (!released.isEmpty()) {
+                logger.warn("{} reintentos reservados sin completar vuelven a FAILED", released.size());
+            }
+        } catch (Exception e) {
+            logger.error("Error liberando reservas de reintento caducadas: {}", e.getMessage());
+        }
+    }
+
+    private List<RetryCandidate> claim(List<RetryCandidate> candidates, RetryStats stats) {
+        Set<Long> claimedIds = emailRetryRepository.claim(candidates);
+        List<RetryCandidate> claimed = new ArrayList<>(claimedIds.size());
+        for (RetryCandidate candidate : candidates) {
+            if (claimedIds.contains(candidate.getId())) {
+                claimed.add(candidate);
+                // La actualización en bloque no pasa por JPA: los contadores se alimentan aquí
+                emailStatusCounters.transition(candidate.getCampaignId(), candidate.getCreatedAt(),
+                    EmailLog.EmailStatus.FAILED, EmailLog.EmailStatus.PENDING);
+            } else {
+                // Otro proceso lo cambió entre la lectura y la reserva
+                stats.skipped++;
+            }
+        }
+        return claimed;
+    }
+
+    private void publish(List<RetryCandidate> claimed, TokenBucket pace, RetryStats stats) throws InterruptedException {
+        for (int i = 0; i < claimed.size(); i++) {
+            try {
+                if (!pace.consume(1, TimeUnit.MINUTES)) {
+                    throw new IllegalStateException("Tiempo de espera agotado en el ritmo de publicación");
+                }
+                queueService.sendEmailJob(toEmailJob(claimed.get(i)));
+                stats.requeued++;
+            } catch (InterruptedException | RuntimeException e) {
+                // Los reservados que no llegaron a la cola vuelven a FAILED para un próximo reintento
+                List<RetryCandidate> pending = claimed.subList(i, claimed.size());
+                for (Long id : emailRetryRepository.release(pending, "Reintento no encolado: " + e.getMessage())) {
+                    pending.stream().filter(c -> c.getId() == id).findFirst().ifPresent(c ->
+                        emailStatusCounters.transition(c.getCampaignId(), c.getCreatedAt(),
+                            EmailLog.EmailStatus.PENDING, EmailLog.EmailStatus.FAILED));
+                }
+                throw e;
+            }
+        }
+    }
+
+    private EmailJob toEmailJob(RetryCandidate candidate) {
+        EmailJob emailJob = new EmailJob(
+            candidate.getCampaignId(),
+            candidate.getRecipientId(),
+            candidate.getToEmail(),
+            candidate.getSubject(),
+            candidate.getHtmlContent(),
+            candidate.getFromEmail()
+        );
+        emailJob.setFromName(candidate.getFromName());
+        emailJob.setReplyTo(candidate.getReplyTo());
+        emailJob.setTextContent(candidate.getTextContent());
+        emailJob.setEmailLogId(candidate.getId());
+        emailJob.setEmailLogCreatedAt(candidate.getCreatedAt());
+        // Cada reintento consume un intento de la fila (retry_count); la cola no reintenta por su cuenta
+        emailJob.setMaxRetries(0);
+        if (emailJob.getIdempotencyKey() == null) {
+            // Sin campaña/destinatario la clave se liga al intento para no duplicar en reentregas
+            emailJob.setIdempotencyKey("retry:" + candidate.getId() + ":" + (candidate.getRetryCount() + 1));
+        }
+        return emailJob;
+    }
+
+    private void createJob(String jobId, Long campaignId) {
+        String key = RETRY_JOB_KEY + jobId;
+        Map<String, String> job = new HashMap<>();
+        job.put("campaignId", String.valueOf(campaignId));
+        job.put("status", "QUEUED");
+        job.put("requeued", "0");
+        job.put("skipped", "0");
+        job.put("missingContent", "0");
+        job.put("createdAt", LocalDateTime.now().toString());
+        redisTemplate.opsForHash().putAll(key, job);
+        redisTemplate.expire(key, Duration.ofHours(jobTtlHours));
+    }
+
+    private void saveProgress(String jobId, RetryStats stats) {
+        try {
+            Map<String, String> progress = new HashMap<>();
+            progress.put("requeued", String.valueOf(stats.requeued));
+            progress.put("skipped", String.valueOf(stats.skipped));
+            progress.put("missingContent", String.valueOf(stats.missingContent));
+            redisTemplate.opsForHash().putAll(RETRY_JOB_KEY + jobId, progress);
+        } catch (Exception e) {
+            // El progreso es informativo: no debe detener el reintento
+            logger.warn("No se pudo registrar el progreso del reintento {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void updateJob(String jobId, String field, String value) {
+        try {
+            redisTemplate.opsForHash().put(RETRY_JOB_KEY + jobId, field, value);
+        } catch (Exception e) {
+            logger.warn("No se pudo actualizar el reintento {}: {}", jobId, e.getMessage());
+        }
+    }
+
+    private void finishJob(String jobId, Long campaignId, String status, String error) {
+        updateJob(jobId, "status", status);
+        updateJob(jobId, "finishedAt", LocalDateTime.now().toString());
+        if (error != null) {
+            updateJob(jobId, "error", error);
+        }
+        try {
+            String lockKey = CAMPAIGN_LOCK_KEY + campaignId;
+            if (jobId.equals(redisTemplate.opsForValue().get(lockKey))) {
+                redisTemplate.delete(lockKey);
+            }
+        } catch (Exception e) {
+            // El bloqueo caduca solo con el TTL del trabajo
+            logger.warn("No se pudo liberar el bloqueo de reintento de la campaña {}: {}", campaignId, e.getMessage());
+        }
+    }
+
+    private long parseLong(Object value) {
+        return value != null ? Long.parseLong(value.toString()) : 0L;
+    }
+
+    private static final class RetryStats {
+        private long requeued;
+        private long skipped;
+        private long missingContent;
+    }
+}
@@ -1,27 +1,44 @@
 package com.correos.masivos.email.infrastructure.service;
 
 import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogCursor;
+import com.correos.masivos.email.domain.model.EmailLogKey;
 import com.correos.masivos.email.domain.model.EmailMessage;
 import com.correos.masivos.email.domain.service.EmailProviderService;
 import com.correos.masivos.email.domain.service.EmailService;
+import com.correos.masivos.email.infrastructure.archive.EmailLogArchiveStore;
+import com.correos.masivos.email.infrastructure.cache.ExternalIdIndex;
+import com.correos.masivos.email.infrastructure.content.EmailContentStore;
+import com.correos.masivos.email.infrastructure.dedup.EmailDeduplicationService;
+import com.correos.masivos.email.infrastructure.dedup.EmailDeduplicationService.Reservation;
+import com.correos.masivos.email.infrastructure.dedup.EmailInFlightException;
+import com.correos.masivos.email.infrastructure.ratelimit.ProviderRateLimiter;
+import com.correos.masivos.email.infrastructure.repository.EmailLogKeysetRepository;
 import com.correos.masivos.email.infrastructure.repository.EmailLogRepository;
+import com.correos.masivos.email.infrastructure.repository.EmailStatsSummaryRepository;
+import com.correos.masivos.email.infrastructure.stats.EmailStatsRollups;
+import com.correos.masivos.email.infrastructure.stats.EmailStatusCounters;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.beans.factory.annotation.Qualifier;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
@@ -36,9 +53,53 @@ public class EmailServiceImpl implements EmailService {
     @Autowired
     private EmailLogRepository emailLogRepository;
 
+    @Autowired
+    private EmailLogKeysetRepository emailLogKeysetRepository;
+
     @Autowired
     private RedisTemplate<String, String> redisTemplate;
 
+    @Autowired
+    private EmailDeduplicationService deduplicationService;
+
+    @Autowired
+    private ProviderRateLimiter rateLimiter;
+
+    @Autowired
+    private ExternalIdIndex externalIdIndex;
+
+    @Autowired
+    private EmailStatusCounters emailStatusCounters;
+
+    @Autowired
+    private EmailStatsRollups emailStatsRollups;
+
+    @Autowired
+    private EmailStatsSummaryRepository emailStatsSummaryRepository;
+
+    @Autowired
+    private EmailLogArchiveStore emailLogArchiveStore;
+
+    @Autowired
+    private EmailContentStore emailContentStore;
+
+    @Value("${email.stats.summary.max-staleness-seconds:900}")
+    private long summaryMaxStalenessSeconds;
+
+    @Value("${email.retry.lookback-days:30}")
+    private long retryLookbackDays;
+
+    @Value("${email.webhooks.lookup-window-days:30}")
+    private long webhookLookupDays;
+
+    @Autowired
+    @Qualifier("emailBatchExecutor")
+    private Executor emailBatchExecutor;
+
+    @Autowired
+    @Qualifier("emailProviderExecutor")
+    private Executor emailProviderExecutor;
+
     private final List<EmailProviderService> providers;
 
     public EmailServiceImpl(@Qualifier("emailProviders") List<EmailProviderService> providers) {
@@ -65,66 +126,88 @@ public class EmailServiceImpl implements EmailService {
                        .collect(Collectors.joining(", ")));
     }
 
+    // Sin transacción envolvente: la espera de tokens y la llamada al proveedor (hasta 15s) no
+    // deben retener una conexión JDBC. Cada save confirma por su cuenta, igual que cuando
+    // sendEmailBatch lo invoca directamente sin pasar por el proxy
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public EmailLog sendEmail(EmailMessage message) {
-        // Create email log
-        EmailLog emailLog = new EmailLog(
-            message.getCampaignId(),
-            message.getRecipientId(),
-            message.getTo(),
-            message.getSubject(),
-            message.getFrom()
-        );
-        emailLog.setFromName(message.getFromName());
-        emailLog = emailLogRepository.save(emailLog);
+        // Solo hay clave si el productor la dio (o un attemptGroup): sin ella no se deduplica
+        String idempotencyKey = message.getIdempotencyKey();
+        Reservation reservation = deduplicationService.tryAcquire(idempotencyKey);
+        if (reservation.getState() == Reservation.State.IN_FLIGHT) {
+            // Puede que el otro consumidor no llegue a enviarlo: no se descarta, se reintenta más tarde
+            throw new EmailInFlightException(idempotencyKey);
+        }
+        if (reservation.getState() == Reservation.State.SENT) {
+            logger.info("Envío duplicado descartado: key={}, to={}", idempotencyKey, message.getTo());
+            if (message.getEmailLogId() != null) {
+                // El reintento dejó la fila en PENDING: se cierra, el email ya salió por otro envío
+                return findExisting(message).map(existing -> {
+                    existing.setStatus(EmailLog.EmailStatus.CANCELLED);
+                    existing.setErrorMessage("Envío duplicado descartado");
+                    return emailLogRepository.save(existing);
+                }).orElseGet(() -> duplicateLog(message));
+            }
+            return duplicateLog(message);
+        }
+
+        try {
+            EmailLog emailLog = deliver(message);
+            if (emailLog.getStatus() == EmailLog.EmailStatus.SENT) {
+                deduplicationService.markSent(idempotencyKey);
+            } else {
+                deduplicationService.release(reservation);
+            }
+            return emailLog;
+        } catch (RuntimeException e) {
+            deduplicationService.release(reservation);
+            throw e;
+        }
+    }
 
-        // Log available providers
+    private EmailLog deliver(EmailMessage message) {
+        // Un reintento reutiliza la fila existente; un envío nuevo crea su email log
+        EmailLog emailLog = message.getEmailLogId() != null ? findExisting(message).orElse(null) : null;
+        if (emailLog == null) {
+            emailLog = new EmailLog(
+                message.getCampaignId(),
+                message.getRecipientId(),
+                message.getTo(),
+                message.getSubject(),
+                message.getFrom()
+            );
+            emailLog.setFromName(message.getFromName());
+            emailLog.setReplyTo(message.getReplyTo());
+            emailLog.setContentId(emailContentStore.resolve(message.getHtmlContent(), message.getTextContent()));
+            emailLog = emailLogRepository.save(emailLog);
+        }
+
+        // Proveedores habilitados y dentro del límite horario (una sola consulta a Redis por proveedor)
+        List<EmailProviderService> candidates = providers.stream()
+                .filter(p -> p.isAvailable() && canSendEmail(p.getProvider().getName()))
+                .collect(Collectors.toList());
         logger.info("Available providers: {}", 
-                    providers.stream()
-                        .filter(p -> p.isAvailable() && canSendEmail(p.getProvider().getName()))
+                    candidates.stream()
                         .map(p -> p.getProvider().getDisplayName())
                         .collect(Collectors.joining(", ")));
         
-        // Try to send with available providers
-        for (EmailProviderService provider : providers) {
-            logger.info("Checking provider {}: available={}, canSend={}", 
-                        provider.getProvider().getDisplayName(), 
-                        provider.isAvailable(), 
-                        canSendEmail(provider.getProvider().getName()));
-                        
-            if (provider.isAvailable() && canSendEmail(provider.getProvider().getName())) {
-                try {
-                    emailLog.markAsSending();
-                    emailLogRepository.save(emailLog);
-
-                    logger.info("Enviando email via {}: to={}, subject={}", 
-                               provider.getProvider().getDisplayName(), message.getTo(), message.getSubject());
-
-                    // Try sending with timeout
-                    boolean success = false;
-                    try {
-                        success = java.util.concurrent.CompletableFuture
-                            .supplyAsync(() -> provider.sendEmail(message))
-                            .get(15, java.util.concurrent.TimeUnit.SECONDS);
-                    } catch (java.util.concurrent.TimeoutException e) {
-                        logger.warn("Timeout enviando email via {}", provider.getProvider().getDisplayName());
-                        success = false;
-                    } catch (Exception e) {
-                        logger.error("Error enviando email via {}: {}", provider.getProvider().getDisplayName(), e.getMessage());
-                        success = false;
-                    }
-
-                    if (success) {
-                        emailLog.markAsSent(message.getExternalId(), provider.getProvider().getName());
-                        recordEmailSent(provider.getProvider().getName());
-                        emailLogRepository.save(emailLog);
-                        
-                        logger.info("Email enviado exitosamente via {}", provider.getProvider().getDisplayName());
-                        return emailLog;
-                    }
-                } catch (Exception e) {
-                    logger.error("Error enviando email via {}: {}", provider.getProvider().getDisplayName(), e.getMessage());
-                }
+        // Primero los proveedores con token disponible, así un lote se reparte entre proveedores
+        List<EmailProviderService> throttled = new ArrayList<>();
+        for (EmailProviderService provider : candidates) {
+            if (!rateLimiter.tryAcquire(provider.getProvider().getName())) {
+                throttled.add(provider);
+                continue;
+            }
+            if (attemptSend(emailLog, message, provider)) {
+                return emailLog;
+            }
+        }
+        
+        // Si todos estaban saturados, esperar a que haya tokens en lugar de dormir un tiempo fijo
+        for (EmailProviderService provider : throttled) {
+            if (rateLimiter.acquire(provider.getProvider().getName()) && attemptSend(emailLog, message, provider)) {
+                return emailLog;
             }
         }
 
@@ -136,21 +219,63 @@ public class EmailServiceImpl implements EmailService {
         return emailLog;
     }
 
+    private boolean attemptSend(EmailLog emailLog, EmailMessage message, EmailProviderService provider) {
+        try {
+            emailLog.markAsSending();
+            emailLogRepository.save(emailLog);
+
+            logger.info("Enviando email via {}: to={}, subject={}", 
+                       provider.getProvider().getDisplayName(), message.getTo(), message.getSubject());
+
+            // Try sending with timeout
+            boolean success = false;
+            try {
+                success = java.util.concurrent.CompletableFuture
+                    .supplyAsync(() -> provider.sendEmail(message), emailProviderExecutor)
+                    .get(15, java.util.concurrent.TimeUnit.SECONDS);
+            } catch (java.util.concurrent.TimeoutException e) {
+                logger.warn("Timeout enviando email via {}", provider.getProvider().getDisplayName());
+                success = false;
+            } catch (Exception e) {
+                logger.error("Error enviando email via {}: {}", provider.getProvider().getDisplayName(), e.getMessage());
+                success = false;
+            }
+
+            if (success) {
+                emailLog.markAsSent(message.getExternalId(), provider.getProvider().getName());
+                recordEmailSent(provider.getProvider().getName());
+                emailLogRepository.save(emailLog);
+                externalIdIndex.put(emailLog.getExternalId(), emailLog.getId(), emailLog.getCreatedAt(), emailLog.getStatus());
+                
+                logger.info("Email enviado exitosamente via {}", provider.getProvider().getDisplayName());
+                return true;
+            }
+        } catch (Exception e) {
+            logger.error("Error enviando email via {}: {}", provider.getProvider().getDisplayName(), e.getMessage());
+        }
+        return false;
+    }
+
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<EmailLog> sendEmailBatch(List<EmailMessage> messages) {
         logger.info("Enviando lote de {} emails", messages.size());
         
-        List<EmailLog> results = new ArrayList<>();
+        // Envío en paralelo: la concurrencia la limita el pool y el ritmo los tokens de cada proveedor
+        List<CompletableFuture<EmailLog>> futures = new ArrayList<>(messages.size());
         for (EmailMessage message : messages) {
-            try {
-                EmailLog result = sendEmail(message);
-                results.add(result);
-                
-                // Small delay between emails to avoid overwhelming providers
-                Thread.sleep(50);
-            } catch (Exception e) {
-                logger.error("Error en lote de emails: {}", e.getMessage());
-            }
+            futures.add(CompletableFuture
+                .supplyAsync(() -> sendEmail(message), emailBatchExecutor)
+                .exceptionally(e -> {
+                    logger.error("Error en lote de emails: {}", e.getMessage());
+                    return failedLog(message, e.getMessage());
+                }));
+        }
+        
+        // Los resultados conservan el orden de entrada para emparejarlos con los destinatarios
+        List<EmailLog> results = new ArrayList<>(messages.size());
+        for (CompletableFuture<EmailLog> future : futures) {
+            results.add(future.join());
         }
         
         logger.info("Lote completado: {} emails procesados", results.size());
@@ -160,7 +285,7 @@ public class EmailServiceImpl implements EmailService {
     @Override
     @Transactional(readOnly = true)
     public Optional<EmailLog> findById(Long id) {
-        return emailLogRepository.findById(id);
+        return emailLogRepository.findFirstById(id);
     }
 
     @Override
@@ -175,6 +300,23 @@ public class EmailServiceImpl implements EmailService {
         return emailLogRepository.findByStatus(status, pageable);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<EmailLog> getEmailHistory(Long campaignId, EmailLog.EmailStatus status, EmailLogCursor after,
+                                          boolean ascending, int limit) {
+        List<EmailLog> page = emailLogKeysetRepository.findPage(campaignId, status, after, ascending, limit);
+        if (ascending || page.size() >= limit || !emailLogArchiveStore.hasArchives()) {
+            return page;
+        }
+
+        // Los archivos solo contienen meses anteriores a lo que queda en email_logs: en orden
+        // created_at desc continúan donde termina la base de datos, con el mismo cursor
+        List<EmailLog> content = new ArrayList<>(page);
+        EmailLogCursor from = content.isEmpty() ? after : EmailLogCursor.after(content.get(content.size() - 1), false);
+        content.addAll(emailLogArchiveStore.findBefore(campaignId, status, from, limit - content.size()));
+        return content;
+    }
+
     @Override
     public boolean canSendEmail(String provider) {
         String key = RATE_LIMIT_KEY + provider;
@@ -194,106 +336,96 @@ public class EmailServiceImpl implements EmailService {
         redisTemplate.expire(key, 1, TimeUnit.HOURS);
     }
 
-    @Override
-    public void retryFailedEmails(Long campaignId) {
-        List<EmailLog> failedEmails = emailLogRepository.findFailedEmailsForRetry(campaignId);
-        
-        logger.info("Reintentando {} emails fallidos para campaña {}", failedEmails.size(), campaignId);
-        
-        for (EmailLog emailLog : failedEmails) {
-            try {
-                EmailMessage message = createMessageFromLog(emailLog);
-                
-                // Try to send again
-                for (EmailProviderService provider : providers) {
-                    if (provider.isAvailable() && canSendEmail(provider.getProvider().getName())) {
-                        emailLog.incrementRetry();
-                        emailLog.markAsSending();
-                        emailLogRepository.save(emailLog);
-                        
-                        if (provider.sendEmail(message)) {
-                            emailLog.markAsSent(message.getExternalId(), provider.getProvider().getName());
-                            recordEmailSent(provider.getProvider().getName());
-                            emailLogRepository.save(emailLog);
-                            break;
-                        }
-                    }
-                }
-                
-                if (emailLog.getStatus() == EmailLog.EmailStatus.SENDING) {
-                    emailLog.markAsFailed("Reintento fallido - todos los proveedores no disponibles");
-                    emailLogRepository.save(emailLog);
-                }
-                
-            } catch (Exception e) {
-                logger.error("Error en reintento de email {}: {}", emailLog.getId(), e.getMessage());
-            }
-        }
-    }
-
     @Override
     @Transactional(readOnly = true)
     public List<EmailLog> getFailedEmails(Long campaignId) {
-        return emailLogRepository.findFailedEmailsForRetry(campaignId);
+        return emailLogRepository.findFailedEmailsForRetry(campaignId, retrySince());
     }
 
     @Override
-    @Transactional(readOnly = true)
     public long countByStatus(EmailLog.EmailStatus status) {
-        return emailLogRepository.countByStatus(status);
+        return countFrom(emailStatusCounters.getCounts(null), status);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public long countByCampaignIdAndStatus(Long campaignId, EmailLog.EmailStatus status) {
-        return emailLogRepository.countByCampaignIdAndStatus(campaignId, status);
+        return countFrom(emailStatusCounters.getCounts(campaignId), status);
+    }
+
+    @Override
+    public java.util.Map<EmailLog.EmailStatus, Long> getStatusCounts(Long campaignId) {
+        return emailStatusCounters.getCounts(campaignId);
     }
     
     @Override
     @Transactional(readOnly = true)
     public com.correos.masivos.email.api.dto.EmailStatsDTO getDetailedStats(Long campaignId, LocalDateTime fromDate, LocalDateTime toDate) {
-        // Get counts for each status
-        long totalEmails = emailLogRepository.countTotalEmails(campaignId, fromDate, toDate);
-        long sentEmails = emailLogRepository.countSentEmails(campaignId, fromDate, toDate);
-        long deliveredEmails = emailLogRepository.countDeliveredEmails(campaignId, fromDate, toDate);
-        long openedEmails = emailLogRepository.countOpenedEmails(campaignId, fromDate, toDate);
-        long clickedEmails = emailLogRepository.countClickedEmails(campaignId, fromDate, toDate);
-        long bouncedEmails = emailLogRepository.countBouncedEmails(campaignId, fromDate, toDate);
-        long failedEmails = emailLogRepository.countFailedEmails(campaignId, fromDate, toDate);
-        
-        // Create DTO with calculated rates
-        com.correos.masivos.email.api.dto.EmailStatsDTO stats = new com.correos.masivos.email.api.dto.EmailStatsDTO(
-            totalEmails, sentEmails, deliveredEmails, openedEmails, clickedEmails, bouncedEmails, failedEmails
-        );
-        
-        stats.setCampaignId(campaignId);
+        if (fromDate == null && toDate == null) {
+            // Sin rango de fechas basta con los contadores pre-agregados
+            return statsFromCounts(emailStatusCounters.getCounts(campaignId), campaignId);
+        }
+
+        // Con rango: rollups horarios/diarios; toDate es inclusivo con precisión de segundos
+        LocalDateTime toExclusive = toDate != null ? toDate.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1) : null;
+        com.correos.masivos.email.api.dto.EmailStatsDTO stats = statsFromCounts(
+            emailStatsRollups.countByCreatedAt(campaignId, fromDate, toExclusive), campaignId);
         stats.setFromDate(fromDate);
         stats.setToDate(toDate);
-        
-        // Get status breakdown
-        List<Object[]> statusBreakdown;
-        if (campaignId != null && fromDate != null && toDate != null) {
-            statusBreakdown = emailLogRepository.getCampaignStatsByDateRange(campaignId, fromDate, toDate);
-        } else if (campaignId != null) {
-            statusBreakdown = emailLogRepository.getCampaignStats(campaignId);
-        } else if (fromDate != null && toDate != null) {
-            statusBreakdown = emailLogRepository.getStatsByDateRange(fromDate, toDate);
-        } else {
-            statusBreakdown = emailLogRepository.getGlobalStats();
-        }
-        
+        return stats;
+    }
+
+    @Override
+    public java.util.Map<String, Object> getSummaryStats(LocalDateTime fromDate, LocalDateTime toDate) {
+        Optional<LocalDateTime> refreshedAt = emailStatsSummaryRepository.findLastRefresh();
+        long stalenessSeconds = refreshedAt.map(at -> java.time.Duration.between(at, LocalDateTime.now()).getSeconds()).orElse(-1L);
+
+        // La vista agrupa por día: solo sirve para rangos de días completos (o sin rango)
+        boolean fullDays = (fromDate == null && toDate == null)
+            || (fromDate != null && toDate != null
+                && fromDate.toLocalTime().equals(java.time.LocalTime.MIDNIGHT)
+                && !toDate.toLocalTime().isBefore(java.time.LocalTime.of(23, 59, 59)));
+        // La vista se calcula sobre email_logs: no incluye los meses ya archivados
+        Optional<LocalDateTime> archivedBefore = emailLogArchiveStore.getArchivedBefore();
+        boolean coversArchive = archivedBefore.isPresent() && (fromDate == null || fromDate.isBefore(archivedBefore.get()));
+        boolean useView = refreshedAt.isPresent() && stalenessSeconds <= summaryMaxStalenessSeconds && fullDays && !coversArchive;
+
         java.util.Map<String, Long> breakdown = new java.util.HashMap<>();
-        for (Object[] row : statusBreakdown) {
-            breakdown.put(row[0].toString(), ((Number) row[1]).longValue());
+        java.util.Map<String, Object> summary = new java.util.LinkedHashMap<>();
+        if (useView) {
+            List<Object[]> rows = fromDate == null
+                ? emailLogRepository.getGlobalStats()
+                : emailLogRepository.getStatsByDateRange(fromDate, toDate);
+            for (Object[] row : rows) {
+                breakdown.put(row[0].toString(), ((Number) row[1]).longValue());
+            }
+            summary.put("source", "materialized_view");
+            summary.put("refreshedAt", refreshedAt.get());
+            summary.put("stalenessSeconds", stalenessSeconds);
+        } else {
+            // Vista demasiado antigua o rango parcial: contadores y rollups incrementales
+            java.util.Map<EmailLog.EmailStatus, Long> counts = fromDate == null && toDate == null
+                ? emailStatusCounters.getCounts(null)
+                : emailStatsRollups.countByCreatedAt(null, fromDate,
+                    toDate != null ? toDate.truncatedTo(ChronoUnit.SECONDS).plusSeconds(1) : null);
+            counts.forEach((status, count) -> {
+                if (count > 0) {
+                    breakdown.put(status.name(), count);
+                }
+            });
+            summary.put("source", "live");
+            summary.put("stalenessSeconds", 0L);
         }
-        stats.setStatusBreakdown(breakdown);
-        
-        return stats;
+
+        summary.put("fromDate", fromDate);
+        summary.put("toDate", toDate);
+        summary.put("totalEmails", breakdown.values().stream().mapToLong(Long::longValue).sum());
+        summary.put("statusBreakdown", breakdown);
+        return summary;
     }
 
     @Override
     public void handleDeliveryEvent(String externalId, String event, LocalDateTime timestamp) {
-        emailLogRepository.findByExternalId(externalId).ifPresent(emailLog -> {
+        findByExternalId(externalId).ifPresent(emailLog -> {
             emailLog.markAsDelivered();
             emailLogRepository.save(emailLog);
             logger.debug("Email delivery event processed: {}", externalId);
@@ -302,7 +434,7 @@ public class EmailServiceImpl implements EmailService {
 
     @Override
     public void handleOpenEvent(String externalId, LocalDateTime timestamp) {
-        emailLogRepository.findByExternalId(externalId).ifPresent(emailLog -> {
+        findByExternalId(externalId).ifPresent(emailLog -> {
             emailLog.markAsOpened();
             emailLogRepository.save(emailLog);
             logger.debug("Email open event processed: {}", externalId);
@@ -311,7 +443,7 @@ public class EmailServiceImpl implements EmailService {
 
     @Override
     public void handleClickEvent(String externalId, LocalDateTime timestamp) {
-        emailLogRepository.findByExternalId(externalId).ifPresent(emailLog -> {
+        findByExternalId(externalId).ifPresent(emailLog -> {
             emailLog.markAsClicked();
             emailLogRepository.save(emailLog);
             logger.debug("Email click event processed: {}", externalId);
@@ -320,21 +452,87 @@ public class EmailServiceImpl implements EmailService {
 
     @Override
     public void handleBounceEvent(String externalId, String reason, LocalDateTime timestamp) {
-        emailLogRepository.findByExternalId(externalId).ifPresent(emailLog -> {
+        findByExternalId(externalId).ifPresent(emailLog -> {
             emailLog.markAsBounced(reason);
             emailLogRepository.save(emailLog);
             logger.debug("Email bounce event processed: {}", externalId);
         });
     }
 
-    private EmailMessage createMessageFromLog(EmailLog emailLog) {
-        EmailMessage message = new EmailMessage();
-        message.setCampaignId(emailLog.getCampaignId());
-        message.setRecipientId(emailLog.getRecipientId());
-        message.setTo(emailLog.getToEmail());
-        message.setSubject(emailLog.getSubject());
-        message.setFrom(emailLog.getFromEmail());
-        message.setFromName(emailLog.getFromName());
-        return message;
+    private com.correos.masivos.email.api.dto.EmailStatsDTO statsFromCounts(java.util.Map<EmailLog.EmailStatus, Long> counts,
+                                                                           Long campaignId) {
+        com.correos.masivos.email.api.dto.EmailStatsDTO stats = new com.correos.masivos.email.api.dto.EmailStatsDTO(
+            countFrom(counts, null),
+            counts.get(EmailLog.EmailStatus.SENT),
+            counts.get(EmailLog.EmailStatus.DELIVERED),
+            counts.get(EmailLog.EmailStatus.OPENED),
+            counts.get(EmailLog.EmailStatus.CLICKED),
+            counts.get(EmailLog.EmailStatus.BOUNCED),
+            counts.get(EmailLog.EmailStatus.FAILED)
+        );
+        stats.setCampaignId(campaignId);
+
+        java.util.Map<String, Long> breakdown = new java.util.HashMap<>();
+        counts.forEach((status, count) -> {
+            if (count > 0) {
+                breakdown.put(status.name(), count);
+            }
+        });
+        stats.setStatusBreakdown(breakdown);
+        return stats;
+    }
+
+    // status == null: total de todos los estados
+    private long countFrom(java.util.Map<EmailLog.EmailStatus, Long> counts, EmailLog.EmailStatus status) {
+        if (status == null) {
+            return counts.values().stream().mapToLong(Long::longValue).sum();
+        }
+        return counts.getOrDefault(status, 0L);
+    }
+
+    // Reintento: con created_at la fila se carga por clave completa, en una sola partición.
+    // Los mensajes encolados antes de llevarlo se resuelven solo por id
+    private Optional<EmailLog> findExisting(EmailMessage message) {
+        if (message.getEmailLogCreatedAt() != null) {
+            return emailLogRepository.findById(new EmailLogKey(message.getEmailLogId(), message.getEmailLogCreatedAt()));
+        }
+        return emailLogRepository.findFirstById(message.getEmailLogId());
+    }
+
+    // Los eventos de proveedor llegan para emails recientes: la ventana limita las particiones leídas
+    private Optional<EmailLog> findByExternalId(String externalId) {
+        return emailLogRepository.findByExternalIdSince(externalId, LocalDateTime.now().minusDays(webhookLookupDays))
+            .stream().findFirst();
+    }
+
+    // Solo se reintentan emails recientes: acota la consulta a las últimas particiones mensuales
+    private LocalDateTime retrySince() {
+        return LocalDateTime.now().minusDays(retryLookbackDays);
+    }
+
+    private EmailLog failedLog(EmailMessage message, String errorMessage) {
+        EmailLog failed = new EmailLog(
+            message.getCampaignId(),
+            message.getRecipientId(),
+            message.getTo(),
+            message.getSubject(),
+            message.getFrom()
+        );
+        failed.markAsFailed(errorMessage);
+        return failed;
+    }
+
+    private EmailLog duplicateLog(EmailMessage message) {
+        // No se persiste: el envío original ya quedó registrado en email_logs
+        EmailLog duplicate = new EmailLog(
+            message.getCampaignId(),
+            message.getRecipientId(),
+            message.getTo(),
+            message.getSubject(),
+            message.getFrom()
+        );
+        duplicate.setStatus(EmailLog.EmailStatus.CANCELLED);
+        duplicate.setErrorMessage("Envío duplicado descartado");
+        return duplicate;
     }
 }
\ No newline at end of file
@@ -0,0 +1,356 @@
+package com.correos.masivos.email.infrastructure.service;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.EmailLogKey;
+import com.correos.masivos.email.domain.model.WebhookEvent;
+import com.correos.masivos.email.domain.service.WebhookIngestionService;
+import com.correos.masivos.email.infrastructure.cache.ExternalIdIndex;
+import com.correos.masivos.email.infrastructure.repository.WebhookEventBatchRepository;
+import com.correos.masivos.email.infrastructure.stats.EmailStatusCounters;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+// Durabilidad: el webhook se responde con 202 en cuanto el evento entra en el buffer en memoria,
+// antes de escribirlo en BD. Si el proceso muere sin pasar por onShutdown se pierden los eventos
+// pendientes (como mucho buffer-capacity, normalmente lo acumulado en un flush-interval-ms); es el
+// precio de no hacer una escritura por webhook. Un lote que falla se reintenta en los ciclos
+// siguientes hasta max-attempts y después el evento pasa a webhook_event_dead_letters.
+@Service
+public class WebhookIngestionServiceImpl implements WebhookIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WebhookIngestionServiceImpl.class);
+
+    // Orden de aplicación dentro de un lote: los estados más avanzados se aplican al final
+    private static final WebhookEvent.EventType[] APPLY_ORDER = {
+        WebhookEvent.EventType.DELIVERED,
+        WebhookEvent.EventType.BOUNCED,
+        WebhookEvent.EventType.OPENED,
+        WebhookEvent.EventType.CLICKED
+    };
+
+    @Autowired
+    private WebhookEventBatchRepository webhookEventBatchRepository;
+
+    @Autowired
+    private ExternalIdIndex externalIdIndex;
+
+    @Autowired
+    private EmailStatusCounters emailStatusCounters;
+
+    @Value("${email.webhooks.buffer-capacity:100000}")
+    private int bufferCapacity;
+
+    @Value("${email.webhooks.batch-size:5000}")
+    private int batchSize;
+
+    @Value("${email.webhooks.max-attempts:5}")
+    private int maxAttempts;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private BlockingQueue<WebhookEvent> buffer;
+    private Timer ingestionLatency;
+    private Counter acceptedEvents;
+    private Counter rejectedEvents;
+    private Counter ignoredEvents;
+    private Counter deadLetteredEvents;
+
+    @PostConstruct
+    public void init() {
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+
+        // Latencia por evento desde que llega el webhook hasta que queda aplicado (o descartado por precedencia)
+        ingestionLatency = Timer.builder("email.webhooks.ingestion.latency")
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        acceptedEvents = meterRegistry.counter("email.webhooks.events", "result", "accepted");
+        rejectedEvents = meterRegistry.counter("email.webhooks.events", "result", "rejected");
+        ignoredEvents = meterRegistry.counter("email.webhooks.events", "result", "ignored");
+        deadLetteredEvents = meterRegistry.counter("email.webhooks.events", "result", "dead_lettered");
+        meterRegistry.gauge("email.webhooks.pending", buffer, BlockingQueue::size);
+    }
+
+    @Override
+    public boolean accept(WebhookEvent event) {
+        if (event.getExternalId() == null || event.getType() == null) {
+            ignoredEvents.increment();
+            return true;
+        }
+        boolean accepted = buffer.offer(event);
+        if (accepted) {
+            acceptedEvents.increment();
+        } else {
+            rejectedEvents.increment();
+            logger.warn("Buffer de webhooks lleno ({} eventos), se rechaza el evento {}", bufferCapacity, event.getExternalId());
+        }
+        return accepted;
+    }
+
+    @Override
+    public Map<String, Object> acceptBatch(InputStream body) throws IOException {
+        // Array de eventos leído con el parser en streaming, sin materializar un Map por evento
+        int accepted = 0;
+        int ignored = 0;
+        int rejected = 0;
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Se esperaba un array de eventos");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                WebhookEvent event = readEvent(parser);
+                if (event.getExternalId() == null || event.getType() == null) {
+                    ignored++;
+                } else if (buffer.offer(event)) {
+                    accepted++;
+                } else {
+                    rejected++;
+                }
+            }
+        }
+
+        acceptedEvents.increment(accepted);
+        ignoredEvents.increment(ignored);
+        if (rejected > 0) {
+            rejectedEvents.increment(rejected);
+            logger.warn("Buffer de webhooks lleno: {} eventos del lote rechazados", rejected);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("accepted", accepted);
+        result.put("ignored", ignored);
+        result.put("rejected", rejected);
+        return result;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${email.webhooks.flush-interval-ms:1000}")
+    public synchronized int flush() {
+        int applied = 0;
+        List<WebhookEvent> batch = new ArrayList<>(batchSize);
+        List<WebhookEvent> failed = new ArrayList<>();
+        // Solo lo que había al empezar: con entrada sostenida el bucle no terminaría nunca y los
+        // fallidos no volverían al buffer. Lo que llegue mientras tanto va en el siguiente ciclo
+        int remaining = buffer.size();
+        while (remaining > 0 && buffer.drainTo(batch, Math.min(batchSize, remaining)) > 0) {
+            remaining -= batch.size();
+            applied += applyBatch(batch, failed);
+            batch.clear();
+        }
+        // Los lotes fallidos vuelven al buffer para el siguiente ciclo (hasta max-attempts, ver applyBatch)
+        if (!failed.isEmpty()) {
+            requeue(failed);
+        }
+        return applied;
+    }
+
+    @Override
+    public int getPendingEvents() {
+        return buffer.size();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        logger.info("Aplicando {} eventos de webhook pendientes antes de detener el servicio", buffer.size());
+        flush();
+    }
+
+    private WebhookEvent readEvent(JsonParser parser) throws IOException {
+        String externalId = null;
+        String type = null;
+        String reason = null;
+        LocalDateTime occurredAt = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "externalId":
+                case "sg_message_id":
+                    externalId = parser.getValueAsString();
+                    break;
+                case "event":
+                case "type":
+                    type = parser.getValueAsString();
+                    break;
+                case "reason":
+                    reason = parser.getValueAsString();
+                    break;
+                case "timestamp":
+                    occurredAt = parseTimestamp(parser, token);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        return new WebhookEvent(externalId, toEventType(type), reason, occurredAt != null ? occurredAt : LocalDateTime.now());
+    }
+
+    private LocalDateTime parseTimestamp(JsonParser parser, JsonToken token) throws IOException {
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                // Formato de SendGrid y similares: segundos desde epoch
+                return LocalDateTime.ofInstant(Instant.ofEpochSecond(parser.getLongValue()), ZoneId.systemDefault());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return LocalDateTime.parse(parser.getText());
+            }
+        } catch (DateTimeParseException e) {
+            logger.debug("Timestamp de webhook no reconocido: {}", parser.getText());
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    private WebhookEvent.EventType toEventType(String type) {
+        if (type == null) {
+            return null;
+        }
+        switch (type.toLowerCase()) {
+            case "delivered":
+            case "delivery":
+                return WebhookEvent.EventType.DELIVERED;
+            case "open":
+            case "opened":
+                return WebhookEvent.EventType.OPENED;
+            case "click":
+            case "clicked":
+                return WebhookEvent.EventType.CLICKED;
+            case "bounce":
+            case "bounced":
+            case "dropped":
+                return WebhookEvent.EventType.BOUNCED;
+            default:
+                // processed, deferred, spamreport...: no cambian el estado del email
+                return null;
+        }
+    }
+
+    private int applyBatch(List<WebhookEvent> batch, List<WebhookEvent> failed) {
+        // Un único UPDATE por tipo; si un mismo email recibe varios eventos del mismo tipo se queda el último
+        Map<WebhookEvent.EventType, Map<String, WebhookEvent>> byType = new EnumMap<>(WebhookEvent.EventType.class);
+        for (WebhookEvent event : batch) {
+            byType.computeIfAbsent(event.getType(), type -> new LinkedHashMap<>())
+                  .merge(event.getExternalId(), event,
+                         (current, candidate) -> candidate.getOccurredAt().isBefore(current.getOccurredAt()) ? current : candidate);
+        }
+
+        int updated = 0;
+        int skipped = 0;
+        for (WebhookEvent.EventType type : APPLY_ORDER) {
+            Map<String, WebhookEvent> events = byType.get(type);
+            if (events == null) {
+                continue;
+            }
+
+            // El índice en memoria da la clave (id, created_at) para el UPDATE en una sola partición
+            // y el estado actual, de modo que los eventos que no cambian nada se descartan sin tocar la BD
+            List<WebhookEvent> pending = new ArrayList<>(events.size());
+            List<EmailLogKey> emailLogKeys = new ArrayList<>(events.size());
+            for (WebhookEvent event : events.values()) {
+                ExternalIdIndex.Entry entry = externalIdIndex.get(event.getExternalId());
+                if (entry != null && !event.changesStatus(entry.getStatus())) {
+                    skipped++;
+                    recordLatency(event);
+                    continue;
+                }
+                pending.add(event);
+                emailLogKeys.add(entry != null ? new EmailLogKey(entry.getEmailLogId(), entry.getCreatedAt()) : null);
+            }
+            if (pending.isEmpty()) {
+                continue;
+            }
+
+            try {
+                updated += webhookEventBatchRepository.applyEvents(type, pending, emailLogKeys,
+                    (emailLogId, externalId, status, previousStatus, campaignId, createdAt) -> {
+                        EmailLog.EmailStatus newStatus = EmailLog.EmailStatus.valueOf(status);
+                        externalIdIndex.put(externalId, emailLogId, createdAt, newStatus);
+                        emailStatusCounters.transition(campaignId, createdAt,
+                                                       EmailLog.EmailStatus.valueOf(previousStatus), newStatus);
+                    });
+                pending.forEach(this::recordLatency);
+            } catch (Exception e) {
+                List<WebhookEvent> exhausted = new ArrayList<>();
+                for (WebhookEvent event : pending) {
+                    if (event.incrementAttempts() >= maxAttempts) {
+                        exhausted.add(event);
+                    } else {
+                        failed.add(event);
+                    }
+                }
+                logger.error("Error aplicando lote de {} eventos {}: {} se reintentarán, {} agotaron sus intentos",
+                            pending.size(), type, pending.size() - exhausted.size(), exhausted.size(), e);
+                if (!exhausted.isEmpty()) {
+                    deadLetter(exhausted, e);
+                }
+            }
+        }
+
+        logger.debug("Lote de webhooks aplicado: {} eventos, {} filas actualizadas, {} descartados en memoria",
+                    batch.size(), updated, skipped);
+        return updated;
+    }
+
+    private void recordLatency(WebhookEvent event) {
+        ingestionLatency.record(Duration.between(event.getReceivedAt(), LocalDateTime.now()));
+    }
+
+    private void deadLetter(List<WebhookEvent> events, Exception cause) {
+        deadLetteredEvents.increment(events.size());
+        try {
+            webhookEventBatchRepository.saveDeadLetters(events, String.valueOf(cause.getMessage()));
+        } catch (Exception e) {
+            // Sin BD tampoco hay tabla de descartes: queda al menos el rastro en el log
+            for (WebhookEvent event : events) {
+                logger.error("Evento de webhook descartado: externalId={}, tipo={}, ocurrido={}, motivo={}",
+                            event.getExternalId(), event.getType(), event.getOccurredAt(), event.getReason());
+            }
+            logger.error("No se pudieron guardar {} eventos de webhook descartados", events.size(), e);
+        }
+    }
+
+    private void requeue(List<WebhookEvent> events) {
+        int dropped = 0;
+        for (WebhookEvent event : events) {
+            if (!buffer.offer(event)) {
+                dropped++;
+            }
+        }
+        if (dropped > 0) {
+            logger.warn("Se descartaron {} eventos de webhook por falta de espacio en el buffer", dropped);
+        }
+    }
+}
@@ -27,6 +27,8 @@ public class GenericSmtpEmailService implements EmailProviderService {
     private final boolean useStartTls;
     private final String trustHost;
     private final String overrideRecipient;
+    // Se reutiliza entre envíos (JavaMailSenderImpl es thread-safe) para no recrear la sesión SMTP
+    private volatile JavaMailSender mailSender;
 
     public GenericSmtpEmailService(String providerName, String displayName, int priority,
                                  String host, int port, String username, String password, 
@@ -60,7 +62,7 @@ public class GenericSmtpEmailService implements EmailProviderService {
         logger.debug("SMTP Config - Host: {}, Port: {}, Auth: {}, StartTLS: {}", host, port, useAuth, useStartTls);
         
         try {
-            JavaMailSender mailSender = createMailSender();
+            JavaMailSender mailSender = getMailSender();
             MimeMessage mimeMessage = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true, "UTF-8");
 
@@ -95,6 +97,20 @@ public class GenericSmtpEmailService implements EmailProviderService {
         }
     }
 
+    private JavaMailSender getMailSender() {
+        JavaMailSender sender = mailSender;
+        if (sender == null) {
+            synchronized (this) {
+                sender = mailSender;
+                if (sender == null) {
+                    sender = createMailSender();
+                    mailSender = sender;
+                }
+            }
+        }
+        return sender;
+    }
+
     private JavaMailSender createMailSender() {
         JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
         mailSender.setHost(host);
@@ -0,0 +1,36 @@
+package com.correos.masivos.email.infrastructure.stats;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+
+// Traslada cada cambio de estado de EmailLog hecho vía JPA a los contadores pre-agregados.
+// Hibernate crea el listener a través del contenedor de Spring, por eso admite @Autowired.
+// Los callbacks se disparan en el flush, antes del commit: EmailStatusCounters aplaza el delta
+// hasta que la transacción se confirma.
+public class EmailLogStatusListener {
+
+    @Autowired
+    private EmailStatusCounters emailStatusCounters;
+
+    @PostLoad
+    public void onLoad(EmailLog emailLog) {
+        emailLog.setPersistedStatus(emailLog.getStatus());
+    }
+
+    @PostPersist
+    public void onPersist(EmailLog emailLog) {
+        emailStatusCounters.transition(emailLog.getCampaignId(), emailLog.getCreatedAt(), null, emailLog.getStatus());
+        emailLog.setPersistedStatus(emailLog.getStatus());
+    }
+
+    @PostUpdate
+    public void onUpdate(EmailLog emailLog) {
+        emailStatusCounters.transition(emailLog.getCampaignId(), emailLog.getCreatedAt(),
+                                       emailLog.getPersistedStatus(), emailLog.getStatus());
+        emailLog.setPersistedStatus(emailLog.getStatus());
+    }
+}
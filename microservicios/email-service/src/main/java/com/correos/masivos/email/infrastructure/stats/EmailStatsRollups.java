@@ -0,0 +1,204 @@
+package com.correos.masivos.email.infrastructure.stats;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.infrastructure.repository.EmailStatsRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Component
+public class EmailStatsRollups {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailStatsRollups.class);
+    private static final EmailLog.EmailStatus[] STATUSES = EmailLog.EmailStatus.values();
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    // Deltas por (hora de creación del email, campaña). El volcado sustituye el mapa
+    // completo bajo el lock de escritura, así no se pierde ningún incremento en curso.
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Map<BucketKey, AtomicLongArray> pending = new ConcurrentHashMap<>();
+
+    @Autowired
+    private EmailStatsRollupRepository emailStatsRollupRepository;
+
+    public void record(Long campaignId, LocalDateTime createdAt, EmailLog.EmailStatus from, EmailLog.EmailStatus to) {
+        if (createdAt == null || from == to) {
+            return;
+        }
+        BucketKey key = new BucketKey(createdAt.truncatedTo(ChronoUnit.HOURS), campaignId != null ? campaignId : 0L);
+        swapLock.readLock().lock();
+        try {
+            AtomicLongArray deltas = pending.computeIfAbsent(key, k -> new AtomicLongArray(STATUSES.length));
+            if (from != null) {
+                deltas.decrementAndGet(from.ordinal());
+            }
+            if (to != null) {
+                deltas.incrementAndGet(to.ordinal());
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.stats.counter-flush-interval-ms:1000}")
+    public synchronized void flush() {
+        Map<BucketKey, AtomicLongArray> taken;
+        swapLock.writeLock().lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            taken = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        List<Object[]> hourly = new ArrayList<>();
+        Map<BucketKey, long[]> daily = new HashMap<>();
+        taken.forEach((key, deltas) -> {
+            BucketKey day = new BucketKey(key.bucketStart.truncatedTo(ChronoUnit.DAYS), key.campaignId);
+            long[] dayDeltas = daily.computeIfAbsent(day, k -> new long[STATUSES.length]);
+            for (int i = 0; i < deltas.length(); i++) {
+                long delta = deltas.get(i);
+                if (delta != 0) {
+                    hourly.add(new Object[] {Timestamp.valueOf(key.bucketStart), key.campaignId, STATUSES[i].name(), delta});
+                    dayDeltas[i] += delta;
+                }
+            }
+        });
+        List<Object[]> dailyRows = new ArrayList<>();
+        daily.forEach((key, deltas) -> {
+            for (int i = 0; i < deltas.length; i++) {
+                if (deltas[i] != 0) {
+                    dailyRows.add(new Object[] {Date.valueOf(key.bucketStart.toLocalDate()), key.campaignId, STATUSES[i].name(), deltas[i]});
+                }
+            }
+        });
+
+        try {
+            emailStatsRollupRepository.addHourlyDeltas(hourly);
+            emailStatsRollupRepository.addDailyDeltas(dailyRows);
+        } catch (Exception e) {
+            // Se devuelven los deltas para el siguiente volcado
+            logger.warn("No se pudieron volcar {} rollups de estadísticas: {}", hourly.size(), e.getMessage());
+            swapLock.readLock().lock();
+            try {
+                taken.forEach((key, deltas) -> {
+                    AtomicLongArray target = pending.computeIfAbsent(key, k -> new AtomicLongArray(STATUSES.length));
+                    for (int i = 0; i < deltas.length(); i++) {
+                        target.addAndGet(i, deltas.get(i));
+                    }
+                });
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        }
+    }
+
+    // Conteo por estado de los emails creados en [from, to). Las horas y días completos salen de
+    // los rollups; solo los bordes que no llenan una hora y la hora en curso consultan email_logs.
+    public Map<EmailLog.EmailStatus, Long> countByCreatedAt(Long campaignId, LocalDateTime from, LocalDateTime to) {
+        Map<EmailLog.EmailStatus, Long> counts = new EnumMap<>(EmailLog.EmailStatus.class);
+        LocalDateTime start = from != null ? from : EPOCH;
+        LocalDateTime openBucket = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime end = to != null ? to : openBucket.plusHours(1);
+
+        if (start.isBefore(end)) {
+            LocalDateTime closedEnd = end.isBefore(openBucket) ? end : openBucket;
+            if (start.isBefore(closedEnd)) {
+                addClosedRange(counts, campaignId, start, closedEnd);
+            }
+            if (end.isAfter(openBucket)) {
+                emailStatsRollupRepository.addRawCounts(counts, campaignId, start.isAfter(openBucket) ? start : openBucket, end);
+            }
+        }
+
+        for (EmailLog.EmailStatus status : STATUSES) {
+            counts.putIfAbsent(status, 0L);
+        }
+        return counts;
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        flush();
+    }
+
+    private void addClosedRange(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDateTime from, LocalDateTime to) {
+        LocalDateTime firstHour = ceil(from, ChronoUnit.HOURS);
+        LocalDateTime lastHour = to.truncatedTo(ChronoUnit.HOURS);
+        if (!firstHour.isBefore(lastHour)) {
+            emailStatsRollupRepository.addRawCounts(counts, campaignId, from, to);
+            return;
+        }
+        if (from.isBefore(firstHour)) {
+            emailStatsRollupRepository.addRawCounts(counts, campaignId, from, firstHour);
+        }
+        if (lastHour.isBefore(to)) {
+            emailStatsRollupRepository.addRawCounts(counts, campaignId, lastHour, to);
+        }
+
+        LocalDateTime firstDay = ceil(firstHour, ChronoUnit.DAYS);
+        LocalDateTime lastDay = lastHour.truncatedTo(ChronoUnit.DAYS);
+        if (firstDay.isBefore(lastDay)) {
+            emailStatsRollupRepository.addDailyCounts(counts, campaignId, firstDay.toLocalDate(), lastDay.toLocalDate());
+            if (firstHour.isBefore(firstDay)) {
+                emailStatsRollupRepository.addHourlyCounts(counts, campaignId, firstHour, firstDay);
+            }
+            if (lastDay.isBefore(lastHour)) {
+                emailStatsRollupRepository.addHourlyCounts(counts, campaignId, lastDay, lastHour);
+            }
+        } else {
+            emailStatsRollupRepository.addHourlyCounts(counts, campaignId, firstHour, lastHour);
+        }
+    }
+
+    private static LocalDateTime ceil(LocalDateTime value, ChronoUnit unit) {
+        LocalDateTime truncated = value.truncatedTo(unit);
+        return truncated.equals(value) ? value : truncated.plus(1, unit);
+    }
+
+    private static final class BucketKey {
+        private final LocalDateTime bucketStart;
+        private final long campaignId;
+
+        BucketKey(LocalDateTime bucketStart, long campaignId) {
+            this.bucketStart = bucketStart;
+            this.campaignId = campaignId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BucketKey)) return false;
+            BucketKey other = (BucketKey) o;
+            return campaignId == other.campaignId && bucketStart.equals(other.bucketStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(bucketStart, campaignId);
+        }
+    }
+}
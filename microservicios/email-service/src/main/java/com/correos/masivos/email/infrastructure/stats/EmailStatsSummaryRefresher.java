@@ -0,0 +1,71 @@
+package com.correos.masivos.email.infrastructure.stats;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.infrastructure.repository.EmailStatsSummaryRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+public class EmailStatsSummaryRefresher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailStatsSummaryRefresher.class);
+
+    @Autowired
+    private EmailStatsSummaryRepository emailStatsSummaryRepository;
+
+    @Autowired
+    private EmailStatusCounters emailStatusCounters;
+
+    @Value("${email.stats.summary.active-refresh-seconds:30}")
+    private long activeRefreshSeconds;
+
+    @Value("${email.stats.summary.idle-refresh-seconds:600}")
+    private long idleRefreshSeconds;
+
+    @Value("${email.stats.summary.active-window-seconds:300}")
+    private long activeWindowSeconds;
+
+    private volatile long lastRefreshMillis;
+
+    // Se evalúa con frecuencia, pero solo refresca cuando toca según haya o no envíos en curso
+    @Scheduled(fixedDelayString = "${email.stats.summary.check-interval-ms:5000}")
+    public void refreshIfDue() {
+        long intervalMillis = (isSending() ? activeRefreshSeconds : idleRefreshSeconds) * 1000;
+        if (System.currentTimeMillis() - lastRefreshMillis < intervalMillis) {
+            return;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            if (emailStatsSummaryRepository.refresh()) {
+                logger.debug("Vista email_stats_summary refrescada en {} ms", System.currentTimeMillis() - start);
+            }
+            // Si otra instancia tenía el lock, ella hace el refresco de este intervalo
+            lastRefreshMillis = System.currentTimeMillis();
+        } catch (Exception e) {
+            logger.warn("No se pudo refrescar email_stats_summary: {}", e.getMessage());
+        }
+    }
+
+    // El estado de las campañas vive en campaign-service: aquí se considera que hay envíos
+    // en curso si esta instancia ha registrado cambios de estado recientes o si quedan
+    // emails PENDING/SENDING en los contadores globales
+    private boolean isSending() {
+        long lastTransition = emailStatusCounters.getLastTransitionMillis();
+        if (lastTransition > 0 && System.currentTimeMillis() - lastTransition < activeWindowSeconds * 1000) {
+            return true;
+        }
+        try {
+            Map<EmailLog.EmailStatus, Long> counts = emailStatusCounters.getCounts(null);
+            return counts.get(EmailLog.EmailStatus.PENDING) + counts.get(EmailLog.EmailStatus.SENDING) > 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
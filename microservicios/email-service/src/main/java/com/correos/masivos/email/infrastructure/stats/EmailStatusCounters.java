@@ -0,0 +1,147 @@
+package com.correos.masivos.email.infrastructure.stats;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.infrastructure.repository.EmailStatusCountRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Component
+public class EmailStatusCounters {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailStatusCounters.class);
+    private static final EmailLog.EmailStatus[] STATUSES = EmailLog.EmailStatus.values();
+    private static final long NO_CAMPAIGN = 0L;
+
+    // Deltas pendientes de volcar por campaña, un contador por estado (índice = ordinal).
+    // Cada instancia acumula solo sus propios cambios y los suma en email_status_counts.
+    private final Map<Long, AtomicLongArray> pending = new ConcurrentHashMap<>();
+    private volatile long lastTransitionMillis;
+
+    @Autowired
+    private EmailStatusCountRepository emailStatusCountRepository;
+
+    @Autowired
+    private EmailStatsRollups emailStatsRollups;
+
+    // Registra un cambio de estado; from == null para un email nuevo.
+    // También alimenta los rollups horarios/diarios por fecha de creación del email.
+    // Dentro de una transacción el delta se aplica al confirmarla: tras un rollback no debe quedar nada
+    public void transition(Long campaignId, LocalDateTime createdAt, EmailLog.EmailStatus from, EmailLog.EmailStatus to) {
+        if (from == to) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(campaignId, createdAt, from, to);
+                }
+            });
+            return;
+        }
+        apply(campaignId, createdAt, from, to);
+    }
+
+    private void apply(Long campaignId, LocalDateTime createdAt, EmailLog.EmailStatus from, EmailLog.EmailStatus to) {
+        lastTransitionMillis = System.currentTimeMillis();
+        emailStatsRollups.record(campaignId, createdAt, from, to);
+        AtomicLongArray deltas = pending.computeIfAbsent(key(campaignId), id -> new AtomicLongArray(STATUSES.length));
+        if (from != null) {
+            deltas.decrementAndGet(from.ordinal());
+        }
+        if (to != null) {
+            deltas.incrementAndGet(to.ordinal());
+        }
+    }
+
+    // Contadores por estado (global si campaignId es null), incluidos los deltas aún no volcados
+    public Map<EmailLog.EmailStatus, Long> getCounts(Long campaignId) {
+        Map<EmailLog.EmailStatus, Long> counts = emailStatusCountRepository.findCounts(campaignId);
+        if (campaignId != null) {
+            addPending(counts, pending.get(campaignId));
+        } else {
+            pending.values().forEach(deltas -> addPending(counts, deltas));
+        }
+        for (EmailLog.EmailStatus status : STATUSES) {
+            counts.putIfAbsent(status, 0L);
+        }
+        return counts;
+    }
+
+    // Momento del último cambio de estado registrado por esta instancia (0 si ninguno)
+    public long getLastTransitionMillis() {
+        return lastTransitionMillis;
+    }
+
+    @Scheduled(fixedDelayString = "${email.stats.counter-flush-interval-ms:1000}")
+    public synchronized void flush() {
+        List<Object[]> rows = new ArrayList<>();
+        List<Object[]> taken = new ArrayList<>();
+        pending.forEach((campaignId, deltas) -> {
+            for (int i = 0; i < deltas.length(); i++) {
+                long delta = deltas.getAndSet(i, 0);
+                if (delta != 0) {
+                    rows.add(new Object[] {campaignId, STATUSES[i].name(), delta});
+                    taken.add(new Object[] {campaignId, i, delta});
+                }
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            emailStatusCountRepository.addDeltas(rows);
+        } catch (Exception e) {
+            // Se devuelven los deltas para el siguiente volcado
+            logger.warn("No se pudieron volcar {} contadores de estado: {}", rows.size(), e.getMessage());
+            for (Object[] row : taken) {
+                pending.computeIfAbsent((Long) row[0], id -> new AtomicLongArray(STATUSES.length))
+                       .addAndGet((Integer) row[1], (Long) row[2]);
+            }
+        }
+    }
+
+    // Reconciliación periódica con email_logs: corrige derivas (reinicios abruptos, rollbacks)
+    @Scheduled(cron = "${email.stats.counter-reconcile-cron:0 30 3 * * *}")
+    public synchronized void reconcile() {
+        flush();
+        logger.info("Recalculando contadores de estado desde email_logs");
+        emailStatusCountRepository.recompute();
+    }
+
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        flush();
+    }
+
+    private void addPending(Map<EmailLog.EmailStatus, Long> counts, AtomicLongArray deltas) {
+        if (deltas == null) {
+            return;
+        }
+        for (int i = 0; i < deltas.length(); i++) {
+            long delta = deltas.get(i);
+            if (delta != 0) {
+                counts.merge(STATUSES[i], delta, Long::sum);
+            }
+        }
+    }
+
+    private long key(Long campaignId) {
+        return campaignId != null ? campaignId : NO_CAMPAIGN;
+    }
+}
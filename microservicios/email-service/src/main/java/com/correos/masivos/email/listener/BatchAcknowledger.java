@@ -0,0 +1,108 @@
+package com.correos.masivos.email.listener;
+
+import com.rabbitmq.client.Channel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.rabbit.listener.ListenerContainerIdleEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class BatchAcknowledger {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchAcknowledger.class);
+
+    // Acks pendientes del hilo consumidor: se confirman con un único basicAck(multiple=true)
+    // sobre el delivery tag más alto cada N mensajes o cada T ms. Cada hilo del contenedor es
+    // dueño de su canal, así que todos los basicAck se emiten desde ese mismo hilo y nunca
+    // se cruzan con las entregas o los nacks de otro.
+    private final ThreadLocal<PendingAcks> pending = new ThreadLocal<>();
+
+    // Durante el cierre cada ack se confirma al momento, junto con los que tuviera pendientes
+    private volatile boolean stopping;
+
+    @Value("${email.listener.ack-batch-size:50}")
+    private int ackBatchSize;
+
+    @Value("${email.listener.ack-flush-interval-ms:500}")
+    private long ackFlushIntervalMs;
+
+    public void ack(Channel channel, long deliveryTag) {
+        PendingAcks acks = pending.get();
+        if (acks == null || acks.channel != channel) {
+            // Canal nuevo tras una reconexión: los tags del anterior ya no son válidos y el
+            // broker reentregará esos mensajes
+            acks = new PendingAcks(channel);
+            pending.set(acks);
+        }
+        acks.add(deliveryTag);
+        // Con tráfico lento el lote no se llena: se confirma al superar el intervalo
+        if (stopping || acks.count >= ackBatchSize
+                || System.currentTimeMillis() - acks.firstPendingAt >= ackFlushIntervalMs) {
+            acks.flush();
+        }
+    }
+
+    public void nack(Channel channel, long deliveryTag, boolean requeue) {
+        try {
+            // Un nack individual no afecta a los tags menores que siguen pendientes de ack
+            channel.basicNack(deliveryTag, false, requeue);
+        } catch (Exception e) {
+            logger.warn("No se pudo rechazar el mensaje {}: {}", deliveryTag, e.getMessage());
+        }
+    }
+
+    // Sin mensajes nuevos el contenedor publica este evento desde su hilo consumidor
+    // (idleEventInterval en EmailListenerConfig): ahí se confirma lo que quedó pendiente
+    @EventListener
+    public void onIdle(ListenerContainerIdleEvent event) {
+        PendingAcks acks = pending.get();
+        if (acks != null) {
+            acks.flush();
+        }
+    }
+
+    // Lo pendiente sin más tráfico se reentrega tras el cierre y la clave de idempotencia
+    // (SENT) lo descarta como duplicado
+    @EventListener(ContextClosedEvent.class)
+    public void onShutdown() {
+        logger.info("Cierre del consumidor: los acks se confirman sin agrupar");
+        stopping = true;
+    }
+
+    private static final class PendingAcks {
+        private final Channel channel;
+        private long highestTag;
+        private int count;
+        private long firstPendingAt;
+
+        PendingAcks(Channel channel) {
+            this.channel = channel;
+        }
+
+        void add(long deliveryTag) {
+            if (count == 0) {
+                firstPendingAt = System.currentTimeMillis();
+            }
+            highestTag = Math.max(highestTag, deliveryTag);
+            count++;
+        }
+
+        void flush() {
+            if (count == 0) {
+                return;
+            }
+            try {
+                channel.basicAck(highestTag, true);
+                logger.debug("Ack de {} mensajes hasta deliveryTag={}", count, highestTag);
+            } catch (Exception e) {
+                // Si el canal se cerró, el broker reentregará los mensajes (at-least-once)
+                logger.warn("No se pudo confirmar el lote hasta deliveryTag={}: {}", highestTag, e.getMessage());
+            } finally {
+                count = 0;
+            }
+        }
+    }
+}
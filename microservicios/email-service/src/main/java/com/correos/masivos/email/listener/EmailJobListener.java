@@ -1,16 +1,25 @@
 package com.correos.masivos.email.listener;
 
+import com.correos.masivos.email.config.EmailListenerConfig;
 import com.correos.masivos.email.domain.model.EmailMessage;
+import com.correos.masivos.email.domain.service.BulkEmailJobService;
 import com.correos.masivos.email.domain.service.EmailService;
+import com.correos.masivos.email.infrastructure.dedup.EmailInFlightException;
 import com.correos.masivos.queue.config.RabbitConfig;
 import com.correos.masivos.queue.model.EmailJob;
 import com.correos.masivos.queue.service.QueueService;
+import com.rabbitmq.client.Channel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 
+import java.time.LocalDateTime;
+
 @Component
 public class EmailJobListener {
 
@@ -22,11 +31,51 @@ public class EmailJobListener {
     @Autowired
     private QueueService queueService;
 
-    @RabbitListener(queues = RabbitConfig.EMAIL_QUEUE)
-    public void processEmailJob(EmailJob emailJob) {
+    @Autowired
+    private BatchAcknowledger batchAcknowledger;
+
+    @Autowired
+    private BulkEmailJobService bulkEmailJobService;
+
+    @Value("${email.dedup.in-flight-requeue-delay-seconds:30}")
+    private long inFlightRequeueDelaySeconds;
+
+    @RabbitListener(queues = RabbitConfig.EMAIL_QUEUE, containerFactory = EmailListenerConfig.EMAIL_LISTENER_FACTORY)
+    public void processEmailJob(EmailJob emailJob, Channel channel,
+                                @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag,
+                                @Header(name = AmqpHeaders.REDELIVERED, required = false) Boolean redelivered) {
         logger.info("Procesando trabajo de email: campaignId={}, recipientId={}, email={}", 
                    emailJob.getCampaignId(), emailJob.getRecipientId(), emailJob.getToEmail());
 
+        try {
+            handleEmailJob(emailJob);
+            // El resultado ya está persistido en email_logs o re-encolado: se puede confirmar
+            batchAcknowledger.ack(channel, deliveryTag);
+        } catch (EmailInFlightException e) {
+            // Otro consumidor lo tiene reservado: se vuelve a publicar con retardo sin gastar un
+            // reintento; si aquel cayó, la reserva quedará abandonada y la tomará este mensaje
+            try {
+                logger.info("Email en curso en otro consumidor, se reintenta en {}s: key={}",
+                           inFlightRequeueDelaySeconds, e.getIdempotencyKey());
+                queueService.sendDelayedEmailJob(emailJob, LocalDateTime.now().plusSeconds(inFlightRequeueDelaySeconds));
+                batchAcknowledger.ack(channel, deliveryTag);
+            } catch (Exception publishError) {
+                logger.error("No se pudo reprogramar el email en curso: key={}", e.getIdempotencyKey(), publishError);
+                batchAcknowledger.nack(channel, deliveryTag, true);
+            }
+        } catch (Exception e) {
+            // Primer fallo: se devuelve a la cola; si ya era una reentrega, va a la DLQ
+            boolean requeue = !Boolean.TRUE.equals(redelivered);
+            logger.error("Error procesando trabajo de email: campaignId={}, recipientId={}, requeue={}", 
+                        emailJob.getCampaignId(), emailJob.getRecipientId(), requeue, e);
+            if (!requeue) {
+                bulkEmailJobService.recordFailure(emailJob, e.getMessage());
+            }
+            batchAcknowledger.nack(channel, deliveryTag, requeue);
+        }
+    }
+
+    private void handleEmailJob(EmailJob emailJob) {
         try {
             // Convert EmailJob to EmailMessage
             EmailMessage emailMessage = convertToEmailMessage(emailJob);
@@ -37,6 +86,13 @@ public class EmailJobListener {
             if (emailLog.getStatus().name().equals("SENT")) {
                 logger.info("Email enviado exitosamente: campaignId={}, recipientId={}", 
                            emailJob.getCampaignId(), emailJob.getRecipientId());
+                bulkEmailJobService.recordResult(emailJob, emailLog);
+            } else if (emailLog.getStatus().name().equals("CANCELLED")) {
+                // Duplicado (reentrega o reintento de un envío ya hecho): se descarta sin reintentar
+                logger.info("Email duplicado descartado: campaignId={}, recipientId={}, key={}", 
+                           emailJob.getCampaignId(), emailJob.getRecipientId(), emailJob.getIdempotencyKey());
+                // El destinatario cuenta como procesado aunque el primer intento no llegara a registrarlo
+                bulkEmailJobService.recordDuplicate(emailJob);
             } else {
                 logger.warn("Email falló: campaignId={}, recipientId={}, status={}", 
                            emailJob.getCampaignId(), emailJob.getRecipientId(), emailLog.getStatus());
@@ -44,11 +100,15 @@ public class EmailJobListener {
                 // Retry if possible
                 if (!emailJob.hasReachedMaxRetries()) {
                     queueService.retryEmailJob(emailJob);
+                } else {
+                    bulkEmailJobService.recordResult(emailJob, emailLog);
                 }
             }
 
+        } catch (EmailInFlightException e) {
+            throw e;
         } catch (Exception e) {
-            logger.error("Error procesando trabajo de email: campaignId={}, recipientId={}", 
+            logger.error("Error enviando email: campaignId={}, recipientId={}", 
                         emailJob.getCampaignId(), emailJob.getRecipientId(), e);
             
             // Retry if possible
@@ -57,6 +117,7 @@ public class EmailJobListener {
             } else {
                 logger.error("Email job ha alcanzado el máximo de reintentos: campaignId={}, recipientId={}", 
                             emailJob.getCampaignId(), emailJob.getRecipientId());
+                throw e;
             }
         }
     }
@@ -65,6 +126,7 @@ public class EmailJobListener {
         EmailMessage message = new EmailMessage();
         message.setCampaignId(emailJob.getCampaignId());
         message.setRecipientId(emailJob.getRecipientId());
+        message.setIdempotencyKey(emailJob.getIdempotencyKey());
         message.setTo(emailJob.getToEmail());
         message.setSubject(emailJob.getSubject());
         message.setHtmlContent(emailJob.getHtmlContent());
@@ -75,6 +137,8 @@ public class EmailJobListener {
         message.setPersonalizationData(emailJob.getPersonalizationData());
         message.setTrackOpens(emailJob.getTrackOpens());
         message.setTrackClicks(emailJob.getTrackClicks());
+        message.setEmailLogId(emailJob.getEmailLogId());
+        message.setEmailLogCreatedAt(emailJob.getEmailLogCreatedAt());
         return message;
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+-- V10__Partition_email_logs_by_month.sql
+-- email_logs pasa a ser una tabla particionada por rango mensual de created_at.
+-- Los índices se crean en la tabla padre y PostgreSQL los replica en cada partición;
+-- las particiones antiguas se pueden desacoplar (DETACH) o eliminar sin DELETE masivos.
+
+-- Las claves foráneas hacia email_logs(id) no son compatibles con la nueva clave
+-- primaria (id, created_at): la integridad de eventos y bounces pasa a ser lógica
+ALTER TABLE email_events DROP CONSTRAINT IF EXISTS email_events_email_log_id_fkey;
+ALTER TABLE email_bounces DROP CONSTRAINT IF EXISTS email_bounces_email_log_id_fkey;
+
+-- La vista depende de la tabla: se recrea al final
+DROP MATERIALIZED VIEW IF EXISTS email_stats_summary;
+
+UPDATE email_logs SET created_at = COALESCE(updated_at, NOW()) WHERE created_at IS NULL;
+
+ALTER TABLE email_logs RENAME TO email_logs_legacy;
+ALTER TABLE email_logs_legacy RENAME CONSTRAINT email_logs_pkey TO email_logs_legacy_pkey;
+
+CREATE TABLE email_logs (LIKE email_logs_legacy INCLUDING DEFAULTS)
+    PARTITION BY RANGE (created_at);
+
+ALTER TABLE email_logs ALTER COLUMN created_at SET NOT NULL;
+ALTER TABLE email_logs ADD PRIMARY KEY (id, created_at);
+ALTER TABLE email_logs ADD FOREIGN KEY (smtp_provider_id) REFERENCES smtp_providers(id);
+ALTER SEQUENCE email_logs_id_seq OWNED BY email_logs.id;
+
+-- Crea (si no existe) la partición del mes que contiene la fecha dada
+CREATE OR REPLACE FUNCTION create_email_logs_partition(month_start DATE) RETURNS void AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    to_date DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'email_logs_' || to_char(from_date, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF email_logs FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, from_date, to_date);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Garantiza particiones desde el mes actual hasta months_ahead meses en el futuro
+CREATE OR REPLACE FUNCTION ensure_email_logs_partitions(months_ahead INTEGER) RETURNS void AS $$
+BEGIN
+    FOR i IN 0..months_ahead LOOP
+        PERFORM create_email_logs_partition((date_trunc('month', NOW()) + make_interval(months => i))::DATE);
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Particiones para los datos existentes y los próximos meses
+DO $$
+DECLARE
+    month_start DATE;
+BEGIN
+    SELECT date_trunc('month', MIN(created_at))::DATE INTO month_start FROM email_logs_legacy;
+    WHILE month_start IS NOT NULL AND month_start < date_trunc('month', NOW()) LOOP
+        PERFORM create_email_logs_partition(month_start);
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+    PERFORM ensure_email_logs_partitions(3);
+END;
+$$;
+
+-- Red de seguridad para filas fuera de las particiones creadas
+CREATE TABLE IF NOT EXISTS email_logs_default PARTITION OF email_logs DEFAULT;
+
+INSERT INTO email_logs SELECT * FROM email_logs_legacy;
+
+DROP TABLE email_logs_legacy;
+
+-- Índices por partición (definidos en la tabla padre)
+CREATE INDEX IF NOT EXISTS idx_email_logs_campaign_id ON email_logs(campaign_id);
+CREATE INDEX IF NOT EXISTS idx_email_logs_recipient_email ON email_logs(recipient_email);
+CREATE INDEX IF NOT EXISTS idx_email_logs_status ON email_logs(status);
+CREATE INDEX IF NOT EXISTS idx_email_logs_sent_at ON email_logs(sent_at);
+CREATE INDEX IF NOT EXISTS idx_email_logs_message_id ON email_logs(message_id);
+CREATE INDEX IF NOT EXISTS idx_email_logs_campaign_status_date ON email_logs(campaign_id, status, created_at);
+CREATE INDEX IF NOT EXISTS idx_email_logs_status_date ON email_logs(status, created_at);
+CREATE INDEX IF NOT EXISTS idx_email_logs_date_status ON email_logs(created_at, status);
+CREATE INDEX IF NOT EXISTS idx_email_logs_status_campaign ON email_logs(status, campaign_id);
+CREATE INDEX IF NOT EXISTS idx_email_logs_external_id_status ON email_logs(external_id, status) WHERE external_id IS NOT NULL;
+
+-- Trigger por sentencia de V6 (las tablas de transición incluyen las filas de todas las particiones)
+CREATE TRIGGER email_stats_trigger
+    AFTER UPDATE ON email_logs
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION update_email_stats_batch();
+
+-- Vista materializada de V5 sobre la nueva tabla
+CREATE MATERIALIZED VIEW IF NOT EXISTS email_stats_summary AS
+SELECT 
+    campaign_id,
+    status,
+    COUNT(*) as count,
+    DATE(created_at) as date
+FROM email_logs 
+GROUP BY campaign_id, status, DATE(created_at);
+
+CREATE UNIQUE INDEX IF NOT EXISTS idx_email_stats_summary ON email_stats_summary(campaign_id, status, date);
+
+-- CREATE MATERIALIZED VIEW (sin WITH NO DATA) la acaba de llenar: NOW() es su refresco real
+UPDATE materialized_view_refreshes SET refreshed_at = NOW(), duration_ms = NULL WHERE view_name = 'email_stats_summary';
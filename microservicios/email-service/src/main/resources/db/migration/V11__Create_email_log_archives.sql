@@ -0,0 +1,24 @@
+-- V11__Create_email_log_archives.sql
+-- Archivado en frío de particiones mensuales de email_logs: cada partición antigua se
+-- exporta a un fichero NDJSON comprimido (con su índice por bloques) y después se elimina.
+
+-- Registro de particiones archivadas. Solo los ficheros registrados aquí se consideran
+-- válidos: el registro se confirma en la misma transacción que elimina la partición.
+CREATE TABLE IF NOT EXISTS email_log_archives (
+    partition_name VARCHAR(100) PRIMARY KEY,
+    file_name VARCHAR(255) NOT NULL,
+    index_file_name VARCHAR(255) NOT NULL,
+    from_date TIMESTAMP NOT NULL,
+    to_date TIMESTAMP NOT NULL,
+    row_count BIGINT NOT NULL,
+    archived_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Conteos por (campaña, estado) de las filas archivadas, para que la reconciliación
+-- de email_status_counts no descuente los emails que ya no están en email_logs
+CREATE TABLE IF NOT EXISTS email_archived_counts (
+    campaign_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (campaign_id, status)
+);
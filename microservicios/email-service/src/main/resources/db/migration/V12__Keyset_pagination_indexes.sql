@@ -0,0 +1,12 @@
+-- V12__Keyset_pagination_indexes.sql
+-- Paginación por cursor del historial sobre (created_at, id): cada combinación de filtros
+-- tiene un índice que termina en (created_at, id) para leer la página sin OFFSET ni ordenar.
+
+CREATE INDEX IF NOT EXISTS idx_email_logs_created_id ON email_logs(created_at, id);
+CREATE INDEX IF NOT EXISTS idx_email_logs_campaign_created_id ON email_logs(campaign_id, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_email_logs_status_created_id ON email_logs(status, created_at, id);
+CREATE INDEX IF NOT EXISTS idx_email_logs_campaign_status_created_id ON email_logs(campaign_id, status, created_at, id);
+
+-- Sustituidos por las variantes con id
+DROP INDEX IF EXISTS idx_email_logs_campaign_status_date;
+DROP INDEX IF EXISTS idx_email_logs_status_date;
@@ -0,0 +1,15 @@
+-- Cuerpo de los emails fuera de email_logs
+-- V13__Create_email_contents.sql
+-- El HTML y el texto se guardan una vez por contenido distinto (hash SHA-256) y cada fila de
+-- email_logs apunta a él con content_id. Las filas anteriores conservan sus columnas
+-- html_content/text_content, que ya no se rellenan y el reintento lee como respaldo.
+
+CREATE TABLE email_contents (
+    id BIGSERIAL PRIMARY KEY,
+    content_hash CHAR(64) NOT NULL UNIQUE,
+    html_content TEXT,
+    text_content TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+ALTER TABLE email_logs ADD COLUMN content_id BIGINT;
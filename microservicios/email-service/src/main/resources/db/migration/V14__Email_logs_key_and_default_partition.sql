@@ -0,0 +1,39 @@
+-- V14__Email_logs_key_and_default_partition.sql
+-- 1. EmailLog usa la clave compuesta (id, created_at) con un generador de secuencia agrupado:
+--    la secuencia avanza de 50 en 50 y Hibernate reparte los ids intermedios.
+-- 2. Una partición mensual no se puede crear si la DEFAULT ya tiene filas de ese mes: antes de
+--    adjuntarla se mueven esas filas de la DEFAULT a la nueva partición.
+
+ALTER SEQUENCE email_logs_id_seq INCREMENT BY 50;
+
+CREATE OR REPLACE FUNCTION create_email_logs_partition(month_start DATE) RETURNS void AS $$
+DECLARE
+    from_date DATE := date_trunc('month', month_start)::DATE;
+    to_date DATE := (date_trunc('month', month_start) + INTERVAL '1 month')::DATE;
+    partition_name TEXT := 'email_logs_' || to_char(from_date, 'YYYY_MM');
+    moved BIGINT;
+BEGIN
+    IF to_regclass(partition_name) IS NOT NULL THEN
+        RETURN;
+    END IF;
+
+    IF to_regclass('email_logs_default') IS NULL THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF email_logs FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, from_date, to_date);
+        RETURN;
+    END IF;
+
+    -- Se crea suelta, se rellena con las filas del mes que cayeron en la DEFAULT y se adjunta;
+    -- el bloqueo impide que entren filas nuevas del mes en la DEFAULT mientras tanto
+    LOCK TABLE email_logs_default IN SHARE ROW EXCLUSIVE MODE;
+    EXECUTE format('CREATE TABLE %I (LIKE email_logs INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', partition_name);
+    EXECUTE format('WITH moved_rows AS (DELETE FROM email_logs_default WHERE created_at >= %L AND created_at < %L RETURNING *) '
+                   'INSERT INTO %I SELECT * FROM moved_rows', from_date, to_date, partition_name);
+    GET DIAGNOSTICS moved = ROW_COUNT;
+    EXECUTE format('ALTER TABLE email_logs ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                   partition_name, from_date, to_date);
+    IF moved > 0 THEN
+        RAISE NOTICE 'Partición %: % filas movidas desde email_logs_default', partition_name, moved;
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
@@ -0,0 +1,18 @@
+-- Eventos de webhook que no se pudieron aplicar
+-- V15__Create_webhook_event_dead_letters.sql
+-- La ingesta reintenta un lote fallido en los ciclos siguientes hasta email.webhooks.max-attempts;
+-- a partir de ahí el evento se guarda aquí en lugar de volver al buffer indefinidamente.
+
+CREATE TABLE webhook_event_dead_letters (
+    id BIGSERIAL PRIMARY KEY,
+    external_id VARCHAR(255) NOT NULL,
+    event_type VARCHAR(20) NOT NULL,
+    reason TEXT,
+    occurred_at TIMESTAMP NOT NULL,
+    received_at TIMESTAMP NOT NULL,
+    attempts INTEGER NOT NULL,
+    error_message TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_webhook_event_dead_letters_created_at ON webhook_event_dead_letters(created_at);
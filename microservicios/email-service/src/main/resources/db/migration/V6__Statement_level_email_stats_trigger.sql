@@ -0,0 +1,26 @@
+-- V6__Statement_level_email_stats_trigger.sql
+-- El trigger por fila hacía un INSERT en email_events por cada email actualizado.
+-- Con los webhooks aplicados en lote, un único UPDATE puede tocar miles de filas:
+-- se sustituye por un trigger por sentencia que inserta todos los cambios de una vez.
+
+CREATE OR REPLACE FUNCTION update_email_stats_batch() RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO email_events (email_log_id, event_type, event_data, occurred_at)
+    SELECT n.id, 'STATUS_CHANGE',
+           json_build_object('old_status', o.status, 'new_status', n.status),
+           NOW()
+    FROM new_rows n
+    JOIN old_rows o ON o.id = n.id
+    WHERE o.status != n.status;
+    
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS email_stats_trigger ON email_logs;
+CREATE TRIGGER email_stats_trigger
+    AFTER UPDATE ON email_logs
+    REFERENCING OLD TABLE AS old_rows NEW TABLE AS new_rows
+    FOR EACH STATEMENT
+    EXECUTE FUNCTION update_email_stats_batch();
+
@@ -0,0 +1,19 @@
+-- V7__Create_email_status_counts.sql
+-- Contadores pre-agregados por (campaña, estado) para las estadísticas.
+-- Los mantiene email-service a partir de cada cambio de estado (deltas en memoria
+-- volcados periódicamente); campaign_id = 0 agrupa los envíos sin campaña.
+
+CREATE TABLE IF NOT EXISTS email_status_counts (
+    campaign_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (campaign_id, status)
+);
+
+-- Carga inicial con los datos existentes
+INSERT INTO email_status_counts (campaign_id, status, count)
+SELECT COALESCE(campaign_id, 0), status, COUNT(*)
+FROM email_logs
+GROUP BY COALESCE(campaign_id, 0), status
+ON CONFLICT (campaign_id, status) DO UPDATE SET count = EXCLUDED.count, updated_at = NOW();
@@ -0,0 +1,38 @@
+-- V8__Create_email_stats_rollups.sql
+-- Rollups horarios y diarios de emails por estado, agrupados por la fecha de creación
+-- del email. Los mantiene email-service de forma incremental con cada cambio de estado;
+-- las estadísticas por rango de fechas se responden desde aquí en lugar de email_logs.
+
+CREATE TABLE IF NOT EXISTS email_stats_hourly (
+    bucket_start TIMESTAMP NOT NULL,
+    campaign_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_start, campaign_id, status)
+);
+
+CREATE TABLE IF NOT EXISTS email_stats_daily (
+    bucket_date DATE NOT NULL,
+    campaign_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (bucket_date, campaign_id, status)
+);
+
+CREATE INDEX IF NOT EXISTS idx_email_stats_hourly_campaign ON email_stats_hourly(campaign_id, bucket_start);
+CREATE INDEX IF NOT EXISTS idx_email_stats_daily_campaign ON email_stats_daily(campaign_id, bucket_date);
+
+-- Carga inicial con los datos existentes
+INSERT INTO email_stats_hourly (bucket_start, campaign_id, status, count)
+SELECT date_trunc('hour', created_at), COALESCE(campaign_id, 0), status, COUNT(*)
+FROM email_logs
+WHERE created_at IS NOT NULL
+GROUP BY date_trunc('hour', created_at), COALESCE(campaign_id, 0), status
+ON CONFLICT (bucket_start, campaign_id, status) DO UPDATE SET count = EXCLUDED.count;
+
+INSERT INTO email_stats_daily (bucket_date, campaign_id, status, count)
+SELECT CAST(created_at AS DATE), COALESCE(campaign_id, 0), status, COUNT(*)
+FROM email_logs
+WHERE created_at IS NOT NULL
+GROUP BY CAST(created_at AS DATE), COALESCE(campaign_id, 0), status
+ON CONFLICT (bucket_date, campaign_id, status) DO UPDATE SET count = EXCLUDED.count;
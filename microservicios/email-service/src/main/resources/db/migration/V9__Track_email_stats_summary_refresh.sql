@@ -0,0 +1,15 @@
+-- V9__Track_email_stats_summary_refresh.sql
+-- Registro del último refresco de las vistas materializadas, para informar de
+-- la antigüedad de los datos servidos desde email_stats_summary.
+
+CREATE TABLE IF NOT EXISTS materialized_view_refreshes (
+    view_name VARCHAR(100) PRIMARY KEY,
+    refreshed_at TIMESTAMP NOT NULL,
+    duration_ms BIGINT
+);
+
+-- Se desconoce cuándo se llenó la vista (V5): 'epoch' la marca como obsoleta y las
+-- estadísticas se calculan en vivo hasta el primer refresco real
+INSERT INTO materialized_view_refreshes (view_name, refreshed_at, duration_ms)
+VALUES ('email_stats_summary', 'epoch', NULL)
+ON CONFLICT (view_name) DO NOTHING;
@@ -0,0 +1,51 @@
+package com.correos.masivos.email.domain.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailLogCursorTest {
+
+    @Test
+    void testEncodeDecodeRoundTrip() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123456000);
+        EmailLogCursor cursor = EmailLogCursor.decode(new EmailLogCursor(createdAt, 987654321L, false).encode());
+
+        assertEquals(createdAt, cursor.getCreatedAt());
+        assertEquals(987654321L, cursor.getId());
+        assertFalse(cursor.isAscending());
+    }
+
+    @Test
+    void testRoundTripWithWholeMinute() {
+        // LocalDateTime.toString omite los segundos a cero
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 1, 10, 0);
+        EmailLogCursor cursor = EmailLogCursor.decode(new EmailLogCursor(createdAt, 1L, true).encode());
+
+        assertEquals(createdAt, cursor.getCreatedAt());
+        assertTrue(cursor.isAscending());
+    }
+
+    @Test
+    void testEncodedTokenIsUrlSafe() {
+        String token = new EmailLogCursor(LocalDateTime.of(2024, 5, 1, 10, 15), 42L, true).encode();
+        assertTrue(token.matches("[A-Za-z0-9_-]+"), token);
+    }
+
+    @Test
+    void testDecodeRejectsMalformedTokens() {
+        assertThrows(IllegalArgumentException.class, () -> EmailLogCursor.decode("%%%"));
+        assertThrows(IllegalArgumentException.class, () -> EmailLogCursor.decode(encodeRaw("x|2024-05-01T10:15|1")));
+        assertThrows(IllegalArgumentException.class, () -> EmailLogCursor.decode(encodeRaw("a|2024-05-01T10:15")));
+        assertThrows(IllegalArgumentException.class, () -> EmailLogCursor.decode(encodeRaw("a|ayer|1")));
+        assertThrows(IllegalArgumentException.class, () -> EmailLogCursor.decode(encodeRaw("a|2024-05-01T10:15|uno")));
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
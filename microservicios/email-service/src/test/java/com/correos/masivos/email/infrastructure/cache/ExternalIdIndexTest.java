@@ -0,0 +1,91 @@
+package com.correos.masivos.email.infrastructure.cache;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExternalIdIndexTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123456000);
+
+    private static ExternalIdIndex newIndex(int capacity) {
+        ExternalIdIndex index = new ExternalIdIndex();
+        ReflectionTestUtils.setField(index, "capacity", capacity);
+        index.init();
+        return index;
+    }
+
+    @Test
+    void testPutAndGet() {
+        ExternalIdIndex index = newIndex(100);
+        index.put("msg-1", 10L, CREATED_AT, EmailLog.EmailStatus.SENT);
+
+        ExternalIdIndex.Entry entry = index.get("msg-1");
+        assertNotNull(entry);
+        assertEquals(10L, entry.getEmailLogId());
+        assertEquals(CREATED_AT, entry.getCreatedAt());
+        assertEquals(EmailLog.EmailStatus.SENT, entry.getStatus());
+        assertNull(index.get("msg-2"));
+    }
+
+    @Test
+    void testPutUpdatesExistingEntry() {
+        ExternalIdIndex index = newIndex(100);
+        index.put("msg-1", 10L, CREATED_AT, EmailLog.EmailStatus.SENT);
+        index.put("msg-1", 10L, CREATED_AT, EmailLog.EmailStatus.OPENED);
+
+        assertEquals(EmailLog.EmailStatus.OPENED, index.get("msg-1").getStatus());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testIgnoresIncompleteEntries() {
+        ExternalIdIndex index = newIndex(100);
+        index.put("msg-1", 10L, null, EmailLog.EmailStatus.SENT);
+        index.put("msg-2", null, CREATED_AT, EmailLog.EmailStatus.SENT);
+        index.put(null, 10L, CREATED_AT, EmailLog.EmailStatus.SENT);
+
+        assertEquals(0, index.size());
+        assertNull(index.get(null));
+    }
+
+    @Test
+    void testRotationKeepsPreviousGenerationOnly() {
+        ExternalIdIndex index = newIndex(16);
+        for (int i = 0; i < 16; i++) {
+            index.put("old-" + i, (long) i, CREATED_AT, EmailLog.EmailStatus.SENT);
+        }
+        // Llena la generación actual: las anteriores pasan a ser la generación vieja
+        for (int i = 0; i < 16; i++) {
+            index.put("recent-" + i, 100L + i, CREATED_AT, EmailLog.EmailStatus.SENT);
+        }
+        assertNotNull(index.get("old-0"));
+        assertNotNull(index.get("recent-15"));
+
+        // Una rotación más descarta la generación más antigua
+        index.put("newest", 200L, CREATED_AT, EmailLog.EmailStatus.SENT);
+        assertNull(index.get("old-0"));
+        assertNotNull(index.get("recent-15"));
+        assertNotNull(index.get("newest"));
+    }
+
+    @Test
+    void testEpochMicrosRoundTrip() {
+        assertEquals(CREATED_AT, ExternalIdIndex.fromEpochMicros(ExternalIdIndex.toEpochMicros(CREATED_AT)));
+
+        LocalDateTime beforeEpoch = LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999999000);
+        assertEquals(-1L, ExternalIdIndex.toEpochMicros(beforeEpoch));
+        assertEquals(beforeEpoch, ExternalIdIndex.fromEpochMicros(-1L));
+    }
+
+    @Test
+    void testEpochMicrosTruncatesNanos() {
+        LocalDateTime withNanos = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123456789);
+        assertEquals(withNanos.withNano(123456000),
+                     ExternalIdIndex.fromEpochMicros(ExternalIdIndex.toEpochMicros(withNanos)));
+    }
+}
@@ -0,0 +1,143 @@
+package com.correos.masivos.email.infrastructure.dedup;
+
+import com.correos.masivos.email.infrastructure.dedup.EmailDeduplicationService.Reservation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class EmailDeduplicationServiceTest {
+
+    private static final String REDIS_KEY = "email:idempotency:bulk:job:1";
+
+    private RedisTemplate<String, String> redisTemplate;
+    private ValueOperations<String, String> ops;
+    private EmailDeduplicationService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        redisTemplate = mock(RedisTemplate.class);
+        ops = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(ops);
+
+        service = new EmailDeduplicationService();
+        ReflectionTestUtils.setField(service, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(service, "sentTtlHours", 72L);
+        ReflectionTestUtils.setField(service, "inFlightTtlMinutes", 15L);
+        ReflectionTestUtils.setField(service, "inFlightStaleSeconds", 120L);
+    }
+
+    @Test
+    void testNullKeyIsNotDeduplicated() {
+        Reservation reservation = service.tryAcquire(null);
+
+        assertEquals(Reservation.State.ACQUIRED, reservation.getState());
+        assertNull(reservation.getValue());
+        verifyNoInteractions(redisTemplate);
+    }
+
+    @Test
+    void testFreeKeyIsAcquired() {
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(true);
+
+        Reservation reservation = service.tryAcquire("bulk:job:1");
+
+        assertEquals(Reservation.State.ACQUIRED, reservation.getState());
+        assertTrue(reservation.getValue().startsWith("SENDING:"));
+    }
+
+    @Test
+    void testSentKeyIsDuplicate() {
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(false);
+        when(ops.get(REDIS_KEY)).thenReturn("SENT");
+
+        assertEquals(Reservation.State.SENT, service.tryAcquire("bulk:job:1").getState());
+    }
+
+    @Test
+    void testRecentReservationIsInFlight() {
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(false);
+        when(ops.get(REDIS_KEY)).thenReturn("SENDING:" + System.currentTimeMillis());
+
+        assertEquals(Reservation.State.IN_FLIGHT, service.tryAcquire("bulk:job:1").getState());
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any(), any(), any());
+    }
+
+    @Test
+    void testStaleReservationIsTakenOver() {
+        String stale = "SENDING:" + (System.currentTimeMillis() - 300_000);
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(false);
+        when(ops.get(REDIS_KEY)).thenReturn(stale);
+        when(redisTemplate.execute(any(RedisScript.class), eq(List.of(REDIS_KEY)), eq(stale), anyString(), anyString()))
+            .thenReturn(1L);
+
+        Reservation reservation = service.tryAcquire("bulk:job:1");
+
+        assertEquals(Reservation.State.ACQUIRED, reservation.getState());
+        assertNotEquals(stale, reservation.getValue());
+    }
+
+    @Test
+    void testStaleReservationTakenByAnotherConsumerIsInFlight() {
+        String stale = "SENDING:" + (System.currentTimeMillis() - 300_000);
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(false);
+        when(ops.get(REDIS_KEY)).thenReturn(stale);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any())).thenReturn(0L);
+
+        assertEquals(Reservation.State.IN_FLIGHT, service.tryAcquire("bulk:job:1").getState());
+    }
+
+    @Test
+    void testKeyReleasedBetweenCallsIsRetried() {
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(false, true);
+        when(ops.get(REDIS_KEY)).thenReturn(null);
+
+        assertEquals(Reservation.State.ACQUIRED, service.tryAcquire("bulk:job:1").getState());
+        verify(ops, times(2)).setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class));
+    }
+
+    @Test
+    void testRedisDownSendsWithoutReservation() {
+        when(ops.setIfAbsent(anyString(), anyString(), any(Duration.class)))
+            .thenThrow(new RedisConnectionFailureException("down"));
+
+        Reservation reservation = service.tryAcquire("bulk:job:1");
+        assertEquals(Reservation.State.ACQUIRED, reservation.getState());
+        assertNull(reservation.getValue());
+
+        // Sin valor escrito no hay nada que liberar
+        service.release(reservation);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(), any());
+    }
+
+    @Test
+    void testReleaseDeletesOnlyOwnReservation() {
+        when(ops.setIfAbsent(eq(REDIS_KEY), anyString(), any(Duration.class))).thenReturn(true);
+        Reservation reservation = service.tryAcquire("bulk:job:1");
+
+        service.release(reservation);
+
+        verify(redisTemplate).execute(any(RedisScript.class), eq(List.of(REDIS_KEY)), eq(reservation.getValue()));
+    }
+
+    @Test
+    void testMarkSentStoresSentWithLongTtl() {
+        service.markSent("bulk:job:1");
+
+        verify(ops).set(REDIS_KEY, "SENT", Duration.ofHours(72));
+    }
+}
@@ -0,0 +1,56 @@
+package com.correos.masivos.email.infrastructure.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTest {
+
+    @Test
+    void testBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(0.001, 5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(bucket.tryConsume());
+        }
+        assertFalse(bucket.tryConsume());
+    }
+
+    @Test
+    void testRefillsOverTime() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(100, 1);
+        assertTrue(bucket.tryConsume());
+        assertFalse(bucket.tryConsume());
+
+        Thread.sleep(50);
+        assertTrue(bucket.tryConsume());
+    }
+
+    @Test
+    void testRefillNeverExceedsCapacity() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1000, 2);
+        Thread.sleep(50);
+        assertTrue(bucket.tryConsume());
+        assertTrue(bucket.tryConsume());
+        assertFalse(bucket.tryConsume());
+    }
+
+    @Test
+    void testConsumeWaitsForToken() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(20, 1);
+        assertTrue(bucket.tryConsume());
+
+        long start = System.nanoTime();
+        assertTrue(bucket.consume(1, TimeUnit.SECONDS));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis >= 30, "Esperó solo " + waitedMillis + " ms");
+    }
+
+    @Test
+    void testConsumeTimesOut() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0.1, 1);
+        assertTrue(bucket.tryConsume());
+        assertFalse(bucket.consume(20, TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,156 @@
+package com.correos.masivos.email.infrastructure.service;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.domain.model.WebhookEvent;
+import com.correos.masivos.email.infrastructure.cache.ExternalIdIndex;
+import com.correos.masivos.email.infrastructure.repository.WebhookEventBatchRepository;
+import com.correos.masivos.email.infrastructure.stats.EmailStatusCounters;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class WebhookIngestionServiceImplTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 10, 0);
+    private static final LocalDateTime OCCURRED_AT = LocalDateTime.of(2024, 5, 1, 11, 0);
+
+    private WebhookEventBatchRepository repository;
+    private EmailStatusCounters counters;
+    private ExternalIdIndex index;
+    private WebhookIngestionServiceImpl service;
+    private final List<String> applied = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(WebhookEventBatchRepository.class);
+        counters = mock(EmailStatusCounters.class);
+        index = new ExternalIdIndex();
+        ReflectionTestUtils.setField(index, "capacity", 1000);
+        index.init();
+
+        service = new WebhookIngestionServiceImpl();
+        ReflectionTestUtils.setField(service, "webhookEventBatchRepository", repository);
+        ReflectionTestUtils.setField(service, "externalIdIndex", index);
+        ReflectionTestUtils.setField(service, "emailStatusCounters", counters);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "bufferCapacity", 100);
+        ReflectionTestUtils.setField(service, "batchSize", 2);
+        ReflectionTestUtils.setField(service, "maxAttempts", 2);
+        service.init();
+    }
+
+    // Simula el UPDATE: cada evento actualiza su fila desde SENT y se informa por el callback
+    private void applyingFromSent() {
+        when(repository.applyEvents(any(), anyList(), anyList(), any())).thenAnswer(invocation -> {
+            WebhookEvent.EventType type = invocation.getArgument(0);
+            List<WebhookEvent> events = invocation.getArgument(1);
+            WebhookEventBatchRepository.UpdatedRowCallback callback = invocation.getArgument(3);
+            for (WebhookEvent event : events) {
+                applied.add(type + " " + event.getExternalId());
+                callback.onUpdated(1L, event.getExternalId(), statusFor(type).name(), "SENT", 7L, CREATED_AT);
+            }
+            return events.size();
+        });
+    }
+
+    private static EmailLog.EmailStatus statusFor(WebhookEvent.EventType type) {
+        return EmailLog.EmailStatus.valueOf(type.name());
+    }
+
+    private static WebhookEvent event(String externalId, WebhookEvent.EventType type, LocalDateTime occurredAt) {
+        return new WebhookEvent(externalId, type, null, occurredAt);
+    }
+
+    @Test
+    void testFlushAppliesEventsAndFeedsIndexAndCounters() {
+        applyingFromSent();
+        service.accept(event("msg-1", WebhookEvent.EventType.OPENED, OCCURRED_AT));
+        service.accept(event("msg-2", WebhookEvent.EventType.DELIVERED, OCCURRED_AT));
+
+        assertEquals(2, service.flush());
+
+        // Dentro de un lote los estados más avanzados se aplican después
+        assertEquals(List.of("DELIVERED msg-2", "OPENED msg-1"), applied);
+        assertEquals(EmailLog.EmailStatus.OPENED, index.get("msg-1").getStatus());
+        verify(counters).transition(7L, CREATED_AT, EmailLog.EmailStatus.SENT, EmailLog.EmailStatus.OPENED);
+        verify(counters).transition(7L, CREATED_AT, EmailLog.EmailStatus.SENT, EmailLog.EmailStatus.DELIVERED);
+        assertEquals(0, service.getPendingEvents());
+    }
+
+    @Test
+    void testEventsThatDoNotAdvanceStatusSkipTheDatabase() {
+        index.put("msg-1", 1L, CREATED_AT, EmailLog.EmailStatus.CLICKED);
+        service.accept(event("msg-1", WebhookEvent.EventType.OPENED, OCCURRED_AT));
+
+        assertEquals(0, service.flush());
+        verify(repository, never()).applyEvents(any(), anyList(), anyList(), any());
+    }
+
+    @Test
+    void testLatestEventPerEmailAndTypeWins() {
+        applyingFromSent();
+        WebhookEvent older = event("msg-1", WebhookEvent.EventType.BOUNCED, OCCURRED_AT);
+        older.setReason("old");
+        WebhookEvent newer = event("msg-1", WebhookEvent.EventType.BOUNCED, OCCURRED_AT.plusMinutes(5));
+        newer.setReason("new");
+        service.accept(newer);
+        service.accept(older);
+
+        service.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<WebhookEvent>> events = ArgumentCaptor.forClass(List.class);
+        verify(repository).applyEvents(eq(WebhookEvent.EventType.BOUNCED), events.capture(), anyList(), any());
+        assertEquals(1, events.getValue().size());
+        assertEquals("new", events.getValue().get(0).getReason());
+    }
+
+    @Test
+    void testFailedBatchIsRequeuedThenDeadLettered() {
+        when(repository.applyEvents(any(), anyList(), anyList(), any())).thenThrow(new IllegalStateException("db down"));
+        service.accept(event("msg-1", WebhookEvent.EventType.DELIVERED, OCCURRED_AT));
+
+        assertEquals(0, service.flush());
+        assertEquals(1, service.getPendingEvents());
+        verify(repository, never()).saveDeadLetters(anyList(), anyString());
+
+        // Segundo intento fallido: alcanza max-attempts y sale del buffer
+        service.flush();
+        assertEquals(0, service.getPendingEvents());
+        verify(repository).saveDeadLetters(argThat(events -> events.size() == 1
+            && "msg-1".equals(events.get(0).getExternalId())), eq("db down"));
+    }
+
+    @Test
+    void testFlushOnlyDrainsEventsBufferedAtEntry() {
+        // Cada lote aplicado recibe un evento nuevo, como con entrada sostenida
+        when(repository.applyEvents(any(), anyList(), anyList(), any())).thenAnswer(invocation -> {
+            List<WebhookEvent> events = invocation.getArgument(1);
+            service.accept(event("late-" + applied.size(), WebhookEvent.EventType.DELIVERED, OCCURRED_AT));
+            applied.add("batch");
+            return events.size();
+        });
+        for (int i = 0; i < 4; i++) {
+            service.accept(event("msg-" + i, WebhookEvent.EventType.DELIVERED, OCCURRED_AT));
+        }
+
+        assertEquals(4, service.flush());
+
+        // Dos lotes de batchSize=2; lo que llegó durante el flush espera al siguiente ciclo
+        assertEquals(2, applied.size());
+        assertEquals(2, service.getPendingEvents());
+    }
+}
@@ -0,0 +1,119 @@
+package com.correos.masivos.email.infrastructure.stats;
+
+import com.correos.masivos.email.domain.model.EmailLog;
+import com.correos.masivos.email.infrastructure.repository.EmailStatsRollupRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EmailStatsRollupsTest {
+
+    private RecordingRepository repository;
+    private EmailStatsRollups rollups;
+
+    @BeforeEach
+    void setUp() {
+        repository = new RecordingRepository();
+        rollups = new EmailStatsRollups();
+        ReflectionTestUtils.setField(rollups, "emailStatsRollupRepository", repository);
+    }
+
+    @Test
+    void testRangeWithinOneHourReadsRawRows() {
+        rollups.countByCreatedAt(1L, at(2024, 3, 1, 10, 10), at(2024, 3, 1, 10, 50));
+
+        assertEquals(List.of("raw 2024-03-01T10:10 2024-03-01T10:50"), repository.calls);
+    }
+
+    @Test
+    void testWholeHoursWithinOneDayUseHourlyRollups() {
+        rollups.countByCreatedAt(1L, at(2024, 3, 1, 10, 0), at(2024, 3, 1, 13, 0));
+
+        assertEquals(List.of("hourly 2024-03-01T10:00 2024-03-01T13:00"), repository.calls);
+    }
+
+    @Test
+    void testRangeSplitsIntoRawHourlyAndDaily() {
+        rollups.countByCreatedAt(1L, at(2024, 3, 1, 10, 30), at(2024, 3, 4, 5, 15));
+
+        assertEquals(Arrays.asList(
+            "raw 2024-03-01T10:30 2024-03-01T11:00",
+            "raw 2024-03-04T05:00 2024-03-04T05:15",
+            "daily 2024-03-02 2024-03-04",
+            "hourly 2024-03-01T11:00 2024-03-02T00:00",
+            "hourly 2024-03-04T00:00 2024-03-04T05:00"), repository.calls);
+    }
+
+    @Test
+    void testAlignedDaysUseOnlyDailyRollups() {
+        rollups.countByCreatedAt(null, at(2024, 3, 1, 0, 0), at(2024, 3, 8, 0, 0));
+
+        assertEquals(List.of("daily 2024-03-01 2024-03-08"), repository.calls);
+    }
+
+    @Test
+    void testOpenHourReadsRawRows() {
+        LocalDateTime openBucket = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        rollups.countByCreatedAt(1L, openBucket.minusHours(2), null);
+
+        assertEquals(Arrays.asList(
+            "hourly " + openBucket.minusHours(2) + " " + openBucket,
+            "raw " + openBucket + " " + openBucket.plusHours(1)), repository.calls);
+    }
+
+    @Test
+    void testEmptyRangeQueriesNothing() {
+        Map<EmailLog.EmailStatus, Long> counts = rollups.countByCreatedAt(1L, at(2024, 3, 2, 0, 0), at(2024, 3, 1, 0, 0));
+
+        assertTrue(repository.calls.isEmpty());
+        assertEquals(EmailLog.EmailStatus.values().length, counts.size());
+        assertEquals(0L, counts.get(EmailLog.EmailStatus.SENT));
+    }
+
+    @Test
+    void testCountsAddUpAcrossSources() {
+        Map<EmailLog.EmailStatus, Long> counts = rollups.countByCreatedAt(1L, at(2024, 3, 1, 10, 30), at(2024, 3, 4, 5, 15));
+
+        // Cada consulta del repositorio simulado suma un email enviado
+        assertEquals(5L, counts.get(EmailLog.EmailStatus.SENT));
+        assertEquals(0L, counts.get(EmailLog.EmailStatus.FAILED));
+    }
+
+    private static LocalDateTime at(int year, int month, int day, int hour, int minute) {
+        return LocalDateTime.of(year, month, day, hour, minute);
+    }
+
+    private static final class RecordingRepository extends EmailStatsRollupRepository {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public void addHourlyCounts(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDateTime from, LocalDateTime to) {
+            record(counts, "hourly " + from + " " + to);
+        }
+
+        @Override
+        public void addDailyCounts(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDate from, LocalDate to) {
+            record(counts, "daily " + from + " " + to);
+        }
+
+        @Override
+        public void addRawCounts(Map<EmailLog.EmailStatus, Long> counts, Long campaignId, LocalDateTime from, LocalDateTime to) {
+            record(counts, "raw " + from + " " + to);
+        }
+
+        private void record(Map<EmailLog.EmailStatus, Long> counts, String call) {
+            calls.add(call);
+            counts.merge(EmailLog.EmailStatus.SENT, 1L, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.correos.masivos.email.listener;
+
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.listener.ListenerContainerIdleEvent;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class BatchAcknowledgerTest {
+
+    private Channel channel;
+    private BatchAcknowledger acknowledger;
+
+    @BeforeEach
+    void setUp() {
+        channel = mock(Channel.class);
+        acknowledger = new BatchAcknowledger();
+        ReflectionTestUtils.setField(acknowledger, "ackBatchSize", 3);
+        ReflectionTestUtils.setField(acknowledger, "ackFlushIntervalMs", 60_000L);
+    }
+
+    private static ListenerContainerIdleEvent idleEvent() {
+        return new ListenerContainerIdleEvent(new Object(), 1000L, "emailJobListener", "email.send");
+    }
+
+    @Test
+    void testFullBatchIsAckedWithHighestTag() throws Exception {
+        acknowledger.ack(channel, 1L);
+        acknowledger.ack(channel, 2L);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+
+        acknowledger.ack(channel, 3L);
+
+        verify(channel).basicAck(3L, true);
+    }
+
+    @Test
+    void testOldBatchIsAckedOnNextMessage() throws Exception {
+        ReflectionTestUtils.setField(acknowledger, "ackFlushIntervalMs", 0L);
+
+        acknowledger.ack(channel, 1L);
+
+        verify(channel).basicAck(1L, true);
+    }
+
+    @Test
+    void testIdleEventFlushesOnlyTheCallingConsumer() throws Exception {
+        Channel otherChannel = mock(Channel.class);
+        Thread otherConsumer = new Thread(() -> acknowledger.ack(otherChannel, 7L));
+        otherConsumer.start();
+        otherConsumer.join();
+        acknowledger.ack(channel, 1L);
+
+        acknowledger.onIdle(idleEvent());
+
+        verify(channel).basicAck(1L, true);
+        // Los pendientes de otro hilo se confirman solo desde ese hilo
+        verify(otherChannel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testNewChannelDropsTagsOfThePreviousOne() throws Exception {
+        Channel reconnected = mock(Channel.class);
+        acknowledger.ack(channel, 5L);
+
+        acknowledger.ack(reconnected, 1L);
+        acknowledger.onIdle(idleEvent());
+
+        verify(reconnected).basicAck(1L, true);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void testAcksAreNotBatchedAfterShutdown() throws Exception {
+        acknowledger.ack(channel, 1L);
+
+        acknowledger.onShutdown();
+        acknowledger.ack(channel, 2L);
+
+        verify(channel).basicAck(2L, true);
+    }
+}
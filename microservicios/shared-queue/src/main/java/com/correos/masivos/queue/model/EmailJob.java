@@ -51,6 +51,22 @@ public class EmailJob {
     private Boolean trackOpens = true;
     
     private Boolean trackClicks = true;
+    
+    // Identifica una intención de envío; los reintentos y reentregas comparten el mismo grupo
+    private String attemptGroup;
+    
+    private String idempotencyKey;
+    
+    // Envíos masivos asíncronos: trabajo y posición del destinatario para reportar el progreso
+    private String bulkJobId;
+    
+    private Integer bulkIndex;
+    
+    // Reintento de un email ya registrado en email_logs: se actualiza esa fila en lugar de crear otra
+    private Long emailLogId;
+    
+    // created_at de esa fila: completa la clave de email_logs para leerla en una sola partición
+    private LocalDateTime emailLogCreatedAt;
 
     public EmailJob() {
         this.createdAt = LocalDateTime.now();
@@ -75,6 +91,15 @@ public class EmailJob {
         return this.currentRetry >= this.maxRetries;
     }
 
+    // Sin attemptGroup no hay clave: campaña + destinatario no basta para distinguir un reenvío
+    // legítimo de un duplicado
+    public static String buildIdempotencyKey(Long campaignId, Long recipientId, String attemptGroup) {
+        if (campaignId == null || recipientId == null || attemptGroup == null) {
+            return null;
+        }
+        return campaignId + ":" + recipientId + ":" + attemptGroup;
+    }
+
     // Getters and Setters
     public Long getCampaignId() { return campaignId; }
     public void setCampaignId(Long campaignId) { this.campaignId = campaignId; }
@@ -129,4 +154,24 @@ public class EmailJob {
 
     public Boolean getTrackClicks() { return trackClicks; }
     public void setTrackClicks(Boolean trackClicks) { this.trackClicks = trackClicks; }
+
+    public String getAttemptGroup() { return attemptGroup; }
+    public void setAttemptGroup(String attemptGroup) { this.attemptGroup = attemptGroup; }
+
+    public String getIdempotencyKey() {
+        return idempotencyKey != null ? idempotencyKey : buildIdempotencyKey(campaignId, recipientId, attemptGroup);
+    }
+    public void setIdempotencyKey(String idempotencyKey) { this.idempotencyKey = idempotencyKey; }
+
+    public String getBulkJobId() { return bulkJobId; }
+    public void setBulkJobId(String bulkJobId) { this.bulkJobId = bulkJobId; }
+
+    public Integer getBulkIndex() { return bulkIndex; }
+    public void setBulkIndex(Integer bulkIndex) { this.bulkIndex = bulkIndex; }
+
+    public Long getEmailLogId() { return emailLogId; }
+    public void setEmailLogId(Long emailLogId) { this.emailLogId = emailLogId; }
+
+    public LocalDateTime getEmailLogCreatedAt() { return emailLogCreatedAt; }
+    public void setEmailLogCreatedAt(LocalDateTime emailLogCreatedAt) { this.emailLogCreatedAt = emailLogCreatedAt; }
 }
\ No newline at end of file